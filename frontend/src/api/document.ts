@@ -3,6 +3,7 @@ import type { ApiResponse } from './http'
 import type { Document, DocumentStatus } from './types'
 
 export interface DocumentSearchParams {
+  keyword?: string
   fileNumber?: string
   fileName?: string
   productModel?: string
@@ -12,6 +13,18 @@ export interface DocumentSearchParams {
   size?: number
 }
 
+export interface FacetValue {
+  value: string
+  label: string
+  count: number
+}
+
+export interface FacetedSearchResult {
+  page: { content: Document[]; totalElements: number; totalPages: number }
+  // status / fileType / productModel / compilerId
+  facets: Record<string, FacetValue[]>
+}
+
 export interface DocumentUploadParams {
   file: File
   fileNumber: string
@@ -50,5 +63,10 @@ export const documentApi = {
   search: async (data: DocumentSearchParams) => {
     const res = await http.post<ApiResponse<Document>>('/v1/documents/search', data)
     return res
+  },
+
+  // 分面检索（结果 + 各维度数量）
+  facetedSearch: (data: DocumentSearchParams) => {
+    return http.post<ApiResponse<FacetedSearchResult>>('/v1/documents/search/faceted', data)
   }
 }
@@ -1,6 +1,6 @@
 import http from './http'
 import type { ApiResponse } from './http'
-import type { OperationLog, OperationType } from './types'
+import type { CursorPage, OperationLog, OperationType } from './types'
 import { saveAs } from 'file-saver'
 
 export interface LogSearchParams {
@@ -12,6 +12,23 @@ export interface LogSearchParams {
   size?: number
 }
 
+export type ExportFormat = 'XLSX' | 'CSV' | 'CSV_GZ'
+
+export interface ExportJob {
+  jobId: string
+  format: ExportFormat
+  status: 'QUEUED' | 'RUNNING' | 'COMPLETED' | 'FAILED'
+  rowsWritten: number
+  estimatedRows?: number
+  progress?: number
+  fileName: string
+  fileSize?: number
+  errorMessage?: string
+  createTime: string
+  startTime?: string
+  completeTime?: string
+}
+
 export const logApi = {
   // 查询日志
   search: (params: LogSearchParams) => {
@@ -21,6 +38,11 @@ export const logApi = {
     )
   },
 
+  // 查询日志（游标分页，cursor 传上一页返回的 nextCursor）
+  searchByCursor: (params: Omit<LogSearchParams, 'page'> & { cursor?: string; withTotal?: boolean }) => {
+    return http.get<ApiResponse<CursorPage<OperationLog>>>('/v1/logs/cursor', { params })
+  },
+
   // 导出日志为Excel
   export: async (params: Omit<LogSearchParams, 'page' | 'size'>) => {
     const response = await http.get<Blob>('/v1/logs/export', {
@@ -33,5 +55,23 @@ export const logApi = {
     const filename = `操作日志_${new Date().toISOString().slice(0, 10)}.xlsx`
     saveAs(blob, filename)
   },
+
+  // 提交异步导出任务
+  submitExportJob: (params: Omit<LogSearchParams, 'page' | 'size'> & { format?: ExportFormat }) => {
+    return http.post<ApiResponse<ExportJob>>('/v1/logs/export-jobs', null, { params })
+  },
+
+  // 查询导出任务进度
+  getExportJob: (jobId: string) => {
+    return http.get<ApiResponse<ExportJob>>(`/v1/logs/export-jobs/${jobId}`)
+  },
+
+  // 下载导出文件
+  downloadExportJob: async (job: ExportJob) => {
+    const response = await http.get<Blob>(`/v1/logs/export-jobs/${job.jobId}/file`, {
+      responseType: 'blob',
+    })
+    saveAs(new Blob([response as any]), job.fileName)
+  },
 }
 
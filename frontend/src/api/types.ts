@@ -60,7 +60,6 @@ export interface Document {
   description?: string
   fileType: FileType
   fileSize: number
-  filePath: string
   thumbnailPath?: string
   contentType?: string
   status: DocumentStatus
@@ -163,3 +162,11 @@ export interface DocumentDistribution {
   distributeTime: string
 }
 
+// 游标分页结果，nextCursor 为空表示没有下一页
+export interface CursorPage<T> {
+  content: T[]
+  size: number
+  hasNext: boolean
+  nextCursor?: string
+  total?: number
+}
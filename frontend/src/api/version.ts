@@ -12,8 +12,32 @@ export interface CreateVersionRequest {
 export interface VersionComparisonResult {
   version1: Document
   version2: Document
-  differences: string
+  comparisonId: number
+  deltaCount: number
   hasDifferences: boolean
+  completeTime?: string
+}
+
+export type DeltaType = 'CHANGE' | 'DELETE' | 'INSERT'
+
+export interface ComparisonDelta {
+  seq: number
+  type: DeltaType
+  sourcePosition: number
+  sourceSize: number
+  targetPosition: number
+  targetSize: number
+  sourceLines: string[]
+  targetLines: string[]
+  truncated: boolean
+}
+
+export interface ComparisonDeltaQuery {
+  fromLine?: number
+  toLine?: number
+  type?: DeltaType
+  page?: number
+  size?: number
 }
 
 export const versionApi = {
@@ -38,5 +62,13 @@ export const versionApi = {
       params: { version1Id, version2Id },
     })
   },
+
+  // 分页查询对比差异
+  getDeltas: (comparisonId: number, query: ComparisonDeltaQuery) => {
+    return http.get<ApiResponse<{ content: ComparisonDelta[]; totalElements: number; totalPages: number }>>(
+      `/v1/versions/compare/${comparisonId}/deltas`,
+      { params: query }
+    )
+  },
 }
 
@@ -1,18 +1,47 @@
 import { useState } from 'react'
-import { Card, Select, Button, Space, Typography, Divider, message } from 'antd'
+import { Card, Select, Button, Space, Typography, Divider, Table, Tag, message } from 'antd'
 import { BranchesOutlined } from '@ant-design/icons'
 import { versionApi } from '../../api/version'
+import type { ComparisonDelta, DeltaType, VersionComparisonResult } from '../../api/version'
 import { documentApi } from '../../api/document'
 import type { Document } from '../../api/types'
 
-const { Title, Paragraph } = Typography
+const { Title, Text } = Typography
+
+const PAGE_SIZE = 50
+
+const deltaTypeTag: Record<DeltaType, { color: string; label: string }> = {
+  CHANGE: { color: 'orange', label: '修改' },
+  DELETE: { color: 'red', label: '删除' },
+  INSERT: { color: 'green', label: '新增' },
+}
 
 export default function VersionComparePage() {
   const [version1Id, setVersion1Id] = useState<number | undefined>()
   const [version2Id, setVersion2Id] = useState<number | undefined>()
   const [versions, setVersions] = useState<Document[]>([])
-  const [compareResult, setCompareResult] = useState<any>(null)
+  const [compareResult, setCompareResult] = useState<VersionComparisonResult | null>(null)
   const [loading, setLoading] = useState(false)
+  const [deltas, setDeltas] = useState<ComparisonDelta[]>([])
+  const [deltaTotal, setDeltaTotal] = useState(0)
+  const [deltaPage, setDeltaPage] = useState(1)
+  const [deltaType, setDeltaType] = useState<DeltaType | undefined>()
+  const [deltaLoading, setDeltaLoading] = useState(false)
+
+  const loadDeltas = async (comparisonId: number, page: number, type?: DeltaType) => {
+    setDeltaLoading(true)
+    try {
+      const res = await versionApi.getDeltas(comparisonId, { page: page - 1, size: PAGE_SIZE, type })
+      setDeltas(res.data?.content || [])
+      setDeltaTotal(res.data?.totalElements || 0)
+      setDeltaPage(page)
+    } catch (error) {
+      console.error('加载差异失败:', error)
+      message.error('加载差异失败')
+    } finally {
+      setDeltaLoading(false)
+    }
+  }
 
   const loadVersions = async (fileNumber: string) => {
     try {
@@ -37,6 +66,13 @@ export default function VersionComparePage() {
       const res = await versionApi.compare(version1Id, version2Id)
       // 后端返回格式: ApiResponse<VersionComparisonResult>，res.data 就是 VersionComparisonResult
       setCompareResult(res.data)
+      setDeltaType(undefined)
+      if (res.data?.hasDifferences) {
+        await loadDeltas(res.data.comparisonId, 1)
+      } else {
+        setDeltas([])
+        setDeltaTotal(0)
+      }
     } catch (error) {
       console.error('版本对比失败:', error)
       message.error('版本对比失败')
@@ -100,11 +136,72 @@ export default function VersionComparePage() {
             <Card>
               <Title level={4}>对比结果</Title>
               <Divider />
-              <Paragraph>
-                <pre style={{ whiteSpace: 'pre-wrap', background: '#f5f5f5', padding: 16 }}>
-                  {compareResult.differences}
-                </pre>
-              </Paragraph>
+              {compareResult.hasDifferences ? (
+                <Space direction="vertical" style={{ width: '100%' }}>
+                  <Space>
+                    <Text>共 {compareResult.deltaCount} 处差异</Text>
+                    <Select
+                      style={{ width: 120 }}
+                      placeholder="差异类型"
+                      allowClear
+                      value={deltaType}
+                      onChange={(value?: DeltaType) => {
+                        setDeltaType(value)
+                        loadDeltas(compareResult.comparisonId, 1, value)
+                      }}
+                      options={(Object.keys(deltaTypeTag) as DeltaType[]).map((type) => ({
+                        value: type,
+                        label: deltaTypeTag[type].label,
+                      }))}
+                    />
+                  </Space>
+                  <Table<ComparisonDelta>
+                    rowKey="seq"
+                    size="small"
+                    loading={deltaLoading}
+                    dataSource={deltas}
+                    pagination={{
+                      current: deltaPage,
+                      pageSize: PAGE_SIZE,
+                      total: deltaTotal,
+                      showSizeChanger: false,
+                      onChange: (page) => loadDeltas(compareResult.comparisonId, page, deltaType),
+                    }}
+                    columns={[
+                      {
+                        title: '位置',
+                        width: 100,
+                        render: (_, d) => `第 ${d.sourcePosition + 1} 行`,
+                      },
+                      {
+                        title: '类型',
+                        width: 80,
+                        render: (_, d) => <Tag color={deltaTypeTag[d.type].color}>{deltaTypeTag[d.type].label}</Tag>,
+                      },
+                      {
+                        title: '原文',
+                        render: (_, d) => (
+                          <pre style={{ whiteSpace: 'pre-wrap', margin: 0 }}>
+                            {d.sourceLines.join('\n')}
+                            {d.truncated && d.sourceSize > d.sourceLines.length ? '\n…' : ''}
+                          </pre>
+                        ),
+                      },
+                      {
+                        title: '修改后',
+                        render: (_, d) => (
+                          <pre style={{ whiteSpace: 'pre-wrap', margin: 0 }}>
+                            {d.targetLines.join('\n')}
+                            {d.truncated && d.targetSize > d.targetLines.length ? '\n…' : ''}
+                          </pre>
+                        ),
+                      },
+                    ]}
+                  />
+                </Space>
+              ) : (
+                <Text>两个版本内容相同</Text>
+              )}
             </Card>
           )}
         </Space>
@@ -3,8 +3,10 @@ package com.zsx.cstfilemanage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CstFileManageApplication {
 
     public static void main(String[] args) {
@@ -6,7 +6,9 @@ import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
 import com.zsx.cstfilemanage.common.util.JsonUtil;
 import com.zsx.cstfilemanage.domain.cenum.ApprovalStatus;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.ApprovalFlow;
 import com.zsx.cstfilemanage.domain.model.entity.ApprovalRecord;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
@@ -18,6 +20,7 @@ import com.zsx.cstfilemanage.domain.repository.UserRepository;
 import com.zsx.cstfilemanage.domain.repository.UserRoleRepository;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,6 +41,7 @@ public class ApprovalService {
     private final UserRepository userRepository;
     private final UserRoleRepository userRoleRepository;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
 
     public ApprovalService(DocumentRepository documentRepository,
@@ -45,13 +49,15 @@ public class ApprovalService {
                            ApprovalRecordRepository approvalRecordRepository,
                            UserRepository userRepository,
                            UserRoleRepository userRoleRepository,
-                           NotificationService notificationService) {
+                           NotificationService notificationService,
+                           ApplicationEventPublisher eventPublisher) {
         this.documentRepository = documentRepository;
         this.approvalFlowRepository = approvalFlowRepository;
         this.approvalRecordRepository = approvalRecordRepository;
         this.userRepository = userRepository;
         this.userRoleRepository = userRoleRepository;
         this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -125,6 +131,7 @@ public class ApprovalService {
         document.setStatus(DocumentStatus.PENDING_APPROVAL);
         document.setCurrentApprovalFlowId(approvalFlow.getId());
         documentRepository.save(document);
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.STATUS_CHANGED));
         log.info("提交审批成功 - 文档ID: {}, 审批流程ID: {}, 审批环节数: {}",
                 documentId, approvalFlow.getId(), steps.size());
         log.debug("=== ApprovalService.submitForApproval 结束 ===");
@@ -178,6 +185,8 @@ public class ApprovalService {
                 // 所有环节都已完成，审批通过
                 log.info("审批文档 - 所有环节已完成，审批通过");
                 document.setStatus(DocumentStatus.APPROVED);
+                // 预热预览，先于通知发出
+                eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.APPROVED));
                 // 通知上传人审批通过
                 User uploader = userRepository.findById(document.getCreateUserId())
                         .orElse(null);
@@ -219,6 +228,9 @@ public class ApprovalService {
         }
 
         documentRepository.save(document);
+        if (document.getStatus() != DocumentStatus.APPROVED) {
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.STATUS_CHANGED));
+        }
         log.info("审批文档成功 - 文档ID: {}, 最终状态: {}", documentId, document.getStatus());
         log.debug("=== ApprovalService.approveDocument 结束 ===");
     }
@@ -6,6 +6,7 @@ import com.zsx.cstfilemanage.domain.model.entity.User;
 import com.zsx.cstfilemanage.domain.repository.UserRepository;
 import com.zsx.cstfilemanage.infrastructure.security.JwtTokenProvider;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -19,13 +20,22 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final PermissionService permissionService;
+
+    /**
+     * Token 是否携带权限（携带时权限检查不访问数据库和缓存，角色变更后旧 Token 失效需重新登录）
+     */
+    @Value("${jwt.embed-permissions:false}")
+    private boolean embedPermissions;
 
     public AuthService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
-                       JwtTokenProvider tokenProvider) {
+                       JwtTokenProvider tokenProvider,
+                       PermissionService permissionService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenProvider = tokenProvider;
+        this.permissionService = permissionService;
     }
 
     /**
@@ -53,7 +63,12 @@ public class AuthService {
 
         log.debug("用户登录 - 密码验证通过，开始生成Token");
         // 生成Token
-        String token = tokenProvider.generateToken(user.getId(), user.getUsername(), user.getRealName());
+        PermissionService.TokenPermissions tokenPermissions = embedPermissions
+                ? permissionService.getTokenPermissions(user.getId()) : null;
+        String token = tokenPermissions != null
+                ? tokenProvider.generateToken(user.getId(), user.getUsername(), user.getRealName(),
+                        tokenPermissions.getPermissions(), tokenPermissions.getVersion())
+                : tokenProvider.generateToken(user.getId(), user.getUsername(), user.getRealName());
         log.debug("用户登录 - Token生成成功");
 
         LoginResponse response = new LoginResponse();
@@ -0,0 +1,104 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.storage.StorageObject;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * 内容寻址 blob 服务
+ * 相同内容的文件只保存一份，文档通过 filePath 引用，引用计数即引用该路径的文档数。
+ * 上传流程不删除 blob（计数与删除之间可能有并发上传复用同一文件），
+ * 未被引用的 blob 由定时任务在宽限期后回收
+ */
+@Service
+@Slf4j
+public class BlobStoreService {
+
+    private final DocumentRepository documentRepository;
+    private final LocalFileStore fileStore;
+
+    /**
+     * blob 未被引用且超过该时间未被复用才回收，须大于上传会话有效期
+     */
+    @Value("${upload.blob-gc-grace-hours:48}")
+    private long gcGraceHours;
+
+    public BlobStoreService(DocumentRepository documentRepository, LocalFileStore fileStore) {
+        this.documentRepository = documentRepository;
+        this.fileStore = fileStore;
+    }
+
+    /**
+     * 按内容摘要查找已存在的 blob（用于秒传）
+     */
+    public Optional<Document> findByContentHash(String sha256) {
+        if (sha256 == null || sha256.isBlank()) {
+            return Optional.empty();
+        }
+        return documentRepository.findFirstByContentHash(sha256.toLowerCase())
+                .filter(document -> Files.exists(fileStore.resolve(document.getFilePath())));
+    }
+
+    /**
+     * 按内容摘要查找当前用户自己上传过的 blob（单次请求的秒传无法验证持有证明，只在本人文档范围内去重）
+     */
+    public Optional<Document> findOwnedByContentHash(String sha256, Long userId) {
+        if (sha256 == null || sha256.isBlank() || userId == null) {
+            return Optional.empty();
+        }
+        return documentRepository.findFirstByContentHashAndCompilerId(sha256.toLowerCase(), userId)
+                .filter(document -> Files.exists(fileStore.resolve(document.getFilePath())));
+    }
+
+    /**
+     * 统一到已被文档引用的 blob：同一内容已以其他路径保存时复用旧路径，新文件由回收任务清理
+     */
+    public StorageObject canonicalize(StorageObject stored) {
+        if (stored.isDeduplicated()) {
+            return stored;
+        }
+        return findByContentHash(stored.getSha256())
+                .filter(existing -> !existing.getFilePath().equals(stored.getObjectKey()))
+                .map(existing -> {
+                    log.info("复用已存在的文件 - sha256: {}, objectKey: {}", stored.getSha256(), existing.getFilePath());
+                    return new StorageObject(existing.getFilePath(), stored.getSize(), stored.getSha256(), true);
+                })
+                .orElse(stored);
+    }
+
+    /**
+     * 回收未被引用的 blob
+     * 只处理超过宽限期未修改的文件；删除前在文件存储的锁内再次确认修改时间，
+     * 期间被并发上传复用（修改时间已刷新）的 blob 不会被删除
+     */
+    @Scheduled(cron = "${upload.blob-gc-cron:0 40 4 * * ?}")
+    public void collectGarbage() {
+        Instant modifiedBefore = Instant.now().minus(Duration.ofHours(gcGraceHours));
+        int deleted = 0;
+        try {
+            for (String objectKey : fileStore.listBlobs(modifiedBefore)) {
+                if (documentRepository.countByFilePath(objectKey) == 0
+                        && fileStore.deleteBlobIfUnmodifiedSince(objectKey, modifiedBefore)) {
+                    log.info("删除未被引用的文件 - objectKey: {}", objectKey);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("回收未被引用的文件失败: {}", e.getMessage(), e);
+        }
+        if (deleted > 0) {
+            log.info("已回收未被引用的文件 - 文件数: {}", deleted);
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
 import com.zsx.cstfilemanage.domain.model.entity.DocumentDistribution;
 import com.zsx.cstfilemanage.domain.model.entity.DistributionReceiver;
@@ -17,13 +19,20 @@ import com.zsx.cstfilemanage.domain.repository.UserGroupMemberRepository;
 import com.zsx.cstfilemanage.application.service.NotificationService;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 文件下发服务
@@ -32,31 +41,53 @@ import java.util.Map;
 @Slf4j
 public class DistributionService {
 
+    private static final String RECEIVER_INSERT_PREFIX =
+            "INSERT INTO distribution_receivers (distribution_id, receiver_id, receiver_name, viewed, downloaded) VALUES ";
+    private static final String RECEIVER_ROW_PLACEHOLDERS = "(?, ?, ?, 0, 0)";
+
+    /**
+     * IN 查询单次的最大参数个数
+     */
+    private static final int MAX_IN_SIZE = 1000;
+
     private final DocumentRepository documentRepository;
     private final DocumentDistributionRepository distributionRepository;
     private final DistributionReceiverRepository receiverRepository;
     private final UserRepository userRepository;
     private final UserGroupMemberRepository userGroupMemberRepository;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
 
+    /**
+     * 接收人记录单条多行 INSERT 的最大行数
+     */
+    @Value("${distribution.insert-batch-size:1000}")
+    private int insertBatchSize;
+
     public DistributionService(DocumentRepository documentRepository,
                               DocumentDistributionRepository distributionRepository,
                               DistributionReceiverRepository receiverRepository,
                               UserRepository userRepository,
                               UserGroupMemberRepository userGroupMemberRepository,
-                              NotificationService notificationService) {
+                              NotificationService notificationService,
+                              ApplicationEventPublisher eventPublisher,
+                              JdbcTemplate jdbcTemplate) {
         this.documentRepository = documentRepository;
         this.distributionRepository = distributionRepository;
         this.receiverRepository = receiverRepository;
         this.userRepository = userRepository;
         this.userGroupMemberRepository = userGroupMemberRepository;
         this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
         this.objectMapper = new ObjectMapper();
     }
 
     /**
      * 下发文件
+     * 接收人只解析一次（按ID去重、批量加载），每个文档的接收人记录用多行 INSERT 写入
      */
     @Transactional
     public void distributeDocuments(List<Long> documentIds,
@@ -74,21 +105,39 @@ public class DistributionService {
                 .orElseThrow(() -> new BizException(ErrorCode.USER_NOT_FOUND));
 
         // 验证文档状态
-        for (Long documentId : documentIds) {
-            Document document = documentRepository.findById(documentId)
-                    .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
-            
+        Set<Long> distinctDocumentIds = new LinkedHashSet<>(documentIds);
+        Map<Long, Document> documents = new LinkedHashMap<>();
+        for (Document document : documentRepository.findAllById(distinctDocumentIds)) {
+            documents.put(document.getId(), document);
+        }
+        for (Long documentId : distinctDocumentIds) {
+            Document document = documents.get(documentId);
+            if (document == null) {
+                throw new BizException(ErrorCode.DOCUMENT_NOT_FOUND);
+            }
+
             if (document.getStatus() != DocumentStatus.APPROVED) {
                 throw new BizException(ErrorCode.DOCUMENT_NOT_APPROVED);
             }
-            
+
             if (!document.getIsCurrentVersion()) {
                 throw new BizException(ErrorCode.NOT_CURRENT_VERSION);
             }
         }
 
+        String targetIdsJson;
+        String targetNamesJson;
+        try {
+            targetIdsJson = objectMapper.writeValueAsString(targetIds);
+            targetNamesJson = objectMapper.writeValueAsString(targetNames);
+        } catch (Exception e) {
+            throw new BizException(ErrorCode.DISTRIBUTION_TARGET_ERROR);
+        }
+
+        List<User> receivers = getReceivers(targetType, targetIds);
+
         // 创建下发记录
-        for (Long documentId : documentIds) {
+        for (Long documentId : distinctDocumentIds) {
             DocumentDistribution distribution = new DocumentDistribution();
             distribution.setDocumentId(documentId);
             distribution.setDistributorId(distributorId);
@@ -96,37 +145,22 @@ public class DistributionService {
             distribution.setDistributionNote(distributionNote);
             distribution.setEffectiveDate(effectiveDate);
             distribution.setTargetType(targetType);
-            
-            try {
-                distribution.setTargetIds(objectMapper.writeValueAsString(targetIds));
-                distribution.setTargetNames(objectMapper.writeValueAsString(targetNames));
-            } catch (Exception e) {
-                throw new BizException(ErrorCode.DISTRIBUTION_TARGET_ERROR);
-            }
+            distribution.setTargetIds(targetIdsJson);
+            distribution.setTargetNames(targetNamesJson);
 
             distribution = distributionRepository.save(distribution);
 
             // 创建接收人记录
-            List<Long> receiverIds = getReceiverIds(targetType, targetIds);
-            List<User> receivers = new ArrayList<>();
-            for (Long receiverId : receiverIds) {
-                User receiver = userRepository.findById(receiverId)
-                        .orElseThrow(() -> new BizException(ErrorCode.USER_NOT_FOUND));
-                
-                DistributionReceiver receiverRecord = new DistributionReceiver();
-                receiverRecord.setDistributionId(distribution.getId());
-                receiverRecord.setReceiverId(receiverId);
-                receiverRecord.setReceiverName(receiver.getRealName());
-                receiverRepository.save(receiverRecord);
-                receivers.add(receiver);
-            }
-            
+            insertReceivers(distribution.getId(), receivers);
+
+            // 预热预览，先于通知发出
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.DISTRIBUTED));
+
             // 发送下发通知
-            Document doc = documentRepository.findById(documentId).orElse(null);
-            if (doc != null) {
-                notificationService.sendDistributionNotification(receivers, doc, distributor.getRealName());
-            }
+            notificationService.sendDistributionNotification(receivers, documents.get(documentId), distributor.getRealName());
         }
+
+        log.info("文件下发完成 - 文档数: {}, 接收人数: {}", distinctDocumentIds.size(), receivers.size());
     }
 
     /**
@@ -145,6 +179,7 @@ public class DistributionService {
             
             document.setStatus(DocumentStatus.RECALLED);
             documentRepository.save(document);
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.STATUS_CHANGED));
         }
     }
 
@@ -164,6 +199,7 @@ public class DistributionService {
             
             document.setStatus(DocumentStatus.OBSOLETE);
             documentRepository.save(document);
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangeType.STATUS_CHANGED));
         }
     }
 
@@ -210,35 +246,91 @@ public class DistributionService {
     }
 
     /**
-     * 获取接收人ID列表
+     * 解析接收人（去重，保持解析顺序）
      */
-    private List<Long> getReceiverIds(String targetType, List<Long> targetIds) {
-        List<Long> receiverIds = new ArrayList<>();
-        
+    private List<User> getReceivers(String targetType, List<Long> targetIds) {
+        Set<Long> distinctTargetIds = new LinkedHashSet<>(targetIds);
+
         switch (targetType) {
             case "USER":
-                receiverIds.addAll(targetIds);
-                break;
+                return loadUsers(distinctTargetIds);
             case "DEPARTMENT":
                 // 查询部门下的所有用户
-                for (Long deptId : targetIds) {
-                    List<User> users = userRepository.findByDepartmentId(deptId);
-                    users.forEach(user -> receiverIds.add(user.getId()));
+                Map<Long, User> users = new LinkedHashMap<>();
+                for (List<Long> chunk : chunks(distinctTargetIds)) {
+                    for (User user : userRepository.findByDepartmentIdIn(chunk)) {
+                        users.putIfAbsent(user.getId(), user);
+                    }
                 }
-                break;
+                return new ArrayList<>(users.values());
             case "POSITION":
                 // TODO: 根据岗位查询用户（需要添加岗位字段到User实体）
-                break;
+                return List.of();
             case "USER_GROUP":
                 // 根据用户组查询用户
-                for (Long groupId : targetIds) {
-                    List<Long> userIds = userGroupMemberRepository.findUserIdsByGroupId(groupId);
-                    receiverIds.addAll(userIds);
+                Set<Long> userIds = new LinkedHashSet<>();
+                for (List<Long> chunk : chunks(distinctTargetIds)) {
+                    userIds.addAll(userGroupMemberRepository.findUserIdsByGroupIds(chunk));
                 }
-                break;
+                return loadUsers(userIds);
+            default:
+                return List.of();
+        }
+    }
+
+    /**
+     * 批量加载用户，任一用户不存在时报错
+     */
+    private List<User> loadUsers(Set<Long> userIds) {
+        Map<Long, User> found = new LinkedHashMap<>();
+        for (List<Long> chunk : chunks(userIds)) {
+            for (User user : userRepository.findAllById(chunk)) {
+                found.put(user.getId(), user);
+            }
+        }
+        List<User> users = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            User user = found.get(userId);
+            if (user == null) {
+                throw new BizException(ErrorCode.USER_NOT_FOUND);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * 多行 INSERT 写入接收人记录，每 insertBatchSize 行一条语句
+     */
+    private void insertReceivers(Long distributionId, List<User> receivers) {
+        for (int from = 0; from < receivers.size(); from += insertBatchSize) {
+            List<User> batch = receivers.subList(from, Math.min(receivers.size(), from + insertBatchSize));
+            StringBuilder sql = new StringBuilder(RECEIVER_INSERT_PREFIX.length()
+                    + batch.size() * (RECEIVER_ROW_PLACEHOLDERS.length() + 2))
+                    .append(RECEIVER_INSERT_PREFIX);
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(RECEIVER_ROW_PLACEHOLDERS);
+            }
+            jdbcTemplate.update(sql.toString(), ps -> {
+                int index = 1;
+                for (User receiver : batch) {
+                    ps.setLong(index++, distributionId);
+                    ps.setLong(index++, receiver.getId());
+                    ps.setString(index++, receiver.getRealName());
+                }
+            });
         }
-        
-        return receiverIds;
     }
-}
 
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IN_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + MAX_IN_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,244 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.infrastructure.search.DocumentIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 全文索引维护服务
+ * 文档上传、创建新版本、状态变更的事务提交后把文档ID放入队列，由单个后台线程批量写入索引并提交；
+ * 索引未完整构建时（首次部署或索引损坏）启动后自动全量重建，重建完成前检索回退到数据库。
+ */
+@Service
+@Slf4j
+public class DocumentIndexService implements SmartLifecycle {
+
+    private final DocumentIndex documentIndex;
+    private final DocumentRepository documentRepository;
+    private final TextExtractionService textExtractionService;
+    private final BlockingQueue<Long> queue;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * 单批写入的最大文档数，一批提交一次
+     */
+    @Value("${search.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 高亮用的正文前缀长度（字符），存储在索引中；0 表示不存储，正文不做高亮且只提取一次文本
+     */
+    @Value("${search.content-preview-chars:10000}")
+    private int contentPreviewChars;
+
+    @Value("${search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    public DocumentIndexService(DocumentIndex documentIndex,
+                                DocumentRepository documentRepository,
+                                TextExtractionService textExtractionService,
+                                @Value("${search.queue-capacity:10000}") int queueCapacity) {
+        this.documentIndex = documentIndex;
+        this.documentRepository = documentRepository;
+        this.textExtractionService = textExtractionService;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 文档变更事务提交后排队更新索引
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getChangeType() == DocumentChangeType.DISTRIBUTED) {
+            return;
+        }
+        submit(event.getDocumentId());
+    }
+
+    /**
+     * 索引未构建时启动后全量重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup && !documentIndex.isBuilt()) {
+            log.info("全文索引尚未构建，开始后台全量重建");
+            rebuildAsync();
+        }
+    }
+
+    /**
+     * 排队更新单个文档的索引
+     */
+    public void submit(Long documentId) {
+        if (!queue.offer(documentId)) {
+            log.warn("索引队列已满，跳过 - 文档ID: {}，可通过重建索引补齐", documentId);
+        }
+    }
+
+    /**
+     * 后台全量重建
+     *
+     * @return 是否已开始（已有重建在进行时返回 false）
+     */
+    public boolean rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("全文索引重建失败", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    private void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        documentIndex.deleteAll();
+        long count = 0;
+        long lastId = 0;
+        List<Document> documents;
+        do {
+            // 按主键游标分批读取，每批都走主键索引，不随已处理数量变慢
+            documents = documentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize));
+            for (Document document : documents) {
+                indexDocument(document);
+                lastId = document.getId();
+                count++;
+            }
+            documentIndex.refresh();
+            log.debug("全文索引重建进度 - 已处理: {}, 最后文档ID: {}", count, lastId);
+        } while (documents.size() == batchSize && running);
+        if (!running) {
+            return;
+        }
+        documentIndex.commit(true);
+        log.info("全文索引重建完成 - 文档数: {}, 耗时: {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    private void runWorker() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Long documentId : batch) {
+                    Document document = documentRepository.findById(documentId).orElse(null);
+                    if (document == null) {
+                        documentIndex.delete(documentId);
+                    } else {
+                        indexDocument(document);
+                    }
+                }
+                documentIndex.commit(false);
+                log.debug("全文索引已更新 - 文档数: {}", batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("全文索引更新失败 - 文档ID: {}", batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入单个文档；文本提取失败时只索引元数据
+     */
+    private void indexDocument(Document document) throws IOException {
+        if (!textExtractionService.isSupported(document)) {
+            documentIndex.index(document, null, null);
+            return;
+        }
+        String preview = null;
+        if (contentPreviewChars > 0) {
+            try (BufferedReader reader = textExtractionService.openReader(document)) {
+                char[] buffer = new char[contentPreviewChars];
+                int length = 0;
+                int n;
+                while (length < buffer.length && (n = reader.read(buffer, length, buffer.length - length)) != -1) {
+                    length += n;
+                }
+                preview = new String(buffer, 0, length);
+            } catch (IOException | RuntimeException e) {
+                log.warn("提取文本失败，仅索引元数据 - 文档ID: {}, 错误: {}", document.getId(), e.getMessage());
+                documentIndex.index(document, null, null);
+                return;
+            }
+        }
+        BufferedReader content;
+        try {
+            content = textExtractionService.openReader(document);
+        } catch (IOException | RuntimeException e) {
+            log.warn("提取文本失败，仅索引元数据 - 文档ID: {}, 错误: {}", document.getId(), e.getMessage());
+            documentIndex.index(document, null, null);
+            return;
+        }
+        try (content) {
+            documentIndex.index(document, content, preview);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::runWorker, "search-index");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
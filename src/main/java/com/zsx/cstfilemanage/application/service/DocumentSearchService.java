@@ -1,36 +1,241 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.zsx.cstfilemanage.common.util.PageCursor;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.model.entity.User;
 import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.repository.UserRepository;
+import com.zsx.cstfilemanage.infrastructure.search.DocumentIndex;
+import com.zsx.cstfilemanage.infrastructure.search.DocumentQuery;
+import com.zsx.cstfilemanage.infrastructure.search.FacetValue;
+import com.zsx.cstfilemanage.infrastructure.search.SearchHit;
+import com.zsx.cstfilemanage.infrastructure.search.SearchResult;
+import com.zsx.cstfilemanage.interfaces.http.response.CursorPageResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * 文档搜索服务
+ * 优先使用全文索引（相关度排序、高亮）；索引未构建完成或检索失败时回退到数据库查询
  */
 @Service
+@Slf4j
 public class DocumentSearchService {
 
+    /**
+     * 游标分页单页条数上限
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
     private final DocumentRepository documentRepository;
+    private final DocumentIndex documentIndex;
+    private final UserRepository userRepository;
 
-    public DocumentSearchService(DocumentRepository documentRepository) {
+    /**
+     * 每个分面维度返回的取值数量
+     */
+    @Value("${search.facet-size:20}")
+    private int facetSize;
+
+    public DocumentSearchService(DocumentRepository documentRepository,
+                                 DocumentIndex documentIndex,
+                                 UserRepository userRepository) {
         this.documentRepository = documentRepository;
+        this.userRepository = userRepository;
+        this.documentIndex = documentIndex;
     }
 
     /**
-     * 搜索文档
+     * 搜索文档（数据库查询，keyword 只匹配文件编号、文件名和描述）
      */
-    public Page<Document> searchDocuments(String fileNumber,
+    public Page<Document> searchDocuments(String keyword,
+                                        String fileNumber,
                                         String fileName,
                                         String productModel,
                                         DocumentStatus status,
                                         Long compilerId,
                                         Pageable pageable) {
         return documentRepository.searchDocuments(
-                fileNumber, fileName, productModel, status, compilerId, pageable
+                keyword, fileNumber, fileName, productModel, status, compilerId, pageable
         );
     }
-}
 
+    /**
+     * 搜索文档（游标分页）
+     * 按创建时间倒序，cursor 为上一页返回的 nextCursor；withTotal 为 true 时额外执行一次 COUNT
+     */
+    public CursorPageResponse<Document> seekDocuments(String fileNumber,
+                                                      String fileName,
+                                                      String productModel,
+                                                      DocumentStatus status,
+                                                      Long compilerId,
+                                                      String cursor,
+                                                      int size,
+                                                      boolean withTotal) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        List<Document> rows = documentRepository.seekDocuments(
+                fileNumber, fileName, productModel, status, compilerId,
+                position != null ? position.getCreateTime() : null,
+                position != null ? position.getId() : null,
+                PageRequest.of(0, limit + 1)
+        );
+        Long total = withTotal
+                ? documentRepository.countDocuments(fileNumber, fileName, productModel, status, compilerId)
+                : null;
+        return CursorPageResponse.of(rows, limit,
+                document -> new PageCursor(document.getCreateTime(), document.getId()), total);
+    }
+
+    /**
+     * 全文检索，命中结果按相关度排序并附带高亮片段
+     */
+    public Page<DocumentHit> fullTextSearch(DocumentQuery query, Pageable pageable) {
+        if (documentIndex.isBuilt()) {
+            try {
+                return searchIndex(query, pageable);
+            } catch (IOException | RuntimeException e) {
+                log.error("全文检索失败，回退到数据库查询", e);
+            }
+        }
+        return searchDocuments(query.getKeyword(), query.getFileNumber(), query.getFileName(),
+                query.getProductModel(), query.getStatus(), query.getCompilerId(), pageable)
+                .map(document -> new DocumentHit(document, null, Map.of()));
+    }
+
+    /**
+     * 分面检索：返回当前页命中结果，以及全部命中文档按 状态、文件类型、产品型号、编制人 的数量统计
+     * 走全文索引时分面与命中在一次遍历中统计；回退数据库时用一条分组查询统计
+     */
+    public FacetedHits facetedSearch(DocumentQuery query, Pageable pageable) {
+        if (documentIndex.isBuilt()) {
+            try {
+                SearchResult result = documentIndex.search(
+                        query, (int) pageable.getOffset(), pageable.getPageSize(), facetSize);
+                return new FacetedHits(toPage(result, pageable), labelCompilers(result.getFacets()));
+            } catch (IOException | RuntimeException e) {
+                log.error("全文分面检索失败，回退到数据库查询", e);
+            }
+        }
+        Page<DocumentHit> hits = searchDocuments(query.getKeyword(), query.getFileNumber(), query.getFileName(),
+                query.getProductModel(), query.getStatus(), query.getCompilerId(), pageable)
+                .map(document -> new DocumentHit(document, null, Map.of()));
+        List<Object[]> rows = documentRepository.countFacets(query.getKeyword(), query.getFileNumber(), query.getFileName(),
+                query.getProductModel(), query.getStatus(), query.getCompilerId());
+        return new FacetedHits(hits, labelCompilers(aggregateFacets(rows)));
+    }
+
+    /**
+     * 汇总分组计数行为各维度的取值数量
+     */
+    private Map<String, List<FacetValue>> aggregateFacets(List<Object[]> rows) {
+        String[] dims = {DocumentIndex.FACET_STATUS, DocumentIndex.FACET_FILE_TYPE,
+                DocumentIndex.FACET_PRODUCT_MODEL, DocumentIndex.FACET_COMPILER};
+        List<Map<String, Long>> counts = new ArrayList<>(dims.length);
+        for (int i = 0; i < dims.length; i++) {
+            counts.add(new HashMap<>());
+        }
+        for (Object[] row : rows) {
+            long count = ((Number) row[dims.length]).longValue();
+            for (int i = 0; i < dims.length; i++) {
+                Object value = row[i];
+                if (value == null || value.toString().isEmpty()) {
+                    continue;
+                }
+                String key = value instanceof Enum<?> e ? e.name() : value.toString();
+                counts.get(i).merge(key, count, Long::sum);
+            }
+        }
+        Map<String, List<FacetValue>> facets = new LinkedHashMap<>();
+        for (int i = 0; i < dims.length; i++) {
+            facets.put(dims[i], counts.get(i).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(facetSize)
+                    .map(entry -> new FacetValue(entry.getKey(), entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toCollection(ArrayList::new)));
+        }
+        return facets;
+    }
+
+    /**
+     * 编制人分面的显示名称替换为用户姓名
+     */
+    private Map<String, List<FacetValue>> labelCompilers(Map<String, List<FacetValue>> facets) {
+        List<FacetValue> compilers = facets.getOrDefault(DocumentIndex.FACET_COMPILER, List.of());
+        if (compilers.isEmpty()) {
+            return facets;
+        }
+        List<Long> ids = compilers.stream().map(facet -> Long.valueOf(facet.getValue())).toList();
+        Map<Long, String> names = new HashMap<>();
+        for (User user : userRepository.findAllById(ids)) {
+            names.put(user.getId(), user.getRealName() != null ? user.getRealName() : user.getUsername());
+        }
+        compilers.forEach(facet -> facet.setLabel(names.getOrDefault(Long.valueOf(facet.getValue()), facet.getValue())));
+        return facets;
+    }
+
+    private Page<DocumentHit> searchIndex(DocumentQuery query, Pageable pageable) throws IOException {
+        return toPage(documentIndex.search(query, (int) pageable.getOffset(), pageable.getPageSize()), pageable);
+    }
+
+    private Page<DocumentHit> toPage(SearchResult result, Pageable pageable) {
+        List<Long> ids = result.getHits().stream().map(SearchHit::getDocumentId).toList();
+        Map<Long, Document> documents = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+
+        List<DocumentHit> hits = new ArrayList<>(ids.size());
+        for (SearchHit hit : result.getHits()) {
+            Document document = documents.get(hit.getDocumentId());
+            // 已删除但索引尚未更新的文档直接跳过
+            if (document != null) {
+                hits.add(new DocumentHit(document, hit.getScore(), hit.getHighlights()));
+            }
+        }
+        return new PageImpl<>(hits, pageable, result.getTotal());
+    }
+
+    /**
+     * 检索命中的文档
+     */
+    @Data
+    @AllArgsConstructor
+    public static class DocumentHit {
+        private Document document;
+        /**
+         * 相关度得分，数据库查询时为空
+         */
+        private Float score;
+        private Map<String, String> highlights;
+    }
+
+    /**
+     * 分面检索结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class FacetedHits {
+        private Page<DocumentHit> hits;
+        /**
+         * 维度 -> 按数量倒序的取值
+         */
+        private Map<String, List<FacetValue>> facets;
+    }
+}
@@ -2,27 +2,34 @@ package com.zsx.cstfilemanage.application.service;
 
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
 import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
+import com.zsx.cstfilemanage.domain.storage.DownloadToken;
 import com.zsx.cstfilemanage.domain.storage.OcsClient;
+import com.zsx.cstfilemanage.domain.storage.StorageObject;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.infrastructure.storage.ContentTooLargeException;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.Objects;
 
 /**
  * 文档服务
@@ -34,16 +41,34 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final OcsClient ocsClient;
     private final FileTypeValidator fileTypeValidator;
+    private final LocalFileStore fileStore;
+    private final BlobStoreService blobStoreService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    @Value("${ocs.local.download-expire-seconds:600}")
+    private int downloadUrlExpireSeconds;
+
+    /**
+     * 单个文件大小上限（字节）
+     */
+    @Value("${upload.max-file-size:2147483648}")
+    private long maxFileSize;
 
     public DocumentService(DocumentRepository documentRepository,
                           OcsClient ocsClient,
-                          FileTypeValidator fileTypeValidator) {
+                          FileTypeValidator fileTypeValidator,
+                          LocalFileStore fileStore,
+                          BlobStoreService blobStoreService,
+                          UploadSessionRepository uploadSessionRepository,
+                          ApplicationEventPublisher eventPublisher) {
         this.documentRepository = documentRepository;
         this.ocsClient = ocsClient;
         this.fileTypeValidator = fileTypeValidator;
+        this.fileStore = fileStore;
+        this.blobStoreService = blobStoreService;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -56,25 +81,165 @@ public class DocumentService {
                                    String productModel,
                                    String version,
                                    LocalDateTime compileDate,
-                                   String description) throws IOException {
+                                   String description,
+                                   String checksum) throws IOException {
         log.debug("=== DocumentService.uploadDocument 开始 ===");
         log.info("上传文档 - 文件编号: {}, 文件名称: {}, 版本: {}, 文件大小: {} bytes", 
                 fileNumber, fileName, version, file.getSize());
-        
-        // 获取当前用户
+
+        try (InputStream in = file.getInputStream()) {
+            Document saved = doUpload(in, file.getOriginalFilename(), file.getContentType(),
+                    fileNumber, fileName, productModel, version, compileDate, description, checksum);
+            log.debug("=== DocumentService.uploadDocument 结束 ===");
+            return saved;
+        }
+    }
+
+    /**
+     * 流式上传文档
+     * 直接读取请求体，不经过 multipart 缓冲；写文件期间不持有数据库事务。
+     * 提供 checksum 且内容已存在时不读取请求体（秒传）。
+     * 请求体不受 multipart 大小限制，按 upload.max-file-size 校验 Content-Length，写盘时再按实际字节数限制
+     *
+     * @param contentLength 请求头 Content-Length，未知时为 -1
+     */
+    public Document uploadDocumentStream(InputStream in,
+                                         long contentLength,
+                                         String originalFilename,
+                                         String contentType,
+                                         String fileNumber,
+                                         String fileName,
+                                         String productModel,
+                                         String version,
+                                         LocalDateTime compileDate,
+                                         String description,
+                                         String checksum) throws IOException {
+        log.debug("=== DocumentService.uploadDocumentStream 开始 ===");
+        log.info("流式上传文档 - 文件编号: {}, 文件名称: {}, 版本: {}, 原始文件名: {}",
+                fileNumber, fileName, version, originalFilename);
+        if (contentLength > maxFileSize) {
+            log.warn("流式上传文档失败 - 文件过大: {} bytes, 上限: {} bytes", contentLength, maxFileSize);
+            throw new BizException(ErrorCode.FILE_TOO_LARGE);
+        }
+
+        Document saved = doUpload(in, originalFilename, contentType,
+                fileNumber, fileName, productModel, version, compileDate, description, checksum);
+        log.debug("=== DocumentService.uploadDocumentStream 结束 ===");
+        return saved;
+    }
+
+    /**
+     * 由已完成的上传会话（分片、直传、秒传）创建文档
+     * 会话须属于当前用户且已完成；文件已按内容摘要落盘，不再读取或复制数据。
+     * 创建成功后会话标记为已使用，同一上传不能创建多个文档
+     */
+    public Document createDocumentFromUpload(String uploadId,
+                                             String fileNumber,
+                                             String fileName,
+                                             String productModel,
+                                             String version,
+                                             LocalDateTime compileDate,
+                                             String description) {
+        log.info("由上传会话创建文档 - uploadId: {}, 文件编号: {}, 文件名称: {}, 版本: {}",
+                uploadId, fileNumber, fileName, version);
+        Long userId = requireUser();
+        UploadSession session = loadOwnedSession(uploadId, userId);
+        if (session.getStatus() == UploadStatus.CONSUMED) {
+            throw new BizException(ErrorCode.UPLOAD_ALREADY_CONSUMED);
+        }
+        if (session.getStatus() != UploadStatus.COMPLETED) {
+            throw new BizException(ErrorCode.UPLOAD_NOT_COMPLETE, "上传尚未完成");
+        }
+
+        // 与完成上传共用会话锁，同一上传的并发请求只有一个能创建文档
+        if (!uploadSessionRepository.tryLock(uploadId)) {
+            throw new BizException(ErrorCode.UPLOAD_IN_PROGRESS);
+        }
+        try {
+            session = loadOwnedSession(uploadId, userId);
+            if (session.getStatus() != UploadStatus.COMPLETED) {
+                throw new BizException(ErrorCode.UPLOAD_ALREADY_CONSUMED);
+            }
+            FileType fileType = validate(session.getFileName(), fileNumber);
+            if (!Files.exists(fileStore.resolve(session.getObjectKey()))) {
+                log.error("由上传会话创建文档失败 - 文件不存在: {}, objectKey: {}", uploadId, session.getObjectKey());
+                throw new BizException(ErrorCode.FILE_NOT_FOUND);
+            }
+            // blob 由上传流程落盘，可能已被其他文档引用，这里只增加引用
+            StorageObject stored = new StorageObject(session.getObjectKey(), session.getFileSize(),
+                    session.getChecksum(), true);
+            Document saved = saveDocument(stored, null, userId, fileType, session.getFileName(),
+                    session.getContentType(), fileNumber, fileName, productModel, version, compileDate, description);
+
+            session.setStatus(UploadStatus.CONSUMED);
+            uploadSessionRepository.save(session);
+            return saved;
+        } finally {
+            uploadSessionRepository.unlock(uploadId);
+        }
+    }
+
+    /**
+     * 校验、落盘并创建文档记录
+     */
+    private Document doUpload(InputStream in,
+                              String originalFilename,
+                              String contentType,
+                              String fileNumber,
+                              String fileName,
+                              String productModel,
+                              String version,
+                              LocalDateTime compileDate,
+                              String description,
+                              String checksum) throws IOException {
+        Long userId = requireUser();
+        String extension = FilenameUtils.getExtension(originalFilename);
+        FileType fileType = validate(originalFilename, fileNumber);
+
+        // 本人上传过相同内容时直接引用，不写入任何字节（秒传）；
+        // 其他用户的相同内容仍需上传，落盘后再按摘要去重
+        Document existing = blobStoreService.findOwnedByContentHash(checksum, userId)
+                .filter(doc -> doc.getFileType() == fileType)
+                .orElse(null);
+
+        StorageObject stored;
+        String thumbnailPath = null;
+        if (existing != null) {
+            stored = new StorageObject(existing.getFilePath(), existing.getFileSize(), existing.getContentHash(), true);
+            thumbnailPath = existing.getThumbnailPath();
+            log.info("上传文档 - 文件内容已存在，秒传, objectKey: {}", stored.getObjectKey());
+        } else {
+            log.debug("上传文档 - 开始保存文件");
+            try {
+                stored = blobStoreService.canonicalize(fileStore.store(in, fileType, extension, maxFileSize));
+            } catch (ContentTooLargeException e) {
+                log.warn("上传文档失败 - 文件过大, 上限: {} bytes", maxFileSize);
+                throw new BizException(ErrorCode.FILE_TOO_LARGE);
+            }
+            log.info("上传文档 - 文件保存成功, objectKey: {}, sha256: {}", stored.getObjectKey(), stored.getSha256());
+        }
+        return saveDocument(stored, thumbnailPath, userId, fileType, originalFilename, contentType,
+                fileNumber, fileName, productModel, version, compileDate, description);
+    }
+
+    private Long requireUser() {
         Long userId = SecurityContext.getCurrentUserId();
         if (userId == null) {
             log.error("上传文档失败 - 用户未授权");
             throw new BizException(ErrorCode.UNAUTHORIZED);
         }
         log.debug("上传文档 - 当前用户ID: {}, 用户名: {}", userId, SecurityContext.getCurrentUserName());
+        return userId;
+    }
 
-        // 验证文件格式
-        String originalFilename = file.getOriginalFilename();
+    /**
+     * 校验文件格式与文件编号
+     */
+    private FileType validate(String originalFilename, String fileNumber) {
         String extension = FilenameUtils.getExtension(originalFilename);
         FileType fileType = FileType.fromExtension(extension);
         log.info("上传文档 - 原始文件名: {}, 扩展名: {}, 文件类型: {}", originalFilename, extension, fileType);
-        
+
         if (!fileTypeValidator.isAllowed(fileType, extension)) {
             log.warn("上传文档失败 - 文件类型不允许: {}, 扩展名: {}", fileType, extension);
             throw new BizException(ErrorCode.FILE_TYPE_NOT_ALLOWED);
@@ -85,21 +250,37 @@ public class DocumentService {
             log.warn("上传文档失败 - 文件编号已存在: {}", fileNumber);
             throw new BizException(ErrorCode.FILE_NUMBER_EXISTS);
         }
+        return fileType;
+    }
 
-        // 保存文件
-        log.debug("上传文档 - 开始保存文件");
-        String objectKey = saveFile(file, fileType);
-        log.info("上传文档 - 文件保存成功, objectKey: {}", objectKey);
-        
-        // 生成缩略图
-        log.debug("上传文档 - 开始生成缩略图");
-        String thumbnailPath = generateThumbnail(file, objectKey);
-        if (thumbnailPath != null) {
-            log.debug("上传文档 - 缩略图生成成功: {}", thumbnailPath);
-        } else {
-            log.debug("上传文档 - 未生成缩略图（非图片类型）");
+    private UploadSession loadOwnedSession(String uploadId, Long userId) {
+        UploadSession session = uploadSessionRepository.get(uploadId);
+        if (session == null) {
+            throw new BizException(ErrorCode.UPLOAD_SESSION_NOT_FOUND);
         }
-        
+        if (!Objects.equals(session.getUserId(), userId)) {
+            throw new BizException(ErrorCode.PERMISSION_DENIED);
+        }
+        return session;
+    }
+
+    /**
+     * 创建文档记录，保存失败时删除本次新写入的文件
+     */
+    private Document saveDocument(StorageObject stored,
+                                  String thumbnailPath,
+                                  Long userId,
+                                  FileType fileType,
+                                  String originalFilename,
+                                  String contentType,
+                                  String fileNumber,
+                                  String fileName,
+                                  String productModel,
+                                  String version,
+                                  LocalDateTime compileDate,
+                                  String description) {
+        String objectKey = stored.getObjectKey();
+
         // 创建文档实体
         Document document = new Document();
         document.setFileNumber(fileNumber);
@@ -112,80 +293,24 @@ public class DocumentService {
         document.setCompilerName(SecurityContext.getCurrentUserName());
         document.setDescription(description);
         document.setFileType(fileType);
-        document.setFileSize(file.getSize());
+        document.setFileSize(stored.getSize());
         document.setFilePath(objectKey);
         document.setThumbnailPath(thumbnailPath);
-        document.setContentType(file.getContentType());
+        document.setContentHash(stored.getSha256());
+        document.setContentType(contentType);
         document.setStatus(DocumentStatus.DRAFT);
         document.setIsCurrentVersion(true);
         document.setCreateUserId(userId);
         document.setUpdateUserId(userId);
         
+        // 保存失败时不删除 blob：其他上传可能已复用该文件，未被引用的 blob 由 BlobStoreService 定时回收
         Document saved = documentRepository.save(document);
         log.info("上传文档成功 - 文档ID: {}, 文件编号: {}, 文件名称: {}", 
                 saved.getId(), saved.getFileNumber(), saved.getFileName());
-        log.debug("=== DocumentService.uploadDocument 结束 ===");
-        return saved;
-    }
-
-    /**
-     * 保存文件
-     */
-    private String saveFile(MultipartFile file, FileType fileType) throws IOException {
-
-        // ⭐ 项目启动目录（不是 Tomcat）
-        String projectDir = System.getProperty("user.dir");
-
-        Path uploadPath = Paths.get(
-                projectDir,
-                uploadDir,
-                fileType.name().toLowerCase()
-        );
-
-        log.info("saveFile projectDir:{}, uploadPath: {}", projectDir, uploadPath);
-
-        Files.createDirectories(uploadPath);
-
-        String originalFilename = file.getOriginalFilename();
-        String extension = FilenameUtils.getExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID() + "." + extension;
-
-        Path filePath = uploadPath.resolve(uniqueFilename);
-
-        // ⭐ 现在 transferTo 写的是真实磁盘路径
-        file.transferTo(filePath.toFile());
-
-        return fileType.name().toLowerCase() + "/" + uniqueFilename;
-    }
-
-    /**
-     * 生成缩略图
-     */
-    private String generateThumbnail(MultipartFile file, String objectKey) {
-        try {
-            FileType fileType = FileType.fromExtension(FilenameUtils.getExtension(file.getOriginalFilename()));
-            
-            // 只对图片类型生成缩略图
-            if (fileType != FileType.JPEG && fileType != FileType.PNG) {
-                return null;
-            }
-
-            Path thumbnailPath = Paths.get(uploadDir, "thumbnails");
-            Files.createDirectories(thumbnailPath);
 
-            String thumbnailFilename = "thumb_" + UUID.randomUUID().toString() + ".jpg";
-            Path thumbnailFile = thumbnailPath.resolve(thumbnailFilename);
-
-            Thumbnails.of(file.getInputStream())
-                    .size(200, 200)
-                    .outputFormat("jpg")
-                    .toFile(thumbnailFile.toFile());
-
-            return "thumbnails/" + thumbnailFilename;
-        } catch (Exception e) {
-            log.warn("生成缩略图失败: {}", e.getMessage());
-            return null;
-        }
+        // 缩略图在事务提交后由后台任务生成
+        eventPublisher.publishEvent(new DocumentChangedEvent(saved.getId(), DocumentChangeType.UPLOADED));
+        return saved;
     }
 
     /**
@@ -206,5 +331,18 @@ public class DocumentService {
         log.debug("=== DocumentService.getDocumentById 结束 ===");
         return document;
     }
-}
 
+    /**
+     * 签发文档下载地址（由对象存储直接提供文件，不经过 Web 容器）
+     */
+    public DownloadToken getDownloadToken(Long id) {
+        Document document = getDocumentById(id);
+        DownloadToken token = ocsClient.generateDownloadToken(document.getFilePath(), downloadUrlExpireSeconds);
+        if (token == null) {
+            log.error("签发下载地址失败 - 对象存储不可用, 文档ID: {}", id);
+            throw new BizException(ErrorCode.OBJECT_STORAGE_UNAVAILABLE);
+        }
+        log.info("签发下载地址 - 文档ID: {}, objectKey: {}", id, document.getFilePath());
+        return token;
+    }
+}
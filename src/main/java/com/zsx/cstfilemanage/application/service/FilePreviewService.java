@@ -1,26 +1,49 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
+import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
 import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.storage.PageRender;
+import com.zsx.cstfilemanage.domain.storage.StoredFile;
+import com.zsx.cstfilemanage.infrastructure.cache.PreviewCache;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.interfaces.http.response.PdfInfoResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 文件预览服务
@@ -29,71 +52,272 @@ import java.nio.file.Paths;
 @Slf4j
 public class FilePreviewService {
 
+    public static final String STAGE_PREVIEW = "preview";
+    public static final String STAGE_FULL = "full";
+
+    private static final int PDF_PREVIEW_DPI = 150;
+    private static final int MIN_DPI = 24;
+
     private final DocumentRepository documentRepository;
+    private final LocalFileStore fileStore;
+    private final PreviewCache previewCache;
+    private final ThreadPoolExecutor renderExecutor;
+    private final Cache<String, PdfInfoResponse> pdfInfoCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    @Value("${preview.render.preview-dpi:48}")
+    private int previewDpi;
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    @Value("${preview.render.max-dpi:300}")
+    private int maxDpi;
 
-    public FilePreviewService(DocumentRepository documentRepository) {
+    @Value("${preview.render.timeout-seconds:60}")
+    private long renderTimeoutSeconds;
+
+    public FilePreviewService(DocumentRepository documentRepository,
+                              LocalFileStore fileStore,
+                              PreviewCache previewCache,
+                              @Qualifier("renderExecutor") ThreadPoolExecutor renderExecutor) {
         this.documentRepository = documentRepository;
+        this.fileStore = fileStore;
+        this.previewCache = previewCache;
+        this.renderExecutor = renderExecutor;
     }
 
     /**
-     * 获取文件预览资源
+     * 文档作废（或已不存在）后清除其预览缓存
      */
-    public Resource getPreviewResource(Long documentId) throws IOException {
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getChangeType() != DocumentChangeType.STATUS_CHANGED) {
+            return;
+        }
+        Document document = documentRepository.findById(event.getDocumentId()).orElse(null);
+        if (document == null || document.getStatus() == DocumentStatus.OBSOLETE) {
+            previewCache.evict(event.getDocumentId());
+            String prefix = event.getDocumentId() + "/";
+            pdfInfoCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+            log.info("已清除预览缓存 - 文档ID: {}", event.getDocumentId());
+        }
+    }
+
+    /**
+     * 获取预览文件（用于按字节范围输出）
+     */
+    public StoredFile getPreviewFile(Long documentId) throws IOException {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
+        return toStoredFile(document);
+    }
 
-        Path filePath = Paths.get(uploadDir, document.getFilePath());
-        Resource resource = new UrlResource(filePath.toUri());
+    /**
+     * 获取图片预览文件
+     */
+    public StoredFile getImagePreviewFile(Long documentId) throws IOException {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
 
-        if (!resource.exists()) {
-            throw new BizException(ErrorCode.FILE_NOT_FOUND);
+        if (document.getFileType() != FileType.JPEG && document.getFileType() != FileType.PNG) {
+            throw new BizException(ErrorCode.NOT_IMAGE_FILE);
         }
+        return toStoredFile(document);
+    }
 
-        return resource;
+    private StoredFile toStoredFile(Document document) throws IOException {
+        Path filePath = resolveExisting(document);
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        String fileName = document.getFileName();
+        String extension = FilenameUtils.getExtension(document.getFilePath());
+        if (!extension.isEmpty() && !extension.equalsIgnoreCase(FilenameUtils.getExtension(fileName))) {
+            fileName = fileName + "." + extension;
+        }
+        return new StoredFile(filePath, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                document.getContentHash(), fileName);
     }
 
     /**
      * 获取PDF第一页预览图
      */
     public byte[] getPdfPreview(Long documentId) throws IOException {
-        Document document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
+        return renderPage(planPdfPage(documentId, 1, null, PDF_PREVIEW_DPI, STAGE_FULL));
+    }
 
-        if (document.getFileType() != FileType.PDF) {
-            throw new BizException(ErrorCode.NOT_PDF_FILE);
+    /**
+     * 获取PDF页数及各页尺寸
+     */
+    public PdfInfoResponse getPdfInfo(Long documentId) throws IOException {
+        Document document = requirePdf(documentId);
+        Path filePath = resolveExisting(document);
+        return loadPdfInfo(document, filePath, cacheVersion(document, filePath));
+    }
+
+    /**
+     * 确定单页渲染参数
+     *
+     * @param page  页码（从 1 开始）
+     * @param width 期望的图片宽度（像素），优先于 dpi
+     * @param dpi   期望的分辨率
+     * @param stage preview：先返回低分辨率图，并在后台渲染完整分辨率；full：完整分辨率
+     */
+    public PageRender planPdfPage(Long documentId, int page, Integer width, Integer dpi, String stage) throws IOException {
+        Document document = requirePdf(documentId);
+        Path filePath = resolveExisting(document);
+        String version = cacheVersion(document, filePath);
+
+        PdfInfoResponse info = loadPdfInfo(document, filePath, version);
+        if (page < 1 || page > info.getPageCount()) {
+            throw new BizException(ErrorCode.PAGE_OUT_OF_RANGE);
+        }
+        int pageIndex = page - 1;
+        int fullDpi = resolveDpi(info.getPages().get(pageIndex), width, dpi);
+
+        if (STAGE_PREVIEW.equalsIgnoreCase(stage) && fullDpi > previewDpi) {
+            // 预先排队完整分辨率渲染，客户端随后请求 full 时直接命中缓存
+            prefetch(new PageRender(filePath, pageIndex, fullDpi, "png",
+                    PreviewCache.key(documentId, version, pageIndex, fullDpi, "png"), STAGE_FULL));
+            return new PageRender(filePath, pageIndex, previewDpi, "jpg",
+                    PreviewCache.key(documentId, version, pageIndex, previewDpi, "jpg"), STAGE_PREVIEW);
         }
+        return new PageRender(filePath, pageIndex, fullDpi, "png",
+                PreviewCache.key(documentId, version, pageIndex, fullDpi, "png"), STAGE_FULL);
+    }
 
-        Path filePath = Paths.get(uploadDir, document.getFilePath());
-        File pdfFile = filePath.toFile();
+    /**
+     * 渲染单页：缓存命中（内存、磁盘）或已有相同渲染进行中时在请求线程直接取得或等待结果，
+     * 只有发起渲染的请求占用渲染线程池
+     */
+    public byte[] renderPage(PageRender render) throws IOException {
+        CompletableFuture<byte[]> future;
+        try {
+            future = renderCached(render);
+        } catch (RejectedExecutionException e) {
+            log.warn("渲染线程池已满，拒绝渲染 - key: {}", render.getCacheKey());
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        }
 
-        try (PDDocument document_pdf = Loader.loadPDF(pdfFile)) {
+        try {
+            return future.get(renderTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("渲染超时 - key: {}", render.getCacheKey());
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 后台渲染，不等待结果；线程池繁忙时直接放弃
+     */
+    private void prefetch(PageRender render) {
+        if (previewCache.contains(render.getCacheKey())) {
+            return;
+        }
+        try {
+            renderCached(render).whenComplete((bytes, e) -> {
+                if (e != null) {
+                    log.warn("后台渲染失败 - key: {}, 错误: {}", render.getCacheKey(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("渲染线程池已满，跳过后台渲染 - key: {}", render.getCacheKey());
+        } catch (IOException e) {
+            log.warn("读取预览缓存失败 - key: {}, 错误: {}", render.getCacheKey(), e.getMessage());
+        }
+    }
+
+    private CompletableFuture<byte[]> renderCached(PageRender render) throws IOException {
+        return previewCache.getAsync(render.getCacheKey(),
+                () -> renderPdfPage(render.getPath(), render.getPageIndex(), render.getDpi(), render.getFormat()),
+                renderExecutor);
+    }
+
+    private byte[] renderPdfPage(Path filePath, int page, int dpi, String format) throws IOException {
+        try (PDDocument document_pdf = Loader.loadPDF(filePath.toFile())) {
             PDFRenderer pdfRenderer = new PDFRenderer(document_pdf);
             
-            // 渲染第一页为图片
-            BufferedImage image = pdfRenderer.renderImageWithDPI(0, 150);
+            BufferedImage image = pdfRenderer.renderImageWithDPI(page, dpi, ImageType.RGB);
             
             // 转换为字节数组
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos);
+            ImageIO.write(image, format, baos);
             return baos.toByteArray();
         }
     }
 
+    private PdfInfoResponse loadPdfInfo(Document document, Path filePath, String version) throws IOException {
+        String key = document.getId() + "/" + version;
+        PdfInfoResponse cached = pdfInfoCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        try (PDDocument pdf = Loader.loadPDF(filePath.toFile())) {
+            List<PdfInfoResponse.PageSize> pages = new ArrayList<>(pdf.getNumberOfPages());
+            for (PDPage pdPage : pdf.getPages()) {
+                PDRectangle box = pdPage.getCropBox();
+                // 旋转 90/270 度的页面宽高互换
+                boolean rotated = pdPage.getRotation() % 180 != 0;
+                pages.add(new PdfInfoResponse.PageSize(
+                        rotated ? box.getHeight() : box.getWidth(),
+                        rotated ? box.getWidth() : box.getHeight()));
+            }
+            PdfInfoResponse info = new PdfInfoResponse(document.getId(), pages.size(), pages);
+            pdfInfoCache.put(key, info);
+            return info;
+        }
+    }
+
     /**
-     * 获取图片预览
+     * 根据期望宽度或 DPI 计算渲染分辨率，限制在 [minDpi, maxDpi] 内
      */
-    public Resource getImagePreview(Long documentId) throws IOException {
+    private int resolveDpi(PdfInfoResponse.PageSize pageSize, Integer width, Integer dpi) {
+        int resolved;
+        if (width != null && width > 0 && pageSize.getWidth() > 0) {
+            resolved = Math.round(width * 72f / pageSize.getWidth());
+        } else if (dpi != null && dpi > 0) {
+            resolved = dpi;
+        } else {
+            resolved = PDF_PREVIEW_DPI;
+        }
+        return Math.max(MIN_DPI, Math.min(maxDpi, resolved));
+    }
+
+    private Document requirePdf(Long documentId) {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
 
-        if (document.getFileType() != FileType.JPEG && document.getFileType() != FileType.PNG) {
-            throw new BizException(ErrorCode.NOT_IMAGE_FILE);
+        if (document.getFileType() != FileType.PDF) {
+            throw new BizException(ErrorCode.NOT_PDF_FILE);
         }
+        return document;
+    }
+
+    private Path resolveExisting(Document document) {
+        Path filePath = fileStore.resolve(document.getFilePath());
+        if (!Files.isRegularFile(filePath)) {
+            throw new BizException(ErrorCode.FILE_NOT_FOUND);
+        }
+        return filePath;
+    }
 
-        return getPreviewResource(documentId);
+    /**
+     * 缓存版本：优先使用内容摘要，旧数据退化为文件修改时间
+     */
+    private String cacheVersion(Document document, Path filePath) throws IOException {
+        if (document.getContentHash() != null && !document.getContentHash().isEmpty()) {
+            return document.getContentHash();
+        }
+        return "m" + Files.getLastModifiedTime(filePath).toMillis();
     }
 
     /**
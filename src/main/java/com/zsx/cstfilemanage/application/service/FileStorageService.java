@@ -3,7 +3,6 @@ package com.zsx.cstfilemanage.application.service;
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.util.JsonUtil;
 import com.zsx.cstfilemanage.config.FileStorageProperties;
-import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
 import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
 import com.zsx.cstfilemanage.domain.storage.OcsClient;
 import com.zsx.cstfilemanage.domain.storage.UploadToken;
@@ -63,11 +62,11 @@ public class FileStorageService {
         String objectKey = buildObjectKey(req.getBizType(), req.getFileName());
 
         // 7️⃣ 生成上传凭证
-        UploadToken token = ocsClient.generateUploadToken(objectKey, 15 * 60);
+        UploadToken token = ocsClient.generateUploadToken(objectKey, req.getFileSize(), 15 * 60);
 
         // 8️⃣ Redis 记录上传状态
-        UploadSession session = new UploadSession(
-                uploadId, userId, objectKey, req.getBizType(), UploadStatus.INIT, System.currentTimeMillis()
+        UploadSession session = UploadSession.init(
+                uploadId, userId, objectKey, req.getBizType()
         );
 
         redisTemplate.opsForValue().set(
@@ -82,7 +81,11 @@ public class FileStorageService {
                 token.getUploadUrl(),
                 objectKey,
                 token.getExpireAt(),
-                "DIRECT"
+                "DIRECT",
+                null,
+                null,
+                null,
+                null
         );
     }
 
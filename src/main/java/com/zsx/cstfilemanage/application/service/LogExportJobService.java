@@ -0,0 +1,219 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.ExportFormat;
+import com.zsx.cstfilemanage.domain.cenum.ExportJobStatus;
+import com.zsx.cstfilemanage.domain.cenum.OperationType;
+import com.zsx.cstfilemanage.domain.storage.StoredFile;
+import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 日志异步导出任务
+ * 提交后立即返回任务ID，导出在独立线程池中写入本地文件（uploads/.exports），
+ * 客户端轮询进度（已写行数 / 预估总行数），完成后下载。
+ * 任务信息保存在本节点内存中，文件与任务在保留期过后一并清理；节点重启后遗留文件直接删除。
+ */
+@Service
+@Slf4j
+public class LogExportJobService {
+
+    private static final String EXPORT_DIR = ".exports";
+
+    private final LogExportService logExportService;
+    private final LocalFileStore fileStore;
+    private final ThreadPoolExecutor exportExecutor;
+    private final ConcurrentMap<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 导出文件保留时长（完成或失败后开始计时）
+     */
+    @Value("${export.retention-minutes:120}")
+    private long retentionMinutes;
+
+    public LogExportJobService(LogExportService logExportService,
+                               LocalFileStore fileStore,
+                               @Qualifier("exportExecutor") ThreadPoolExecutor exportExecutor) {
+        this.logExportService = logExportService;
+        this.fileStore = fileStore;
+        this.exportExecutor = exportExecutor;
+    }
+
+    /**
+     * 清理上次运行遗留的导出文件（任务信息已随进程丢失）
+     */
+    @PostConstruct
+    public void cleanLeftovers() {
+        Path dir = fileStore.resolve(EXPORT_DIR);
+        if (Files.exists(dir)) {
+            try {
+                FileUtils.cleanDirectory(dir.toFile());
+            } catch (IOException e) {
+                log.warn("清理遗留导出文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 提交导出任务
+     *
+     * @throws BizException 本节点导出任务已满时抛出 EXPORT_BUSY
+     */
+    public ExportJob submit(Long userId,
+                            OperationType operationType,
+                            LocalDateTime startTime,
+                            LocalDateTime endTime,
+                            ExportFormat format) {
+        ExportJob job = new ExportJob();
+        job.setJobId(UUID.randomUUID().toString().replace("-", ""));
+        job.setOwnerId(SecurityContext.getCurrentUserId());
+        job.setFormat(format);
+        job.setStatus(ExportJobStatus.QUEUED);
+        job.setFileName("操作日志_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + "." + format.getExtension());
+        job.setCreateTime(LocalDateTime.now());
+        jobs.put(job.getJobId(), job);
+        try {
+            exportExecutor.execute(() -> run(job, userId, operationType, startTime, endTime));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            throw new BizException(ErrorCode.EXPORT_BUSY);
+        }
+        log.info("导出任务已提交 - 任务ID: {}, 格式: {}, 排队: {}", job.getJobId(), format, exportExecutor.getQueue().size());
+        return job;
+    }
+
+    /**
+     * 查询任务（仅提交人可见）
+     */
+    public ExportJob getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null || !Objects.equals(job.getOwnerId(), SecurityContext.getCurrentUserId())) {
+            throw new BizException(ErrorCode.EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 获取已完成任务的导出文件
+     */
+    public StoredFile getFile(String jobId) throws IOException {
+        ExportJob job = getJob(jobId);
+        if (job.getStatus() != ExportJobStatus.COMPLETED) {
+            throw new BizException(ErrorCode.EXPORT_NOT_READY);
+        }
+        Path path = fileStore.resolve(job.getFileKey());
+        if (!Files.exists(path)) {
+            throw new BizException(ErrorCode.EXPORT_JOB_NOT_FOUND);
+        }
+        return new StoredFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis(), null, job.getFileName());
+    }
+
+    /**
+     * 清理过期任务及其文件
+     */
+    @Scheduled(fixedDelayString = "${export.cleanup-interval-ms:600000}")
+    public void cleanupExpired() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.getCompleteTime() == null || job.getCompleteTime().isAfter(expireBefore)) {
+                return false;
+            }
+            if (job.getFileKey() != null) {
+                FileUtils.deleteQuietly(fileStore.resolve(job.getFileKey()).toFile());
+            }
+            log.debug("导出任务已过期清理 - 任务ID: {}", job.getJobId());
+            return true;
+        });
+    }
+
+    private void run(ExportJob job,
+                     Long userId,
+                     OperationType operationType,
+                     LocalDateTime startTime,
+                     LocalDateTime endTime) {
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.setStartTime(LocalDateTime.now());
+        String key = EXPORT_DIR + "/" + job.getJobId() + "." + job.getFormat().getExtension();
+        Path target = fileStore.resolve(key);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            job.setEstimatedRows(logExportService.countLogs(userId, operationType, startTime, endTime));
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                long rows = logExportService.exportLogs(userId, operationType, startTime, endTime,
+                        job.getFormat(), out, job::setRowsWritten);
+                job.setRowsWritten(rows);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            job.setFileKey(key);
+            job.setFileSize(Files.size(target));
+            job.setCompleteTime(LocalDateTime.now());
+            job.setStatus(ExportJobStatus.COMPLETED);
+            log.info("导出任务完成 - 任务ID: {}, 行数: {}, 大小: {} bytes", job.getJobId(), job.getRowsWritten(), job.getFileSize());
+        } catch (Exception e) {
+            FileUtils.deleteQuietly(temp.toFile());
+            job.setErrorMessage(e.getMessage());
+            job.setCompleteTime(LocalDateTime.now());
+            job.setStatus(ExportJobStatus.FAILED);
+            log.error("导出任务失败 - 任务ID: {}", job.getJobId(), e);
+        }
+    }
+
+    /**
+     * 导出任务
+     * 由导出线程更新、请求线程读取，字段均为 volatile
+     */
+    @Data
+    public static class ExportJob {
+        private volatile String jobId;
+        private volatile Long ownerId;
+        private volatile ExportFormat format;
+        private volatile ExportJobStatus status;
+        /**
+         * 已写出的行数
+         */
+        private volatile long rowsWritten;
+        /**
+         * 预估总行数（开始导出时统计，导出期间新增的日志不计入）
+         */
+        private volatile Long estimatedRows;
+        /**
+         * 下载文件名
+         */
+        private volatile String fileName;
+        /**
+         * 导出文件在上传目录下的存储路径
+         */
+        private volatile String fileKey;
+        private volatile Long fileSize;
+        private volatile String errorMessage;
+        private volatile LocalDateTime createTime;
+        private volatile LocalDateTime startTime;
+        private volatile LocalDateTime completeTime;
+    }
+}
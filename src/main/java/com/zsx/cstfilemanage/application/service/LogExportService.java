@@ -1,105 +1,284 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.zsx.cstfilemanage.domain.cenum.ExportFormat;
 import com.zsx.cstfilemanage.domain.cenum.OperationType;
 import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
-import com.zsx.cstfilemanage.domain.repository.OperationLogRepository;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.data.domain.Pageable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 日志导出服务
+ * 按 (createTime, id) 游标分批读取日志（含已归档月份），直接写到输出流；内存占用与导出行数无关。
+ * Excel 通过 SXSSF 只在内存中保留少量行，其余行写入临时文件；CSV 逐行写出，可选 gzip 压缩。
  */
 @Service
 @Slf4j
 public class LogExportService {
 
-    private final OperationLogRepository operationLogRepository;
+    private final OperationLogService operationLogService;
+    private final EntityManager entityManager;
+    private static final int BUFFER_SIZE = 64 * 1024;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public LogExportService(OperationLogRepository operationLogRepository) {
-        this.operationLogRepository = operationLogRepository;
+    private static final String SHEET_NAME = "操作日志";
+    private static final String[] HEADERS = {"ID", "操作人", "操作类型", "操作内容", "操作对象类型", "操作对象ID",
+            "操作结果", "错误信息", "IP地址", "操作时间"};
+    /**
+     * 固定列宽（1/256 字符），不再逐行计算 autoSizeColumn
+     */
+    private static final int[] COLUMN_WIDTHS = {10 * 256, 14 * 256, 14 * 256, 60 * 256, 14 * 256, 12 * 256,
+            10 * 256, 40 * 256, 16 * 256, 20 * 256};
+    /**
+     * 单个 sheet 最大数据行数（去掉标题行），超出后续写到新 sheet
+     */
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    /**
+     * SXSSF 内存中保留的行数
+     */
+    @Value("${log-export.row-window:100}")
+    private int rowWindow;
+
+    /**
+     * 每次从数据库读取的行数
+     */
+    @Value("${log-export.fetch-size:1000}")
+    private int fetchSize;
+
+    public LogExportService(OperationLogService operationLogService, EntityManager entityManager) {
+        this.operationLogService = operationLogService;
+        this.entityManager = entityManager;
     }
 
     /**
-     * 导出日志为Excel
+     * 导出日志为Excel，直接写入输出流（不关闭输出流）
+     *
+     * @return 导出的行数
      */
-    public byte[] exportLogsToExcel(Long userId,
-                                   OperationType operationType,
-                                   LocalDateTime startTime,
-                                   LocalDateTime endTime) throws IOException {
-        // 查询所有符合条件的日志（不分页）
-        List<OperationLog> logs = operationLogRepository.searchLogs(
-                userId, operationType, startTime, endTime, Pageable.unpaged()
-        ).getContent();
-
-        // 创建Excel工作簿
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("操作日志");
-
-            // 创建标题行样式
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-
-            // 创建标题行
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {"ID", "操作人", "操作类型", "操作内容", "操作对象类型", "操作对象ID", 
-                              "操作结果", "错误信息", "IP地址", "操作时间"};
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
+    public long exportLogsToExcel(Long userId,
+                                  OperationType operationType,
+                                  LocalDateTime startTime,
+                                  LocalDateTime endTime,
+                                  OutputStream out) throws IOException {
+        return exportLogs(userId, operationType, startTime, endTime, ExportFormat.XLSX, out, rows -> {
+        });
+    }
+
+    /**
+     * 按指定格式导出日志，直接写入输出流（不关闭输出流）
+     *
+     * @param progress 每写完一批回调一次，参数为已写出的行数
+     * @return 导出的行数
+     */
+    public long exportLogs(Long userId,
+                           OperationType operationType,
+                           LocalDateTime startTime,
+                           LocalDateTime endTime,
+                           ExportFormat format,
+                           OutputStream out,
+                           LongConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        long total = switch (format) {
+            case XLSX -> writeExcel(userId, operationType, startTime, endTime, out, progress);
+            case CSV -> writeCsv(userId, operationType, startTime, endTime, out, progress);
+            case CSV_GZ -> {
+                GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+                long rows = writeCsv(userId, operationType, startTime, endTime, gzip, progress);
+                // 只结束压缩流，不关闭调用方的输出流
+                gzip.finish();
+                yield rows;
             }
+        };
+        out.flush();
+        log.info("日志导出完成 - 格式: {}, 行数: {}, 耗时: {} ms", format, total, System.currentTimeMillis() - start);
+        return total;
+    }
 
-            // 创建数据行样式
+    /**
+     * 符合条件的日志总数（用于估算导出进度）
+     */
+    public long countLogs(Long userId, OperationType operationType, LocalDateTime startTime, LocalDateTime endTime) {
+        return operationLogService.countLogs(userId, operationType, startTime, endTime);
+    }
+
+    private long writeExcel(Long userId,
+                            OperationType operationType,
+                            LocalDateTime startTime,
+                            LocalDateTime endTime,
+                            OutputStream out,
+                            LongConsumer progress) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        // 临时文件压缩，长文本日志时显著减少磁盘占用
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = createHeaderStyle(workbook);
             CellStyle dataStyle = workbook.createCellStyle();
             dataStyle.setAlignment(HorizontalAlignment.LEFT);
             dataStyle.setVerticalAlignment(VerticalAlignment.CENTER);
 
-            // 填充数据
-            int rowNum = 1;
+            Sheet[] sheet = {createSheet(workbook, SHEET_NAME, headerStyle)};
+            int[] rowNum = {1};
+            long total = forEachBatch(userId, operationType, startTime, endTime, progress, logs -> {
+                for (OperationLog log : logs) {
+                    if (rowNum[0] > MAX_ROWS_PER_SHEET) {
+                        sheet[0] = createSheet(workbook, SHEET_NAME + "(" + (workbook.getNumberOfSheets() + 1) + ")", headerStyle);
+                        rowNum[0] = 1;
+                    }
+                    writeRow(sheet[0].createRow(rowNum[0]++), log, dataStyle);
+                }
+            });
+            workbook.write(out);
+            return total;
+        } finally {
+            // 删除 SXSSF 临时文件
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * CSV：UTF-8 带 BOM（Excel 直接打开不乱码），RFC 4180 转义，CRLF 换行
+     */
+    private long writeCsv(Long userId,
+                          OperationType operationType,
+                          LocalDateTime startTime,
+                          LocalDateTime endTime,
+                          OutputStream out,
+                          LongConsumer progress) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write('\uFEFF');
+        writeCsvLine(writer, HEADERS);
+        String[] values = new String[HEADERS.length];
+        long total = forEachBatch(userId, operationType, startTime, endTime, progress, logs -> {
             for (OperationLog log : logs) {
-                Row row = sheet.createRow(rowNum++);
-                
-                createCell(row, 0, log.getId().toString(), dataStyle);
-                createCell(row, 1, log.getUserName(), dataStyle);
-                createCell(row, 2, log.getOperationType().getDescription(), dataStyle);
-                createCell(row, 3, log.getOperationContent(), dataStyle);
-                createCell(row, 4, log.getObjectType(), dataStyle);
-                createCell(row, 5, log.getObjectId() != null ? log.getObjectId().toString() : "", dataStyle);
-                createCell(row, 6, log.getResult(), dataStyle);
-                createCell(row, 7, log.getErrorMessage(), dataStyle);
-                createCell(row, 8, log.getIpAddress(), dataStyle);
-                createCell(row, 9, log.getCreateTime().format(DATE_FORMATTER), dataStyle);
+                values[0] = log.getId().toString();
+                values[1] = log.getUserName();
+                values[2] = log.getOperationType().getDescription();
+                values[3] = log.getOperationContent();
+                values[4] = log.getObjectType();
+                values[5] = log.getObjectId() != null ? log.getObjectId().toString() : "";
+                values[6] = log.getResult();
+                values[7] = log.getErrorMessage();
+                values[8] = log.getIpAddress();
+                values[9] = log.getCreateTime().format(DATE_FORMATTER);
+                writeCsvLine(writer, values);
             }
+        });
+        // 只刷新不关闭，输出流由调用方管理
+        writer.flush();
+        return total;
+    }
 
-            // 自动调整列宽
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                // 设置最小列宽
-                sheet.setColumnWidth(i, Math.max(sheet.getColumnWidth(i), 3000));
+    private static void writeCsvLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
             }
+        }
+        writer.write("\r\n");
+    }
 
-            // 写入字节数组
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+    /**
+     * 按 (createTime, id) 倒序游标分批读取日志
+     *
+     * @return 读取的总行数
+     */
+    private long forEachBatch(Long userId,
+                              OperationType operationType,
+                              LocalDateTime startTime,
+                              LocalDateTime endTime,
+                              LongConsumer progress,
+                              BatchHandler handler) throws IOException {
+        long total = 0;
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        List<OperationLog> logs;
+        do {
+            logs = operationLogService.seekLogs(userId, operationType, startTime, endTime,
+                    cursorTime, cursorId, fetchSize);
+            handler.handle(logs);
+            total += logs.size();
+            if (!logs.isEmpty()) {
+                OperationLog last = logs.get(logs.size() - 1);
+                cursorTime = last.getCreateTime();
+                cursorId = last.getId();
+            }
+            // 请求范围内的持久化上下文会一直累积实体，每批写完后清空
+            entityManager.clear();
+            progress.accept(total);
+        } while (logs.size() == fetchSize);
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface BatchHandler {
+        void handle(List<OperationLog> logs) throws IOException;
+    }
+
+    private Sheet createSheet(Workbook workbook, String name, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(name);
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i]);
+        }
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            createCell(headerRow, i, HEADERS[i], headerStyle);
         }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerFont.setFontHeightInPoints((short) 12);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        headerStyle.setAlignment(HorizontalAlignment.CENTER);
+        return headerStyle;
+    }
+
+    private void writeRow(Row row, OperationLog log, CellStyle dataStyle) {
+        createCell(row, 0, log.getId().toString(), dataStyle);
+        createCell(row, 1, log.getUserName(), dataStyle);
+        createCell(row, 2, log.getOperationType().getDescription(), dataStyle);
+        createCell(row, 3, log.getOperationContent(), dataStyle);
+        createCell(row, 4, log.getObjectType(), dataStyle);
+        createCell(row, 5, log.getObjectId() != null ? log.getObjectId().toString() : "", dataStyle);
+        createCell(row, 6, log.getResult(), dataStyle);
+        createCell(row, 7, log.getErrorMessage(), dataStyle);
+        createCell(row, 8, log.getIpAddress(), dataStyle);
+        createCell(row, 9, log.getCreateTime().format(DATE_FORMATTER), dataStyle);
     }
 
     /**
@@ -113,4 +292,3 @@ public class LogExportService {
         }
     }
 }
-
@@ -0,0 +1,325 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.common.util.TokenBucket;
+import com.zsx.cstfilemanage.domain.cenum.NotificationChannel;
+import com.zsx.cstfilemanage.domain.cenum.NotificationStatus;
+import com.zsx.cstfilemanage.domain.model.entity.NotificationOutbox;
+import com.zsx.cstfilemanage.domain.repository.NotificationOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知发送器
+ * 定时从发件箱领取到期记录（SELECT ... FOR UPDATE SKIP LOCKED，领取后标记为发送中并设置租约，多节点互不重复），
+ * 在事务外发送，再回写结果：
+ * <ul>
+ *     <li>邮件：一条记录一封邮件（多个收件人密送），一轮领取的邮件通过同一个 SMTP 连接连续发送</li>
+ *     <li>短信：逐个号码发送，进度记录在 sentCount，重试时从断点继续</li>
+ *     <li>每个渠道按令牌桶限流；发送失败按指数退避重试，超过最大次数标记为 FAILED</li>
+ * </ul>
+ * 节点在发送中宕机时，租约到期后记录会被重新领取，因此通知为至少一次送达。
+ * 租约以到期时间（精确到秒）标识：回写结果、保存短信进度时都要求记录仍为发送中且租约未变，
+ * 租约过期并被其他节点重新领取后，原节点的回写不生效，不会覆盖新领取者的状态。
+ * 每轮领取的邮件数按单封最长发送时间限制在半个租约内；短信每发送一条保存进度并续租。
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final SmsService smsService;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenBucket emailLimiter;
+    private final TokenBucket smsLimiter;
+
+    @Value("${spring.mail.from:noreply@example.com}")
+    private String fromEmail;
+
+    @Value("${notification.dispatch.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每轮每个渠道最多领取的记录数
+     */
+    @Value("${notification.dispatch.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 发送租约，超时未回写结果的记录可被重新领取
+     */
+    @Value("${notification.dispatch.lease-seconds:300}")
+    private long leaseSeconds;
+
+    /**
+     * 单封邮件的最长发送时间（SMTP 读写超时之和），用于限制每轮领取的邮件数
+     */
+    @Value("${notification.dispatch.email-max-send-ms:20000}")
+    private long emailMaxSendMs;
+
+    @Value("${notification.dispatch.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${notification.dispatch.retry-initial-ms:30000}")
+    private long retryInitialMs;
+
+    @Value("${notification.dispatch.retry-max-ms:3600000}")
+    private long retryMaxMs;
+
+    /**
+     * 已发送记录的保留天数
+     */
+    @Value("${notification.outbox.retention-days:7}")
+    private long retentionDays;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository,
+                                  JavaMailSender mailSender,
+                                  SmsService smsService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${notification.email.rate-per-second:5}") double emailRatePerSecond,
+                                  @Value("${notification.sms.rate-per-second:20}") double smsRatePerSecond) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.smsService = smsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailLimiter = new TokenBucket(emailRatePerSecond, Math.max(1, emailRatePerSecond));
+        this.smsLimiter = new TokenBucket(smsRatePerSecond, Math.max(1, smsRatePerSecond));
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dispatch.interval-ms:1000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            dispatchEmails();
+        } catch (RuntimeException e) {
+            log.error("邮件发送轮次失败", e);
+        }
+        try {
+            dispatchSms();
+        } catch (RuntimeException e) {
+            log.error("短信发送轮次失败", e);
+        }
+    }
+
+    /**
+     * 清理已发送的记录
+     */
+    @Scheduled(cron = "${notification.outbox.cleanup-cron:0 0 3 * * ?}")
+    public void cleanupSent() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        long total = 0;
+        int deleted;
+        do {
+            Integer count = transactionTemplate.execute(status ->
+                    outboxRepository.deleteSentBefore(before, DELETE_BATCH_SIZE));
+            deleted = count != null ? count : 0;
+            total += deleted;
+        } while (deleted >= DELETE_BATCH_SIZE);
+        if (total > 0) {
+            log.info("已清理发件箱 - 记录数: {}", total);
+        }
+    }
+
+    private void dispatchEmails() {
+        // 最坏情况下整轮发送也在半个租约内完成
+        long withinLease = TimeUnit.SECONDS.toMillis(leaseSeconds) / 2 / Math.max(1, emailMaxSendMs);
+        int permits = emailLimiter.tryAcquire((int) Math.max(1, Math.min(batchSize, withinLease)));
+        if (permits == 0) {
+            return;
+        }
+        List<NotificationOutbox> messages = claim(NotificationChannel.EMAIL, permits);
+        emailLimiter.release(permits - messages.size());
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        Map<MimeMessage, NotificationOutbox> byMime = new IdentityHashMap<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>(messages.size());
+        for (NotificationOutbox message : messages) {
+            try {
+                MimeMessage mime = toMimeMessage(message);
+                byMime.put(mime, message);
+                mimeMessages.add(mime);
+            } catch (MessagingException | RuntimeException e) {
+                failures.put(message.getId(), "构建邮件失败: " + e.getMessage());
+            }
+        }
+        if (!mimeMessages.isEmpty()) {
+            try {
+                // 一次调用内所有邮件复用同一个 SMTP 连接
+                mailSender.send(mimeMessages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                if (e.getFailedMessages().isEmpty()) {
+                    mimeMessages.forEach(mime -> failures.put(byMime.get(mime).getId(), e.getMessage()));
+                }
+                e.getFailedMessages().forEach((mime, cause) -> {
+                    NotificationOutbox failed = byMime.get(mime);
+                    if (failed != null) {
+                        failures.put(failed.getId(), cause.getMessage());
+                    }
+                });
+            } catch (MailException e) {
+                mimeMessages.forEach(mime -> failures.put(byMime.get(mime).getId(), e.getMessage()));
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (NotificationOutbox message : messages) {
+            LocalDateTime lease = message.getNextAttemptTime();
+            String error = failures.get(message.getId());
+            if (error == null) {
+                markSent(message, now);
+            } else {
+                markFailed(message, error, now);
+            }
+            writeBack(message, lease);
+        }
+        log.info("邮件发送完成 - 邮件数: {}, 失败: {}", messages.size(), failures.size());
+    }
+
+    private void dispatchSms() {
+        List<NotificationOutbox> messages = claim(NotificationChannel.SMS, batchSize);
+        if (messages.isEmpty()) {
+            return;
+        }
+        int sent = 0;
+        for (NotificationOutbox message : messages) {
+            String[] phones = message.getRecipients().split("\n");
+            LocalDateTime lease = message.getNextAttemptTime();
+            try {
+                while (message.getSentCount() < phones.length && smsLimiter.tryAcquire(1) == 1) {
+                    smsService.sendSms(phones[message.getSentCount()], message.getContent());
+                    message.setSentCount(message.getSentCount() + 1);
+                    sent++;
+                    // 每条保存进度并续租，宕机或重新领取后从断点继续
+                    LocalDateTime renewed = leaseUntil(LocalDateTime.now());
+                    if (outboxRepository.updateProgress(message.getId(), lease, message.getSentCount(), renewed) == 0) {
+                        lease = null;
+                        break;
+                    }
+                    lease = renewed;
+                }
+                if (lease == null) {
+                    log.warn("短信租约已被其他节点重新领取，停止发送 - ID: {}, 已发送: {}",
+                            message.getId(), message.getSentCount());
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                if (message.getSentCount() >= phones.length) {
+                    markSent(message, now);
+                } else {
+                    // 限流，释放租约等待下一轮
+                    message.setStatus(NotificationStatus.PENDING);
+                    message.setNextAttemptTime(now);
+                }
+            } catch (RuntimeException e) {
+                markFailed(message, e.getMessage(), LocalDateTime.now());
+            }
+            writeBack(message, lease);
+        }
+        log.info("短信发送完成 - 记录数: {}, 发送条数: {}", messages.size(), sent);
+    }
+
+    /**
+     * 领取到期记录并设置租约（独立短事务，发送在事务外进行）
+     */
+    private List<NotificationOutbox> claim(NotificationChannel channel, int limit) {
+        List<NotificationOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> due = outboxRepository.lockDue(channel.name(), now, limit);
+            LocalDateTime lease = leaseUntil(now);
+            for (NotificationOutbox message : due) {
+                message.setStatus(NotificationStatus.SENDING);
+                message.setNextAttemptTime(lease);
+            }
+            return due;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    /**
+     * 租约到期时间，截断到秒，与数据库 DATETIME 精度无关，可按相等比较；
+     * 重新领取只发生在原租约到期之后，新租约一定晚于原租约
+     */
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusSeconds(Math.max(1, leaseSeconds)).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * 回写发送结果，租约已被其他节点重新领取时放弃
+     */
+    private void writeBack(NotificationOutbox message, LocalDateTime lease) {
+        int updated = outboxRepository.updateIfLeased(message.getId(), lease, message.getStatus(),
+                message.getSentCount(), message.getAttempts(), message.getNextAttemptTime(),
+                message.getLastError(), message.getSentTime());
+        if (updated == 0) {
+            log.warn("通知租约已过期并被重新领取，放弃回写 - ID: {}, 渠道: {}, 状态: {}",
+                    message.getId(), message.getChannel(), message.getStatus());
+        }
+    }
+
+    private MimeMessage toMimeMessage(NotificationOutbox message) throws MessagingException {
+        MimeMessage mime = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+        helper.setFrom(fromEmail);
+        String[] recipients = message.getRecipients().split("\n");
+        if (recipients.length == 1) {
+            helper.setTo(recipients[0]);
+        } else {
+            // 多个收件人密送，互相不可见
+            helper.setTo(fromEmail);
+            helper.setBcc(recipients);
+        }
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getContent());
+        return mime;
+    }
+
+    private static void markSent(NotificationOutbox message, LocalDateTime now) {
+        message.setStatus(NotificationStatus.SENT);
+        message.setSentCount(message.getRecipientCount());
+        message.setSentTime(now);
+        message.setLastError(null);
+    }
+
+    private void markFailed(NotificationOutbox message, String error, LocalDateTime now) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(error);
+        if (attempts >= maxAttempts) {
+            message.setStatus(NotificationStatus.FAILED);
+            log.error("通知发送失败，不再重试 - ID: {}, 渠道: {}, 错误: {}", message.getId(), message.getChannel(), error);
+            return;
+        }
+        long delay = Math.min(retryMaxMs, retryInitialMs << Math.min(attempts - 1, 20));
+        message.setStatus(NotificationStatus.PENDING);
+        message.setNextAttemptTime(now.plusNanos(delay * 1_000_000));
+        log.warn("通知发送失败，{} ms 后重试 - ID: {}, 渠道: {}, 第 {} 次, 错误: {}",
+                delay, message.getId(), message.getChannel(), attempts, error);
+    }
+}
@@ -1,27 +1,30 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.zsx.cstfilemanage.domain.cenum.NotificationChannel;
+import com.zsx.cstfilemanage.domain.cenum.NotificationStatus;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.model.entity.NotificationOutbox;
 import com.zsx.cstfilemanage.domain.model.entity.User;
+import com.zsx.cstfilemanage.domain.repository.NotificationOutboxRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 通知服务
+ * 通知写入发件箱（notification_outbox），与调用方的业务事务一同提交，由 NotificationDispatcher 在后台发送；
+ * 调用方不再等待邮件服务器，事务回滚时通知也不会发出。
  */
 @Service
 @Slf4j
 public class NotificationService {
 
-    private final JavaMailSender mailSender;
-    private final SmsService smsService;
-
-    @Value("${spring.mail.from:noreply@example.com}")
-    private String fromEmail;
+    private final NotificationOutboxRepository outboxRepository;
 
     @Value("${notification.email.enabled:true}")
     private boolean emailEnabled;
@@ -29,9 +32,20 @@ public class NotificationService {
     @Value("${notification.sms.enabled:false}")
     private boolean smsEnabled;
 
-    public NotificationService(JavaMailSender mailSender, SmsService smsService) {
-        this.mailSender = mailSender;
-        this.smsService = smsService;
+    /**
+     * 每封邮件的收件人数（多人时密送）
+     */
+    @Value("${notification.email.batch-size:50}")
+    private int emailBatchSize;
+
+    /**
+     * 每条发件箱记录的短信收件人数
+     */
+    @Value("${notification.sms.batch-size:100}")
+    private int smsBatchSize;
+
+    public NotificationService(NotificationOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
     }
 
     /**
@@ -53,10 +67,7 @@ public class NotificationService {
             document.getCompilerName()
         );
 
-        sendEmail(approver.getEmail(), subject, content);
-        if (smsEnabled && approver.getPhone() != null) {
-            sendSms(approver.getPhone(), content);
-        }
+        enqueue(List.of(approver), subject, content);
     }
 
     /**
@@ -77,10 +88,7 @@ public class NotificationService {
             document.getFileName()
         );
 
-        sendEmail(uploader.getEmail(), subject, content);
-        if (smsEnabled && uploader.getPhone() != null) {
-            sendSms(uploader.getPhone(), content);
-        }
+        enqueue(List.of(uploader), subject, content);
     }
 
     /**
@@ -102,10 +110,7 @@ public class NotificationService {
             reason != null ? reason : "无"
         );
 
-        sendEmail(uploader.getEmail(), subject, content);
-        if (smsEnabled && uploader.getPhone() != null) {
-            sendSms(uploader.getPhone(), content);
-        }
+        enqueue(List.of(uploader), subject, content);
     }
 
     /**
@@ -126,51 +131,52 @@ public class NotificationService {
             distributorName
         );
 
-        for (User receiver : receivers) {
-            sendEmail(receiver.getEmail(), subject, content);
-            if (smsEnabled && receiver.getPhone() != null) {
-                sendSms(receiver.getPhone(), content);
-            }
-        }
+        enqueue(receivers, subject, content);
     }
 
     /**
-     * 发送邮件
+     * 按渠道写入发件箱，收件人去重后按批拆分
      */
-    private void sendEmail(String to, String subject, String content) {
-        if (!emailEnabled || to == null || to.isEmpty()) {
-            log.debug("邮件发送已禁用或收件人为空，跳过发送");
-            return;
+    private void enqueue(List<User> users, String subject, String content) {
+        if (emailEnabled) {
+            Set<String> emails = new LinkedHashSet<>();
+            for (User user : users) {
+                if (user.getEmail() != null && !user.getEmail().isEmpty()) {
+                    emails.add(user.getEmail());
+                }
+            }
+            enqueue(NotificationChannel.EMAIL, new ArrayList<>(emails), emailBatchSize, subject, content);
         }
-
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(content);
-            mailSender.send(message);
-            log.info("邮件发送成功: {}", to);
-        } catch (Exception e) {
-            log.error("邮件发送失败: {}", e.getMessage(), e);
+        if (smsEnabled) {
+            Set<String> phones = new LinkedHashSet<>();
+            for (User user : users) {
+                if (user.getPhone() != null && !user.getPhone().isEmpty()) {
+                    phones.add(user.getPhone());
+                }
+            }
+            enqueue(NotificationChannel.SMS, new ArrayList<>(phones), smsBatchSize, null, content);
         }
     }
 
-    /**
-     * 发送短信
-     */
-    private void sendSms(String phone, String content) {
-        if (!smsEnabled || phone == null || phone.isEmpty()) {
-            log.debug("短信发送已禁用或手机号为空，跳过发送");
+    private void enqueue(NotificationChannel channel, List<String> recipients, int batchSize,
+                         String subject, String content) {
+        if (recipients.isEmpty()) {
+            log.debug("通知收件人为空，跳过 - 渠道: {}", channel);
             return;
         }
-
-        try {
-            smsService.sendSms(phone, content);
-            log.info("短信发送成功: {}", phone);
-        } catch (Exception e) {
-            log.error("短信发送失败: {}", e.getMessage(), e);
+        List<NotificationOutbox> messages = new ArrayList<>();
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<String> batch = recipients.subList(from, Math.min(recipients.size(), from + batchSize));
+            NotificationOutbox message = new NotificationOutbox();
+            message.setChannel(channel);
+            message.setStatus(NotificationStatus.PENDING);
+            message.setRecipients(String.join("\n", batch));
+            message.setRecipientCount(batch.size());
+            message.setSubject(subject);
+            message.setContent(content);
+            messages.add(message);
         }
+        outboxRepository.saveAll(messages);
+        log.info("通知已写入发件箱 - 渠道: {}, 收件人数: {}, 记录数: {}", channel, recipients.size(), messages.size());
     }
 }
-
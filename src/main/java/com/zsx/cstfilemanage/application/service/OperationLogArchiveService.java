@@ -0,0 +1,320 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.OperationType;
+import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+import com.zsx.cstfilemanage.infrastructure.oplog.LogArchiveFile;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 操作日志归档（冷数据）
+ * 超出在线保留期的月份按月写入列式归档文件（uploads/.archive/oplog/oplog-YYYY-MM.ola），
+ * 查询时按月份和行组时间范围裁剪后只解压过滤列；各行组的命中数缓存在内存中，翻页时跳过前面的行组无需重新解压。
+ * 归档边界为最新归档月份的下一月第一天：边界之前的数据以归档文件为准，之后的以数据库为准。
+ */
+@Service
+@Slf4j
+public class OperationLogArchiveService {
+
+    private static final String ARCHIVE_DIR = ".archive/oplog";
+    private static final String FILE_PREFIX = "oplog-";
+    private static final String FILE_SUFFIX = ".ola";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final LocalFileStore fileStore;
+    private final Cache<String, List<LogArchiveFile.RowGroup>> footerCache = Caffeine.newBuilder()
+            .maximumSize(200)
+            .build();
+    private final Cache<String, Integer> matchCountCache = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    /**
+     * 已归档月份（新到旧）
+     */
+    private volatile List<YearMonth> months = List.of();
+
+    public OperationLogArchiveService(LocalFileStore fileStore) {
+        this.fileStore = fileStore;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (IOException e) {
+            log.warn("读取日志归档目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 归档边界，没有归档时返回 null
+     */
+    public LocalDateTime getBoundary() {
+        List<YearMonth> current = months;
+        return current.isEmpty() ? null : current.get(0).plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    public List<YearMonth> getArchivedMonths() {
+        return months;
+    }
+
+    /**
+     * 归档中符合条件的日志总数
+     */
+    public long count(Long userId, OperationType operationType, LocalDateTime startTime, LocalDateTime endTime) {
+        LogArchiveFile.Filter filter = new LogArchiveFile.Filter(userId, operationType, startTime, endTime);
+        long total = 0;
+        try {
+            for (YearMonth month : months) {
+                if (!overlaps(month, startTime, endTime)) {
+                    continue;
+                }
+                Path path = archivePath(month);
+                List<LogArchiveFile.RowGroup> groups = rowGroups(path);
+                for (int i = 0; i < groups.size(); i++) {
+                    if (groups.get(i).overlaps(startTime, endTime)) {
+                        total += matchCount(path, groups, i, filter, userId, operationType, startTime, endTime);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("读取日志归档失败", e);
+            throw new BizException(ErrorCode.LOG_ARCHIVE_UNAVAILABLE);
+        }
+        return total;
+    }
+
+    /**
+     * 按创建时间倒序查询归档日志
+     *
+     * @param offset 在归档命中结果中的偏移
+     * @param limit  最多返回条数
+     */
+    public List<OperationLog> search(Long userId,
+                                     OperationType operationType,
+                                     LocalDateTime startTime,
+                                     LocalDateTime endTime,
+                                     long offset,
+                                     int limit) {
+        LogArchiveFile.Filter filter = new LogArchiveFile.Filter(userId, operationType, startTime, endTime);
+        List<OperationLog> result = new ArrayList<>(limit);
+        long skip = offset;
+        try {
+            for (YearMonth month : months) {
+                if (!overlaps(month, startTime, endTime)) {
+                    continue;
+                }
+                Path path = archivePath(month);
+                List<LogArchiveFile.RowGroup> groups = rowGroups(path);
+                for (int i = 0; i < groups.size(); i++) {
+                    LogArchiveFile.RowGroup group = groups.get(i);
+                    if (!group.overlaps(startTime, endTime)) {
+                        continue;
+                    }
+                    int count = matchCount(path, groups, i, filter, userId, operationType, startTime, endTime);
+                    if (skip >= count) {
+                        skip -= count;
+                        continue;
+                    }
+                    int[] rows = LogArchiveFile.match(path, group, filter);
+                    int from = (int) skip;
+                    int to = Math.min(rows.length, from + limit - result.size());
+                    result.addAll(LogArchiveFile.read(path, group, Arrays.copyOfRange(rows, from, to)));
+                    skip = 0;
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("读取日志归档失败", e);
+            throw new BizException(ErrorCode.LOG_ARCHIVE_UNAVAILABLE);
+        }
+        return result;
+    }
+
+    /**
+     * 按 (createTime, id) 倒序游标查询归档日志，返回排在游标之后的记录
+     * 归档内部按偏移定位，游标所在时间点的记录先多读再按 id 过滤
+     *
+     * @param cursorTime 上一批最后一条的创建时间，为空表示从头开始
+     * @param cursorId   上一批最后一条的 ID
+     */
+    public List<OperationLog> seek(Long userId,
+                                   OperationType operationType,
+                                   LocalDateTime startTime,
+                                   LocalDateTime endTime,
+                                   LocalDateTime cursorTime,
+                                   Long cursorId,
+                                   int limit) {
+        LocalDateTime end = endTime;
+        if (cursorTime != null) {
+            // 结束时间不含边界，放宽 1 毫秒以包含与游标同一时间的记录
+            LocalDateTime afterCursor = cursorTime.plusNanos(1_000_000);
+            end = end == null || afterCursor.isBefore(end) ? afterCursor : end;
+        }
+        List<OperationLog> result = new ArrayList<>(limit);
+        long offset = 0;
+        while (true) {
+            List<OperationLog> rows = search(userId, operationType, startTime, end, offset, limit);
+            for (OperationLog row : rows) {
+                if (cursorTime == null || row.getCreateTime().isBefore(cursorTime)
+                        || (row.getCreateTime().equals(cursorTime) && row.getId() < cursorId)) {
+                    result.add(row);
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+            if (rows.size() < limit) {
+                return result;
+            }
+            offset += rows.size();
+        }
+    }
+
+    /**
+     * 某月的归档文件路径（可能不存在）
+     */
+    public Path archivePath(YearMonth month) {
+        return fileStore.resolve(ARCHIVE_DIR + "/" + FILE_PREFIX + month.format(MONTH_FORMAT) + FILE_SUFFIX);
+    }
+
+    /**
+     * 某月归档的临时文件路径，写完并校验后通过 {@link #publish} 生效
+     */
+    public Path tempPath(YearMonth month) throws IOException {
+        Path path = archivePath(month);
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        return temp;
+    }
+
+    /**
+     * 原子替换为正式归档文件并刷新归档边界
+     */
+    public void publish(YearMonth month, Path temp) throws IOException {
+        Files.move(temp, archivePath(month), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        refresh();
+    }
+
+    /**
+     * 删除指定月份之前的归档文件
+     *
+     * @return 删除的文件数
+     */
+    public int purgeBefore(YearMonth month) throws IOException {
+        int deleted = 0;
+        for (YearMonth archived : months) {
+            if (archived.isBefore(month)) {
+                Files.deleteIfExists(archivePath(archived));
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            refresh();
+        }
+        return deleted;
+    }
+
+    /**
+     * 重新扫描归档目录（忽略未完成的临时文件）
+     */
+    public synchronized void refresh() throws IOException {
+        Path dir = fileStore.resolve(ARCHIVE_DIR);
+        if (!Files.isDirectory(dir)) {
+            months = List.of();
+            return;
+        }
+        List<YearMonth> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(FILE_SUFFIX + ".tmp")) {
+                    continue;
+                }
+                if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    found.add(YearMonth.parse(
+                            name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()), MONTH_FORMAT));
+                } catch (DateTimeParseException e) {
+                    log.warn("忽略无法识别的归档文件: {}", name);
+                }
+            }
+        }
+        found.sort(Comparator.reverseOrder());
+        months = List.copyOf(found);
+    }
+
+    private List<LogArchiveFile.RowGroup> rowGroups(Path path) throws IOException {
+        String key = path + "@" + Files.getLastModifiedTime(path).toMillis();
+        try {
+            return footerCache.get(key, k -> {
+                try {
+                    return LogArchiveFile.readRowGroups(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private int matchCount(Path path, List<LogArchiveFile.RowGroup> groups, int index, LogArchiveFile.Filter filter,
+                           Long userId, OperationType operationType, LocalDateTime startTime, LocalDateTime endTime)
+            throws IOException {
+        LogArchiveFile.RowGroup group = groups.get(index);
+        if (userId == null && operationType == null
+                && (startTime == null || group.getMinTime().compareTo(startTime) >= 0)
+                && (endTime == null || group.getMaxTime().isBefore(endTime))) {
+            return group.getRowCount();
+        }
+        String key = String.join("|", path.toString(), String.valueOf(Files.getLastModifiedTime(path).toMillis()),
+                String.valueOf(index), Objects.toString(userId), Objects.toString(operationType),
+                Objects.toString(startTime), Objects.toString(endTime));
+        try {
+            return matchCountCache.get(key, k -> {
+                try {
+                    return LogArchiveFile.match(path, group, filter).length;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean overlaps(YearMonth month, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+        return (startTime == null || monthEnd.isAfter(startTime)) && (endTime == null || monthStart.isBefore(endTime));
+    }
+}
@@ -0,0 +1,328 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.cenum.OperationType;
+import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+import com.zsx.cstfilemanage.infrastructure.oplog.LogArchiveFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * 操作日志分级保留
+ * <ul>
+ *     <li>在线：最近 hot-months 个月留在数据库中（表按月分区时每月一个分区 pYYYYMM，提前 premake-months 个月预建）</li>
+ *     <li>归档：更早的月份写入列式归档文件后从数据库移除，分区表直接 DROP PARTITION，未分区时按批 DELETE</li>
+ *     <li>过期：超过 retention-years 年的数据不再归档，已有的归档文件删除</li>
+ * </ul>
+ * 多节点部署时通过 MySQL GET_LOCK 保证同一时刻只有一个节点执行。
+ */
+@Service
+@Slf4j
+public class OperationLogRetentionService {
+
+    private static final String TABLE = "operation_logs";
+    private static final String LOCK_NAME = "cst_file_manage.operation_log_retention";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_COLUMNS = "SELECT id, user_id, user_name, operation_type, operation_content, "
+            + "object_type, object_id, result, error_message, ip_address, user_agent, create_time FROM " + TABLE;
+
+    private static final RowMapper<OperationLog> ROW_MAPPER = (rs, rowNum) -> {
+        OperationLog entry = new OperationLog();
+        entry.setId(rs.getLong("id"));
+        entry.setUserId(rs.getLong("user_id"));
+        entry.setUserName(rs.getString("user_name"));
+        entry.setOperationType(OperationType.valueOf(rs.getString("operation_type")));
+        entry.setOperationContent(rs.getString("operation_content"));
+        entry.setObjectType(rs.getString("object_type"));
+        entry.setObjectId(rs.getObject("object_id", Long.class));
+        entry.setResult(rs.getString("result"));
+        entry.setErrorMessage(rs.getString("error_message"));
+        entry.setIpAddress(rs.getString("ip_address"));
+        entry.setUserAgent(rs.getString("user_agent"));
+        entry.setCreateTime(rs.getObject("create_time", LocalDateTime.class));
+        return entry;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OperationLogArchiveService archiveService;
+
+    @Value("${operation-log.retention.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 数据库中保留的月数（含当月）
+     */
+    @Value("${operation-log.retention.hot-months:12}")
+    private int hotMonths;
+
+    /**
+     * 总保留年限（数据库 + 归档）
+     */
+    @Value("${operation-log.retention.retention-years:3}")
+    private int retentionYears;
+
+    /**
+     * 提前预建的分区月数
+     */
+    @Value("${operation-log.retention.premake-months:3}")
+    private int premakeMonths;
+
+    /**
+     * 未分区表是否自动改为按月分区（会重建整张表）
+     */
+    @Value("${operation-log.retention.auto-convert:false}")
+    private boolean autoConvert;
+
+    @Value("${operation-log.retention.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${operation-log.retention.delete-batch-size:5000}")
+    private int deleteBatchSize;
+
+    @Value("${operation-log.retention.row-group-size:16384}")
+    private int rowGroupSize;
+
+    public OperationLogRetentionService(JdbcTemplate jdbcTemplate, OperationLogArchiveService archiveService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveService = archiveService;
+    }
+
+    @Scheduled(cron = "${operation-log.retention.cron:0 30 2 * * ?}")
+    public void scheduledRun() {
+        if (enabled) {
+            runOnce();
+        }
+    }
+
+    /**
+     * 执行一次分区维护、归档与清理
+     *
+     * @return 是否执行（其他节点正在执行时返回 false）
+     */
+    public boolean runOnce() {
+        Boolean executed = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!acquireLock(connection)) {
+                log.info("日志保留任务正在其他节点执行，跳过");
+                return false;
+            }
+            try {
+                long start = System.currentTimeMillis();
+                maintain(YearMonth.now());
+                log.info("日志保留任务完成 - 耗时: {} ms", System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("日志保留任务失败", e);
+            } finally {
+                releaseLock(connection);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(executed);
+    }
+
+    private void maintain(YearMonth current) throws IOException {
+        Set<String> partitions = partitions();
+        if (partitions.isEmpty() && autoConvert) {
+            convertToPartitioned(current);
+            partitions = partitions();
+        }
+        if (!partitions.isEmpty()) {
+            premakePartitions(partitions, current);
+        }
+
+        YearMonth hotStart = current.minusMonths(hotMonths - 1L);
+        YearMonth retentionStart = current.minusYears(retentionYears);
+        LocalDateTime oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(create_time) FROM " + TABLE, LocalDateTime.class);
+        if (oldest != null) {
+            // 从最早的月份开始，任一月份归档失败即停止，保证归档边界之前的数据都已归档
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(hotStart); month = month.plusMonths(1)) {
+                if (!month.isBefore(retentionStart)) {
+                    archiveMonth(month);
+                }
+                removeMonth(month, partitions);
+            }
+        }
+
+        int purged = archiveService.purgeBefore(retentionStart);
+        if (purged > 0) {
+            log.info("已删除过期日志归档 - 文件数: {}", purged);
+        }
+    }
+
+    /**
+     * 把某月的日志写入归档文件，校验行数一致后生效
+     */
+    private void archiveMonth(YearMonth month) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        Long expected = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE create_time >= ? AND create_time < ?", Long.class, from, to);
+        if (expected == null || expected == 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path temp = archiveService.tempPath(month);
+        try {
+            try (LogArchiveFile.Writer writer = new LogArchiveFile.Writer(temp, rowGroupSize)) {
+                List<OperationLog> batch = jdbcTemplate.query(SELECT_COLUMNS
+                                + " WHERE create_time >= ? AND create_time < ? ORDER BY create_time DESC, id DESC LIMIT ?",
+                        ROW_MAPPER, from, to, fetchSize);
+                while (!batch.isEmpty()) {
+                    for (OperationLog entry : batch) {
+                        writer.write(entry);
+                    }
+                    if (batch.size() < fetchSize) {
+                        break;
+                    }
+                    OperationLog last = batch.get(batch.size() - 1);
+                    batch = jdbcTemplate.query(SELECT_COLUMNS
+                                    + " WHERE create_time >= ? AND (create_time < ? OR (create_time = ? AND id < ?))"
+                                    + " ORDER BY create_time DESC, id DESC LIMIT ?",
+                            ROW_MAPPER, from, last.getCreateTime(), last.getCreateTime(), last.getId(), fetchSize);
+                }
+                writer.finish();
+            }
+            long written = LogArchiveFile.countRows(temp);
+            if (written != expected) {
+                throw new IllegalStateException("归档行数不一致 - 月份: " + month + ", 数据库: " + expected + ", 归档: " + written);
+            }
+            archiveService.publish(month, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("日志归档完成 - 月份: {}, 行数: {}, 耗时: {} ms", month, expected, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 从数据库移除某月的日志：有对应分区时直接删除分区，否则按批删除
+     */
+    private void removeMonth(YearMonth month, Set<String> partitions) {
+        String partition = month.format(PARTITION_FORMAT);
+        if (partitions.remove(partition)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+            log.info("已删除日志分区: {}", partition);
+            return;
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE create_time >= ? AND create_time < ? LIMIT ?",
+                    from, to, deleteBatchSize);
+            total += deleted;
+        } while (deleted >= deleteBatchSize);
+        if (total > 0) {
+            log.info("已删除日志 - 月份: {}, 行数: {}", month, total);
+        }
+    }
+
+    /**
+     * 从 pmax 拆分出当前月至未来 premake-months 个月中缺少的分区
+     */
+    private void premakePartitions(Set<String> partitions, YearMonth current) {
+        if (!partitions.contains(MAX_PARTITION)) {
+            log.warn("日志表缺少 {} 分区，跳过预建分区", MAX_PARTITION);
+            return;
+        }
+        YearMonth last = null;
+        for (String name : partitions) {
+            if (!MAX_PARTITION.equals(name)) {
+                YearMonth month = YearMonth.parse(name, PARTITION_FORMAT);
+                last = last == null || month.isAfter(last) ? month : last;
+            }
+        }
+        YearMonth first = last == null ? current : last.plusMonths(1);
+        YearMonth until = current.plusMonths(premakeMonths);
+        if (first.isAfter(until)) {
+            return;
+        }
+        StringJoiner definitions = new StringJoiner(", ");
+        for (YearMonth month = first; !month.isAfter(until); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+            partitions.add(month.format(PARTITION_FORMAT));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION
+                + " INTO (" + definitions + ")");
+        log.info("已预建日志分区: {} ~ {}", first, until);
+    }
+
+    /**
+     * 把未分区的日志表改为按月分区，主键改为 (id, create_time)
+     */
+    private void convertToPartitioned(YearMonth current) {
+        LocalDateTime oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(create_time) FROM " + TABLE, LocalDateTime.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest) : current;
+        StringJoiner definitions = new StringJoiner(", ");
+        for (YearMonth month = first; !month.isAfter(current.plusMonths(premakeMonths)); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        log.warn("开始将日志表改为按月分区，期间会重建整张表");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS (create_time) (" + definitions + ")");
+        log.info("日志表已改为按月分区 - 起始月份: {}", first);
+    }
+
+    private Set<String> partitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, TABLE);
+        Set<String> partitions = new HashSet<>();
+        for (String name : names) {
+            // 只管理本服务命名规则的分区
+            if (MAX_PARTITION.equals(name) || name.matches("p\\d{6}")) {
+                partitions.add(name);
+            }
+        }
+        return partitions;
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_FORMAT) + " VALUES LESS THAN ('"
+                + month.plusMonths(1).atDay(1).atStartOfDay().format(BOUND_FORMAT) + "')";
+    }
+
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            statement.setString(1, LOCK_NAME);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("释放日志保留任务锁失败: {}", e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.zsx.cstfilemanage.common.util.PageCursor;
 import com.zsx.cstfilemanage.domain.cenum.OperationType;
 import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
 import com.zsx.cstfilemanage.domain.repository.OperationLogRepository;
+import com.zsx.cstfilemanage.infrastructure.oplog.OperationLogWriter;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.interfaces.http.response.CursorPageResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 操作日志服务
@@ -17,16 +25,33 @@ import java.time.LocalDateTime;
 @Service
 public class OperationLogService {
 
+    /**
+     * 游标分页单页条数上限
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
     private final OperationLogRepository operationLogRepository;
+    private final OperationLogWriter operationLogWriter;
+    private final OperationLogArchiveService archiveService;
+    private final OperationLogRetentionService retentionService;
 
-    public OperationLogService(OperationLogRepository operationLogRepository) {
+    @Value("${operation-log.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    public OperationLogService(OperationLogRepository operationLogRepository,
+                               OperationLogWriter operationLogWriter,
+                               OperationLogArchiveService archiveService,
+                               OperationLogRetentionService retentionService) {
         this.operationLogRepository = operationLogRepository;
+        this.operationLogWriter = operationLogWriter;
+        this.archiveService = archiveService;
+        this.retentionService = retentionService;
     }
 
     /**
      * 记录操作日志
+     * 默认交给异步写入器批量落库，调用线程不访问数据库；异步写入关闭或未启动时同步保存
      */
-    @Transactional
     public void logOperation(OperationType operationType,
                             String operationContent,
                             String objectType,
@@ -49,29 +74,128 @@ public class OperationLogService {
         log.setErrorMessage(errorMessage);
         log.setIpAddress(ipAddress);
         log.setUserAgent(userAgent);
+        // 异步写入不经过 JPA，创建时间在调用时确定
+        log.setCreateTime(LocalDateTime.now());
 
-        operationLogRepository.save(log);
+        if (asyncEnabled && operationLogWriter.isRunning()) {
+            operationLogWriter.append(log);
+        } else {
+            operationLogRepository.save(log);
+        }
     }
 
     /**
      * 查询日志
+     * 查询范围早于归档边界时合并数据库与归档文件的结果：按创建时间倒序，先数据库后归档，总数为两者之和
      */
     public Page<OperationLog> searchLogs(Long userId,
                                         OperationType operationType,
                                         LocalDateTime startTime,
                                         LocalDateTime endTime,
                                         Pageable pageable) {
-        return operationLogRepository.searchLogs(userId, operationType, startTime, endTime, pageable);
+        LocalDateTime boundary = archiveService.getBoundary();
+        if (boundary == null || (startTime != null && !startTime.isBefore(boundary))) {
+            return operationLogRepository.searchLogs(userId, operationType, startTime, endTime, pageable);
+        }
+
+        // 归档边界之前的数据以归档为准，数据库只查边界之后（归档后、删除前的数据不会重复）
+        Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "createTime", "id"));
+        List<OperationLog> content = new ArrayList<>(pageable.getPageSize());
+        long dbTotal = 0;
+        if (endTime == null || endTime.isAfter(boundary)) {
+            Page<OperationLog> hot = operationLogRepository.searchLogs(
+                    userId, operationType, boundary, endTime, sorted);
+            content.addAll(hot.getContent());
+            dbTotal = hot.getTotalElements();
+        }
+        LocalDateTime archiveEnd = endTime != null && endTime.isBefore(boundary) ? endTime : boundary;
+        if (content.size() < pageable.getPageSize()) {
+            long archiveOffset = Math.max(0, pageable.getOffset() - dbTotal);
+            content.addAll(archiveService.search(userId, operationType, startTime, archiveEnd,
+                    archiveOffset, pageable.getPageSize() - content.size()));
+        }
+        long archiveTotal = archiveService.count(userId, operationType, startTime, archiveEnd);
+        return new PageImpl<>(content, sorted, dbTotal + archiveTotal);
+    }
+
+    /**
+     * 查询日志（游标分页）
+     * 按创建时间倒序，cursor 为上一页返回的 nextCursor；withTotal 为 true 时额外执行一次 COUNT
+     */
+    public CursorPageResponse<OperationLog> seekLogs(Long userId,
+                                                     OperationType operationType,
+                                                     LocalDateTime startTime,
+                                                     LocalDateTime endTime,
+                                                     String cursor,
+                                                     int size,
+                                                     boolean withTotal) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        List<OperationLog> rows = seekLogs(userId, operationType, startTime, endTime,
+                position != null ? position.getCreateTime() : null,
+                position != null ? position.getId() : null,
+                limit + 1);
+        Long total = withTotal ? countLogs(userId, operationType, startTime, endTime) : null;
+        return CursorPageResponse.of(rows, limit,
+                entry -> new PageCursor(entry.getCreateTime(), entry.getId()), total);
+    }
+
+    /**
+     * 按 (createTime, id) 倒序游标读取一批日志，返回排在游标之后的最多 limit 条
+     * 查询范围早于归档边界时先读数据库中边界之后的部分，再接着读归档文件
+     */
+    public List<OperationLog> seekLogs(Long userId,
+                                       OperationType operationType,
+                                       LocalDateTime startTime,
+                                       LocalDateTime endTime,
+                                       LocalDateTime cursorTime,
+                                       Long cursorId,
+                                       int limit) {
+        LocalDateTime boundary = archiveService.getBoundary();
+        if (boundary == null || (startTime != null && !startTime.isBefore(boundary))) {
+            return operationLogRepository.seekLogs(userId, operationType, startTime, endTime,
+                    cursorTime, cursorId, PageRequest.of(0, limit));
+        }
+
+        // 游标已进入归档范围时数据库部分已读完
+        boolean cursorInArchive = cursorTime != null && cursorTime.isBefore(boundary);
+        List<OperationLog> rows = new ArrayList<>(limit);
+        if (!cursorInArchive && (endTime == null || endTime.isAfter(boundary))) {
+            rows.addAll(operationLogRepository.seekLogs(userId, operationType, boundary, endTime,
+                    cursorTime, cursorId, PageRequest.of(0, limit)));
+        }
+        if (rows.size() < limit) {
+            LocalDateTime archiveEnd = endTime != null && endTime.isBefore(boundary) ? endTime : boundary;
+            rows.addAll(archiveService.seek(userId, operationType, startTime, archiveEnd,
+                    cursorInArchive ? cursorTime : null, cursorInArchive ? cursorId : null, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    /**
+     * 符合条件的日志总数（含归档）
+     */
+    public long countLogs(Long userId, OperationType operationType, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime boundary = archiveService.getBoundary();
+        if (boundary == null || (startTime != null && !startTime.isBefore(boundary))) {
+            return operationLogRepository.countLogs(userId, operationType, startTime, endTime);
+        }
+        long dbTotal = endTime == null || endTime.isAfter(boundary)
+                ? operationLogRepository.countLogs(userId, operationType, boundary, endTime)
+                : 0;
+        LocalDateTime archiveEnd = endTime != null && endTime.isBefore(boundary) ? endTime : boundary;
+        return dbTotal + archiveService.count(userId, operationType, startTime, archiveEnd);
     }
 
     /**
-     * 清理过期日志（保留3年）
+     * 清理过期日志
+     * 立即执行一次分级保留任务（归档超出在线期的月份、删除超过保留年限的数据），平时由定时任务执行
+     *
+     * @return 是否执行（其他节点正在执行时返回 false）
      */
-    @Transactional
-    public void cleanExpiredLogs() {
-        LocalDateTime threeYearsAgo = LocalDateTime.now().minusYears(3);
-        // 实际应该使用批量删除，这里简化处理
-        // operationLogRepository.deleteAll(operationLogRepository.findLogsBefore(threeYearsAgo));
+    public boolean cleanExpiredLogs() {
+        return retentionService.runOnce();
     }
 }
 
@@ -2,18 +2,23 @@ package com.zsx.cstfilemanage.application.service;
 
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.event.PermissionChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.Permission;
 import com.zsx.cstfilemanage.domain.model.entity.Role;
 import com.zsx.cstfilemanage.domain.model.entity.RolePermission;
 import com.zsx.cstfilemanage.domain.repository.PermissionRepository;
 import com.zsx.cstfilemanage.domain.repository.RolePermissionRepository;
 import com.zsx.cstfilemanage.domain.repository.RoleRepository;
-import com.zsx.cstfilemanage.domain.repository.UserRoleRepository;
+import com.zsx.cstfilemanage.infrastructure.security.PermissionCache;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -28,76 +33,62 @@ public class PermissionService {
     private final PermissionRepository permissionRepository;
     private final RoleRepository roleRepository;
     private final RolePermissionRepository rolePermissionRepository;
-    private final UserRoleRepository userRoleRepository;
+    private final PermissionCache permissionCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public PermissionService(PermissionRepository permissionRepository,
                             RoleRepository roleRepository,
                             RolePermissionRepository rolePermissionRepository,
-                            UserRoleRepository userRoleRepository) {
+                            PermissionCache permissionCache,
+                            ApplicationEventPublisher eventPublisher) {
         this.permissionRepository = permissionRepository;
         this.roleRepository = roleRepository;
         this.rolePermissionRepository = rolePermissionRepository;
-        this.userRoleRepository = userRoleRepository;
+        this.permissionCache = permissionCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * 检查用户是否拥有指定权限
+     * 检查用户是否拥有指定权限（走权限缓存）
      */
     public boolean hasPermission(Long userId, String permissionCode) {
-        // 获取用户的所有角色
-        List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
-        if (roleIds.isEmpty()) {
-            return false;
-        }
+        return permissionCache.hasPermission(userId, permissionCode);
+    }
 
-        // 查找权限
-        Permission permission = permissionRepository.findByPermissionCode(permissionCode);
-        if (permission == null) {
+    /**
+     * 检查当前用户是否拥有指定权限
+     * Token 携带权限且版本校验通过时直接按 Token 中的权限判断
+     */
+    public boolean hasPermission(String permissionCode) {
+        SecurityContext.UserInfo user = SecurityContext.getCurrentUser();
+        if (user == null || user.getUserId() == null) {
             return false;
         }
-
-        // 检查用户角色是否拥有该权限
-        for (Long roleId : roleIds) {
-            if (rolePermissionRepository.existsByRoleIdAndPermissionId(roleId, permission.getId())) {
-                return true;
-            }
+        if (user.getPermissions() != null) {
+            return permissionCache.contains(user.getPermissions(), permissionCode);
         }
-
-        return false;
+        return hasPermission(user.getUserId(), permissionCode);
     }
 
     /**
-     * 检查当前用户是否拥有指定权限
+     * 当前权限版本号及对应的权限位图，用于签发携带权限的Token
+     * 先取版本号再取权限，期间发生变更时版本号偏旧，Token 会在下次请求时被判定过期
+     *
+     * @return 无法读取版本号时返回 null
      */
-    public boolean hasPermission(String permissionCode) {
-        Long userId = SecurityContext.getCurrentUserId();
-        if (userId == null) {
-            return false;
+    public TokenPermissions getTokenPermissions(Long userId) {
+        Long version = permissionCache.getVersion(userId);
+        if (version == null) {
+            return null;
         }
-        return hasPermission(userId, permissionCode);
+        return new TokenPermissions(permissionCache.getPermissions(userId), version);
     }
 
     /**
      * 获取用户的所有权限代码
      */
     public Set<String> getUserPermissions(Long userId) {
-        // 获取用户的所有角色
-        List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
-        if (roleIds.isEmpty()) {
-            return Set.of();
-        }
-
-        // 获取所有角色的权限ID
-        Set<Long> permissionIds = roleIds.stream()
-                .flatMap(roleId -> rolePermissionRepository.findPermissionIdsByRoleId(roleId).stream())
-                .collect(Collectors.toSet());
-
-        // 获取权限代码
-        return permissionIds.stream()
-                .map(permissionId -> permissionRepository.findById(permissionId).orElse(null))
-                .filter(permission -> permission != null)
-                .map(Permission::getPermissionCode)
-                .collect(Collectors.toSet());
+        return permissionCache.getPermissionCodes(userId);
     }
 
     /**
@@ -124,6 +115,8 @@ public class PermissionService {
                 rolePermissionRepository.save(rolePermission);
             }
         }
+
+        eventPublisher.publishEvent(PermissionChangedEvent.ofRole(roleId));
     }
 
     /**
@@ -146,7 +139,9 @@ public class PermissionService {
         if (permissionRepository.findByPermissionCode(permission.getPermissionCode()) != null) {
             throw new BizException(ErrorCode.PERMISSION_CODE_EXISTS);
         }
-        return permissionRepository.save(permission);
+        Permission saved = permissionRepository.save(permission);
+        eventPublisher.publishEvent(PermissionChangedEvent.ofDefinitions());
+        return saved;
     }
 
     /**
@@ -188,5 +183,14 @@ public class PermissionService {
         // 构建权限树（简化实现，实际可以递归构建）
         return allPermissions;
     }
-}
 
+    /**
+     * Token 中携带的权限
+     */
+    @Data
+    @AllArgsConstructor
+    public static class TokenPermissions {
+        private BitSet permissions;
+        private Long version;
+    }
+}
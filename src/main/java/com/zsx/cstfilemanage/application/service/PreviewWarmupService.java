@@ -0,0 +1,102 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 预览预热服务
+ * 文档审批通过或下发时，在后台预先生成缩略图、首页预览和提取文本，接收人首次打开时直接命中缓存。
+ * 同一文档排队中只保留一个任务；队列满时丢弃，由首次访问按需渲染。
+ */
+@Service
+@Slf4j
+public class PreviewWarmupService {
+
+    private final DocumentRepository documentRepository;
+    private final FilePreviewService previewService;
+    private final ThumbnailService thumbnailService;
+    private final TextExtractionService textExtractionService;
+    private final ThreadPoolExecutor warmupExecutor;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public PreviewWarmupService(DocumentRepository documentRepository,
+                                FilePreviewService previewService,
+                                ThumbnailService thumbnailService,
+                                TextExtractionService textExtractionService,
+                                @Qualifier("warmupExecutor") ThreadPoolExecutor warmupExecutor) {
+        this.documentRepository = documentRepository;
+        this.previewService = previewService;
+        this.thumbnailService = thumbnailService;
+        this.textExtractionService = textExtractionService;
+        this.warmupExecutor = warmupExecutor;
+    }
+
+    /**
+     * 文档变更时排队预热（仅入队，不阻塞业务事务）
+     */
+    @EventListener
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getChangeType() == DocumentChangeType.APPROVED
+                || event.getChangeType() == DocumentChangeType.DISTRIBUTED) {
+            submit(event.getDocumentId());
+        }
+    }
+
+    /**
+     * 提交预热任务
+     *
+     * @return 是否成功入队（已在队列中或队列已满时返回 false）
+     */
+    public boolean submit(Long documentId) {
+        if (!pending.add(documentId)) {
+            log.debug("预热任务已在队列中 - 文档ID: {}", documentId);
+            return false;
+        }
+        try {
+            warmupExecutor.execute(() -> {
+                pending.remove(documentId);
+                warm(documentId);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(documentId);
+            log.warn("预热队列已满，跳过 - 文档ID: {}", documentId);
+            return false;
+        }
+    }
+
+    private void warm(Long documentId) {
+        Document document = documentRepository.findById(documentId).orElse(null);
+        if (document == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            if (document.getThumbnailPath() == null && ThumbnailService.isSupported(document.getFileType())) {
+                thumbnailService.submit(documentId);
+            }
+            if (document.getFileType() == FileType.PDF) {
+                previewService.getPdfInfo(documentId);
+                previewService.getPdfPreview(documentId);
+            }
+            if (textExtractionService.isSupported(document)) {
+                textExtractionService.ensureExtracted(document);
+            }
+            log.info("文档预热完成 - 文档ID: {}, 耗时: {} ms", documentId, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("文档预热失败 - 文档ID: {}, 错误: {}", documentId, e.getMessage());
+        }
+    }
+}
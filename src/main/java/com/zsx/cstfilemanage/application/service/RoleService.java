@@ -2,11 +2,13 @@ package com.zsx.cstfilemanage.application.service;
 
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.event.PermissionChangedEvent;
 import com.zsx.cstfilemanage.domain.model.entity.Role;
 import com.zsx.cstfilemanage.domain.model.entity.UserRole;
 import com.zsx.cstfilemanage.domain.repository.RoleRepository;
 import com.zsx.cstfilemanage.domain.repository.UserRoleRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,10 +23,14 @@ public class RoleService {
 
     private final RoleRepository roleRepository;
     private final UserRoleRepository userRoleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public RoleService(RoleRepository roleRepository, UserRoleRepository userRoleRepository) {
+    public RoleService(RoleRepository roleRepository,
+                       UserRoleRepository userRoleRepository,
+                       ApplicationEventPublisher eventPublisher) {
         this.roleRepository = roleRepository;
         this.userRoleRepository = userRoleRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -134,7 +140,8 @@ public class RoleService {
             userRoleRepository.save(userRole);
             log.debug("为用户分配角色 - 已分配角色: {} ({})", roleId, role.getRoleCode());
         }
-        
+
+        eventPublisher.publishEvent(PermissionChangedEvent.ofUser(userId));
         log.info("为用户分配角色成功 - 用户ID: {}, 角色数量: {}", userId, roleIds.size());
         log.debug("=== RoleService.assignRolesToUser 结束 ===");
     }
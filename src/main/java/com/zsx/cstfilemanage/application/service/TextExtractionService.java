@@ -0,0 +1,176 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.infrastructure.text.TextExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文本提取服务
+ * 按内容摘要把提取出的纯文本缓存为 gzip 文件（uploads/.cache/text），
+ * 同一内容只解析一次，文件对比和检索直接读取缓存文本。
+ */
+@Service
+@Slf4j
+public class TextExtractionService {
+
+    private static final String CACHE_DIR = ".cache/text";
+
+    private final LocalFileStore fileStore;
+    private final Map<String, TextExtractor> extractors = new HashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public TextExtractionService(LocalFileStore fileStore, List<TextExtractor> extractors) {
+        this.fileStore = fileStore;
+        for (TextExtractor extractor : extractors) {
+            for (String extension : extractor.extensions()) {
+                this.extractors.put(extension, extractor);
+            }
+        }
+    }
+
+    /**
+     * 是否支持提取文本
+     */
+    public boolean isSupported(Document document) {
+        return extractors.containsKey(extension(document));
+    }
+
+    /**
+     * 确保文本已提取，返回缓存文件路径（并发请求只解析一次）
+     */
+    public Path ensureExtracted(Document document) throws IOException {
+        TextExtractor extractor = extractors.get(extension(document));
+        if (extractor == null) {
+            throw new IOException("不支持提取文本的文件类型: " + document.getFilePath());
+        }
+        Path cached = fileStore.resolve(cacheKey(document));
+        if (Files.exists(cached)) {
+            return cached;
+        }
+
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(cached.toString(), future);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            if (!Files.exists(cached)) {
+                extract(extractor, fileStore.resolve(document.getFilePath()), cached);
+                log.info("文本提取完成 - 文档ID: {}, 缓存: {}", document.getId(), cached.getFileName());
+            }
+            future.complete(cached);
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cached.toString(), future);
+        }
+    }
+
+    /**
+     * 读取全部文本
+     */
+    public String getText(Document document) throws IOException {
+        try (Reader reader = openReader(document)) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, n);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * 按流读取文本，适合逐行处理大文件
+     */
+    public BufferedReader openReader(Document document) throws IOException {
+        Path cached = ensureExtracted(document);
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(cached), 8192), StandardCharsets.UTF_8));
+    }
+
+    private void extract(TextExtractor extractor, Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp), 8192), StandardCharsets.UTF_8))) {
+                extractor.extract(source, out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp.toFile());
+        }
+    }
+
+    /**
+     * 缓存路径：.cache/text/&lt;sha256前两位&gt;/&lt;sha256&gt;.txt.gz，
+     * 旧数据没有内容摘要时按文档ID和修改时间存放
+     */
+    private String cacheKey(Document document) throws IOException {
+        String hash = document.getContentHash();
+        if (hash == null || hash.isEmpty()) {
+            long modified = Files.getLastModifiedTime(fileStore.resolve(document.getFilePath())).toMillis();
+            return CACHE_DIR + "/doc/" + document.getId() + "_" + modified + ".txt.gz";
+        }
+        return CACHE_DIR + "/" + hash.substring(0, 2) + "/" + hash + ".txt.gz";
+    }
+
+    private static String extension(Document document) {
+        String name = document.getFilePath() != null ? document.getFilePath() : document.getFileName();
+        if (name == null) {
+            return "";
+        }
+        return FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT);
+    }
+
+    private static Path join(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.cenum.ThumbnailSize;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.storage.StoredFile;
+import com.zsx.cstfilemanage.infrastructure.render.DxfRenderer;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.apache.commons.io.FileUtils;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 缩略图服务
+ * 上传事务提交后在后台线程池中生成列表/网格/详情三种规格的缩略图，失败按指数退避重试，
+ * 完成后回写 Document.thumbnailPath（网格规格）。上传耗时不再取决于图片大小。
+ * 缩略图按内容摘要存放，相同内容的文档共用一份。
+ */
+@Service
+@Slf4j
+public class ThumbnailService {
+
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    private static final int PDF_THUMBNAIL_DPI = 72;
+
+    private final DocumentRepository documentRepository;
+    private final LocalFileStore fileStore;
+    private final ScheduledThreadPoolExecutor thumbnailExecutor;
+    private final String outputFormat;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${thumbnail.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${thumbnail.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    @Value("${thumbnail.queue-capacity:1000}")
+    private int queueCapacity;
+
+    public ThumbnailService(DocumentRepository documentRepository,
+                            LocalFileStore fileStore,
+                            @Qualifier("thumbnailExecutor") ScheduledThreadPoolExecutor thumbnailExecutor,
+                            @Value("${thumbnail.format:jpg}") String preferredFormat) {
+        this.documentRepository = documentRepository;
+        this.fileStore = fileStore;
+        this.thumbnailExecutor = thumbnailExecutor;
+        this.outputFormat = resolveFormat(preferredFormat);
+    }
+
+    /**
+     * 是否支持生成缩略图
+     */
+    public static boolean isSupported(FileType fileType) {
+        return fileType == FileType.JPEG
+                || fileType == FileType.PNG
+                || fileType == FileType.PDF
+                || fileType == FileType.CAD_DXF;
+    }
+
+    /**
+     * 上传事务提交后排队生成（流式上传没有外层事务时立即排队）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getChangeType() == DocumentChangeType.UPLOADED) {
+            submit(event.getDocumentId());
+        }
+    }
+
+    /**
+     * 提交缩略图任务（同一文档排队中只保留一个任务）
+     */
+    public boolean submit(Long documentId) {
+        if (thumbnailExecutor.getQueue().size() >= queueCapacity) {
+            log.warn("缩略图队列已满，跳过 - 文档ID: {}", documentId);
+            return false;
+        }
+        if (!pending.add(documentId)) {
+            return false;
+        }
+        thumbnailExecutor.execute(() -> run(documentId, 1));
+        return true;
+    }
+
+    /**
+     * 获取指定规格的缩略图文件，不存在时同步生成
+     */
+    public StoredFile getThumbnailFile(Long documentId, ThumbnailSize size) throws IOException {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND));
+        if (!isSupported(document.getFileType())) {
+            throw new BizException(ErrorCode.FILE_TYPE_NOT_ALLOWED, "该文件类型不支持缩略图");
+        }
+
+        Path path = fileStore.resolve(thumbnailKey(document, size));
+        if (!Files.exists(path)) {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                try {
+                    generate(document);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, thumbnailExecutor);
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                throw new BizException(ErrorCode.RENDER_BUSY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BizException(ErrorCode.RENDER_BUSY);
+            } catch (ExecutionException e) {
+                throw new IOException("生成缩略图失败: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return new StoredFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                document.getContentHash() != null ? document.getContentHash() + "_" + size.name().toLowerCase() : null,
+                path.getFileName().toString());
+    }
+
+    private void run(Long documentId, int attempt) {
+        try {
+            Document document = documentRepository.findById(documentId).orElse(null);
+            if (document == null || !isSupported(document.getFileType())) {
+                pending.remove(documentId);
+                return;
+            }
+            String thumbnailPath = generate(document);
+            if (!thumbnailPath.equals(document.getThumbnailPath())) {
+                documentRepository.updateThumbnailPath(documentId, thumbnailPath);
+            }
+            pending.remove(documentId);
+            log.info("缩略图生成完成 - 文档ID: {}, 路径: {}", documentId, thumbnailPath);
+        } catch (Exception e) {
+            if (attempt < maxAttempts) {
+                long delay = retryDelayMs << (attempt - 1);
+                log.warn("缩略图生成失败，{} ms 后重试 - 文档ID: {}, 第 {} 次, 错误: {}",
+                        delay, documentId, attempt, e.getMessage());
+                thumbnailExecutor.schedule(() -> run(documentId, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            } else {
+                pending.remove(documentId);
+                log.error("缩略图生成失败，放弃 - 文档ID: {}, 错误: {}", documentId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 生成全部规格，已存在的规格跳过
+     *
+     * @return 网格规格缩略图的存储路径
+     */
+    private String generate(Document document) throws IOException {
+        String gridKey = thumbnailKey(document, ThumbnailSize.GRID);
+        boolean complete = true;
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            complete &= Files.exists(fileStore.resolve(thumbnailKey(document, size)));
+        }
+        if (complete) {
+            return gridKey;
+        }
+
+        // 只解码一次源文件（最大规格），较小规格由其缩放得到
+        BufferedImage image = toRgb(loadSource(document, ThumbnailSize.DETAIL.getPixels()));
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            BufferedImage scaled = Thumbnails.of(image)
+                    .size(size.getPixels(), size.getPixels())
+                    .asBufferedImage();
+            write(scaled, fileStore.resolve(thumbnailKey(document, size)));
+        }
+        return gridKey;
+    }
+
+    private BufferedImage loadSource(Document document, int maxSize) throws IOException {
+        Path source = fileStore.resolve(document.getFilePath());
+        return switch (document.getFileType()) {
+            case JPEG, PNG -> Thumbnails.of(source.toFile())
+                    .size(maxSize, maxSize)
+                    .asBufferedImage();
+            case PDF -> renderPdfFirstPage(source, maxSize);
+            case CAD_DXF -> DxfRenderer.render(source, maxSize);
+            default -> throw new IOException("不支持的文件类型: " + document.getFileType());
+        };
+    }
+
+    private BufferedImage renderPdfFirstPage(Path source, int maxSize) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(source.toFile())) {
+            PDRectangle box = pdf.getPage(0).getCropBox();
+            float longest = Math.max(box.getWidth(), box.getHeight());
+            // 按目标尺寸计算 DPI，避免大幅面图纸按固定 DPI 渲染出超大图片
+            float dpi = longest > 0 ? Math.min(PDF_THUMBNAIL_DPI * 2f, maxSize * 72f / longest) : PDF_THUMBNAIL_DPI;
+            return new PDFRenderer(pdf).renderImageWithDPI(0, dpi, ImageType.RGB);
+        }
+    }
+
+    /**
+     * 透明背景转为白底（JPEG 不支持透明通道）
+     */
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                Thumbnails.of(image).scale(1).outputFormat(outputFormat).toOutputStream(out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp.toFile());
+        }
+    }
+
+    /**
+     * 缩略图存储路径：thumbnails/&lt;sha256前两位&gt;/&lt;sha256&gt;_&lt;规格&gt;.&lt;格式&gt;，
+     * 旧数据没有内容摘要时按文档ID存放
+     */
+    private String thumbnailKey(Document document, ThumbnailSize size) {
+        String suffix = "_" + size.name().toLowerCase() + "." + outputFormat;
+        String hash = document.getContentHash();
+        if (hash == null || hash.isEmpty()) {
+            return THUMBNAIL_DIR + "/doc/" + document.getId() + suffix;
+        }
+        return THUMBNAIL_DIR + "/" + hash.substring(0, 2) + "/" + hash + suffix;
+    }
+
+    /**
+     * 运行环境没有对应格式的编码器（如未安装 WebP 插件）时退化为 JPEG
+     */
+    private static String resolveFormat(String preferred) {
+        if (ImageIO.getImageWritersByFormatName(preferred).hasNext()) {
+            return preferred;
+        }
+        log.info("未找到 {} 图片编码器，缩略图使用 jpg 格式", preferred);
+        return "jpg";
+    }
+}
@@ -0,0 +1,86 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
+import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 上传暂存文件清理
+ * 分片暂存文件和未完成的直传对象在会话过期（Redis 中已不存在）或会话已结束后删除；
+ * 写入中断遗留的临时文件超过会话有效期后删除。
+ * 只处理超过宽限时间未修改的文件，避免误删刚初始化、会话尚未写入 Redis 的暂存文件。
+ */
+@Service
+@Slf4j
+public class UploadCleanupService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final LocalFileStore fileStore;
+
+    @Value("${upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Value("${upload.staging-grace-minutes:60}")
+    private long graceMinutes;
+
+    public UploadCleanupService(UploadSessionRepository uploadSessionRepository,
+                                LocalFileStore fileStore) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStore = fileStore;
+    }
+
+    @Scheduled(cron = "${upload.staging-sweep-cron:0 20 * * * ?}")
+    public void sweepStaging() {
+        Instant now = Instant.now();
+        Instant tempBefore = now.minus(Duration.ofHours(sessionTtlHours));
+        int deleted = 0;
+        try {
+            for (Path path : fileStore.listStaging(now.minus(Duration.ofMinutes(graceMinutes)))) {
+                String uploadId = LocalFileStore.stagingUploadId(path);
+                if (uploadId == null) {
+                    if (Files.getLastModifiedTime(path).toInstant().isBefore(tempBefore) && Files.deleteIfExists(path)) {
+                        deleted++;
+                    }
+                    continue;
+                }
+                if (isFinished(uploadSessionRepository.get(uploadId))) {
+                    fileStore.deleteStaging(uploadId);
+                    deleted++;
+                }
+            }
+            // 直传对象完成后已转为 blob；会话失效或已结束时仍留在直传目录的是未完成或重复写入的对象
+            for (Path path : fileStore.listDirectUploads(now.minus(Duration.ofMinutes(graceMinutes)))) {
+                if (isFinished(uploadSessionRepository.get(LocalFileStore.directUploadId(path)))
+                        && Files.deleteIfExists(path)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("清理上传暂存文件失败: {}", e.getMessage(), e);
+        }
+        if (deleted > 0) {
+            log.info("已清理上传暂存文件 - 文件数: {}", deleted);
+        }
+    }
+
+    /**
+     * 会话已过期或已结束
+     */
+    private static boolean isFinished(UploadSession session) {
+        return session == null
+                || session.getStatus() == UploadStatus.COMPLETED
+                || session.getStatus() == UploadStatus.FAILED
+                || session.getStatus() == UploadStatus.CONSUMED;
+    }
+}
@@ -0,0 +1,193 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
+import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
+import com.zsx.cstfilemanage.domain.storage.StorageObject;
+import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadCompleteResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 上传完成服务
+ */
+@Service
+@Slf4j
+public class UploadCompleteAppService {
+
+    private static final long PART_WRITE_POLL_MS = 100;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final LocalFileStore fileStore;
+    private final BlobStoreService blobStoreService;
+
+    /**
+     * 完成上传时等待进行中分片写入的最长时间
+     */
+    @Value("${upload.part-write-wait-ms:30000}")
+    private long partWriteWaitMs;
+
+    public UploadCompleteAppService(UploadSessionRepository uploadSessionRepository,
+                                    LocalFileStore fileStore,
+                                    BlobStoreService blobStoreService) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStore = fileStore;
+        this.blobStoreService = blobStoreService;
+    }
+
+    /**
+     * 完成上传（完成后通过 /api/v1/documents/from-upload 创建文档）
+     * 分片上传：校验全部分片已接收后，将暂存文件重命名为正式文件（不复制数据）；
+     * 文件最终按内容摘要落盘，内容已存在时复用已有文件；
+     * 秒传会话需提交初始化时指定区间的 SHA-256 作为持有证明
+     */
+    public UploadCompleteResponse completeUpload(String uploadId, String proof) {
+        UploadSession session = uploadSessionRepository.get(uploadId);
+        if (session == null) {
+            throw new BizException(ErrorCode.UPLOAD_SESSION_NOT_FOUND);
+        }
+        // 未绑定用户的会话（旧版匿名初始化）一律拒绝
+        if (session.getUserId() == null
+                || !Objects.equals(session.getUserId(), SecurityContext.getCurrentUserId())) {
+            throw new BizException(ErrorCode.PERMISSION_DENIED);
+        }
+        if (session.getStatus() == UploadStatus.COMPLETED || session.getStatus() == UploadStatus.CONSUMED) {
+            return new UploadCompleteResponse(uploadId, session.getObjectKey(), session.getFileSize(), session.getChecksum());
+        }
+
+        if (!uploadSessionRepository.tryLock(uploadId)) {
+            throw new BizException(ErrorCode.UPLOAD_IN_PROGRESS);
+        }
+        try {
+            // 持有会话锁后不再接受新的分片写入，等进行中的写入结束再计算摘要
+            awaitPartWrites(uploadId);
+            // 锁外读取的会话可能已过时（如并发请求已完成合并）
+            session = uploadSessionRepository.get(uploadId);
+            if (session == null) {
+                throw new BizException(ErrorCode.UPLOAD_SESSION_NOT_FOUND);
+            }
+            if (session.getStatus() == UploadStatus.COMPLETED || session.getStatus() == UploadStatus.CONSUMED) {
+                return new UploadCompleteResponse(uploadId, session.getObjectKey(), session.getFileSize(),
+                        session.getChecksum());
+            }
+            if (session.getProofLength() != null) {
+                return completeInstant(session, proof);
+            }
+
+            StorageObject stored = session.getTotalParts() != null
+                    ? commitChunked(session)
+                    : locateDirectUpload(session);
+
+            if (session.getChecksum() != null && !session.getChecksum().isEmpty()
+                    && !session.getChecksum().equalsIgnoreCase(stored.getSha256())) {
+                log.warn("完成上传失败 - 校验值不一致: {}, 期望: {}, 实际: {}",
+                        uploadId, session.getChecksum(), stored.getSha256());
+                // 内容不符的 blob 不被任何文档引用，由 BlobStoreService 定时回收
+                session.setStatus(UploadStatus.FAILED);
+                uploadSessionRepository.save(session);
+                throw new BizException(ErrorCode.UPLOAD_CHECKSUM_MISMATCH);
+            }
+
+            session.setStatus(UploadStatus.COMPLETED);
+            session.setObjectKey(stored.getObjectKey());
+            session.setFileSize(stored.getSize());
+            session.setChecksum(stored.getSha256());
+            uploadSessionRepository.save(session);
+            uploadSessionRepository.deleteParts(uploadId);
+
+            log.info("完成上传 - uploadId: {}, objectKey: {}, 大小: {} bytes",
+                    uploadId, stored.getObjectKey(), stored.getSize());
+            return new UploadCompleteResponse(uploadId, stored.getObjectKey(), stored.getSize(), stored.getSha256());
+        } catch (IOException e) {
+            log.error("完成上传失败 - uploadId: {}, 错误: {}", uploadId, e.getMessage(), e);
+            throw new BizException(ErrorCode.INTERNAL_ERROR, e);
+        } finally {
+            uploadSessionRepository.unlock(uploadId);
+        }
+    }
+
+    private void awaitPartWrites(String uploadId) {
+        long deadline = System.currentTimeMillis() + partWriteWaitMs;
+        while (uploadSessionRepository.countPartWrites(uploadId) > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                log.warn("完成上传失败 - 仍有分片正在写入: {}", uploadId);
+                throw new BizException(ErrorCode.UPLOAD_IN_PROGRESS, "仍有分片正在写入，请稍后重试");
+            }
+            try {
+                Thread.sleep(PART_WRITE_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BizException(ErrorCode.UPLOAD_IN_PROGRESS);
+            }
+        }
+    }
+
+    /**
+     * 秒传：校验客户端提交的区间摘要与已有文件一致后直接完成
+     */
+    private UploadCompleteResponse completeInstant(UploadSession session, String proof) throws IOException {
+        if (session.getStatus() == UploadStatus.FAILED) {
+            throw new BizException(ErrorCode.UPLOAD_PROOF_INVALID);
+        }
+        Path path = fileStore.resolve(session.getObjectKey());
+        String expected = fileStore.digest(path, session.getProofOffset(), session.getProofLength());
+        if (proof == null || !expected.equalsIgnoreCase(proof)) {
+            // 每个会话只允许校验一次，失败后须重新初始化并上传文件
+            log.warn("秒传校验失败 - uploadId: {}", session.getUploadId());
+            session.setStatus(UploadStatus.FAILED);
+            uploadSessionRepository.save(session);
+            throw new BizException(ErrorCode.UPLOAD_PROOF_INVALID);
+        }
+        session.setStatus(UploadStatus.COMPLETED);
+        uploadSessionRepository.save(session);
+        log.info("秒传完成 - uploadId: {}, objectKey: {}", session.getUploadId(), session.getObjectKey());
+        return new UploadCompleteResponse(session.getUploadId(), session.getObjectKey(),
+                session.getFileSize(), session.getChecksum());
+    }
+
+    private StorageObject commitChunked(UploadSession session) throws IOException {
+        long received = uploadSessionRepository.countReceivedParts(session.getUploadId());
+        if (received < session.getTotalParts()) {
+            log.warn("完成上传失败 - 分片未全部上传: {}, 已接收: {}/{}",
+                    session.getUploadId(), received, session.getTotalParts());
+            throw new BizException(ErrorCode.UPLOAD_NOT_COMPLETE,
+                    "分片尚未全部上传: " + received + "/" + session.getTotalParts());
+        }
+        String ext = FilenameUtils.getExtension(session.getFileName());
+        StorageObject stored = fileStore.commitStaging(session.getUploadId(), FileType.fromExtension(ext), ext);
+        return blobStoreService.canonicalize(stored);
+    }
+
+    private StorageObject locateDirectUpload(UploadSession session) throws IOException {
+        Path path = fileStore.resolve(session.getObjectKey());
+        if (!Files.exists(path)) {
+            throw new BizException(ErrorCode.UPLOAD_NOT_COMPLETE, "文件尚未上传");
+        }
+        // 直传 URL 只限制了上限，写入不足（连接中断等）也按失败处理
+        long size = Files.size(path);
+        if (session.getFileSize() == null || size != session.getFileSize()) {
+            log.warn("完成上传失败 - 文件大小不一致: {}, 声明: {}, 实际: {}",
+                    session.getUploadId(), session.getFileSize(), size);
+            fileStore.delete(session.getObjectKey());
+            session.setStatus(UploadStatus.FAILED);
+            uploadSessionRepository.save(session);
+            throw new BizException(ErrorCode.UPLOAD_SIZE_MISMATCH);
+        }
+        String ext = FilenameUtils.getExtension(session.getFileName());
+        StorageObject stored = fileStore.adopt(path, size, fileStore.digest(path),
+                FileType.fromExtension(ext), ext);
+        return blobStoreService.canonicalize(stored);
+    }
+}
@@ -2,77 +2,190 @@ package com.zsx.cstfilemanage.application.service;
 
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
-import com.zsx.cstfilemanage.domain.model.entity.FileEntity;
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
 import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
 import com.zsx.cstfilemanage.domain.policy.FileTypePolicyManager;
 import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
 import com.zsx.cstfilemanage.domain.storage.OcsClient;
 import com.zsx.cstfilemanage.domain.storage.UploadToken;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
 import com.zsx.cstfilemanage.interfaces.http.request.UploadInitRequest;
 import com.zsx.cstfilemanage.interfaces.http.response.UploadInitResponse;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class UploadInitAppService {
 
+    public static final String MODE_DIRECT = "DIRECT";
+    public static final String MODE_CHUNKED = "CHUNKED";
+    public static final String MODE_INSTANT = "INSTANT";
+
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024; // 1MB
+    private static final long MAX_CHUNK_SIZE = 64 * 1024 * 1024; // 64MB
+
     private final FileTypePolicyManager policyManager;
     private final OcsClient ocsClient;
     private final UploadSessionRepository uploadSessionRepository;
+    private final LocalFileStore fileStore;
+    private final BlobStoreService blobStoreService;
+    private final FileTypeValidator fileTypeValidator;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${upload.chunk-size:8388608}")
+    private long defaultChunkSize;
+
+    @Value("${upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    /**
+     * 秒传持有证明的字节区间长度
+     */
+    @Value("${upload.instant-proof-length:65536}")
+    private long instantProofLength;
+
+    /**
+     * 单个文件大小上限（字节）
+     */
+    @Value("${upload.max-file-size:2147483648}")
+    private long maxFileSize;
 
     public UploadInitAppService(FileTypePolicyManager policyManager,
                                 OcsClient ocsClient,
-                                UploadSessionRepository uploadSessionRepository) {
+                                UploadSessionRepository uploadSessionRepository,
+                                LocalFileStore fileStore,
+                                BlobStoreService blobStoreService,
+                                FileTypeValidator fileTypeValidator) {
         this.policyManager = policyManager;
         this.ocsClient = ocsClient;
         this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStore = fileStore;
+        this.blobStoreService = blobStoreService;
+        this.fileTypeValidator = fileTypeValidator;
     }
 
     public UploadInitResponse initUpload(UploadInitRequest req) {
-        System.out.println("initUpload req:" + req);
-        // //获取当前用户（示例）
-        // Long userId = SecurityContext.getCurrentUserId();
-        // if (userId == null) {
-        //     throw new BizException(ErrorCode.UNAUTHORIZED);
-        // }
-
-        // // 文件策略校验（领域规则）
-        // policyManager.validate(
-        //         req.getBizType(),
-        //         req.getContentType(),
-        //         req.getFileSize()
-        // );
+        // 上传会话绑定当前用户，后续分片和完成请求只接受同一用户
+        Long userId = SecurityContext.getCurrentUserId();
+        if (userId == null) {
+            throw new BizException(ErrorCode.UNAUTHORIZED);
+        }
+
+        // 文件大小与类型校验，通过后才签发上传凭证或预分配暂存文件
+        if (req.getFileSize() <= 0) {
+            throw new BizException(ErrorCode.FILE_SIZE_INVALID);
+        }
+        if (req.getFileSize() > maxFileSize) {
+            throw new BizException(ErrorCode.FILE_TOO_LARGE);
+        }
+        String extension = FilenameUtils.getExtension(req.getFileName());
+        if (!fileTypeValidator.isAllowed(FileType.fromExtension(extension), extension)) {
+            throw new BizException(ErrorCode.FILE_TYPE_NOT_ALLOWED);
+        }
+        policyManager.validateIfPresent(req.getBizType(), req.getContentType(), req.getFileSize());
 
         // 生成 uploadId
         String uploadId = UploadSession.generateUploadId();
 
-        // 生成 objectKey（领域规则）
-        String objectKey = FileEntity.generateObjectKey(
-                req.getBizType(), req.getFileName()
-        );
+        // 直传 objectKey 由服务端生成，不使用客户端提供的业务类型和文件名
+        String objectKey = LocalFileStore.directUploadKey(uploadId, extension);
+
+        // 秒传：相同内容已存在时不传输文件，但客户端须证明持有该内容——
+        // 服务端随机选取一段字节区间，客户端在完成上传时提交该区间的 SHA-256；
+        // 校验通过前不返回已有文件的存储路径
+        FileType fileType = FileType.fromExtension(extension);
+        Document existing = blobStoreService.findByContentHash(req.getChecksum())
+                .filter(doc -> doc.getFileType() == fileType)
+                .orElse(null);
+        if (existing != null) {
+            UploadSession session = UploadSession.init(uploadId, userId, existing.getFilePath(), req.getBizType());
+            session.setFileName(req.getFileName());
+            session.setContentType(req.getContentType());
+            session.setFileSize(existing.getFileSize());
+            session.setChecksum(existing.getContentHash());
+            session.setProofLength(Math.min(existing.getFileSize(), instantProofLength));
+            session.setProofOffset(random.nextLong(existing.getFileSize() - session.getProofLength() + 1));
+            uploadSessionRepository.save(session);
+            return new UploadInitResponse(
+                    uploadId,
+                    null,
+                    null,
+                    System.currentTimeMillis() + TimeUnit.HOURS.toMillis(sessionTtlHours),
+                    MODE_INSTANT,
+                    null,
+                    null,
+                    session.getProofOffset(),
+                    session.getProofLength()
+            );
+        }
 
-        // 生成对象存储上传凭证
-        UploadToken token =
-                ocsClient.generateUploadToken(objectKey, 15 * 60);
+        // 生成对象存储上传凭证（对象存储不可用时返回 null，退化为分片上传）
+        UploadToken token = MODE_CHUNKED.equalsIgnoreCase(req.getUploadMode())
+                ? null
+                : ocsClient.generateUploadToken(objectKey, req.getFileSize(), 15 * 60);
+
+        // 创建 UploadSession（领域对象）
+        UploadSession session = UploadSession.init(
+                uploadId,
+                userId,
+                objectKey,
+                req.getBizType()
+        );
+        session.setFileName(req.getFileName());
+        session.setContentType(req.getContentType());
+        session.setFileSize(req.getFileSize());
+        session.setChecksum(req.getChecksum());
 
-        // // 创建 UploadSession（领域对象）
-        // UploadSession session = UploadSession.init(
-        //         uploadId,
-        //         userId,
-        //         objectKey,
-        //         req.getBizType()
-        // );
+        if (token != null) {
+            // 保存上传会话（Redis）
+            uploadSessionRepository.save(session);
+            return new UploadInitResponse(
+                    uploadId,
+                    token.getUploadUrl(),
+                    objectKey,
+                    token.getExpireAt(),
+                    MODE_DIRECT,
+                    null,
+                    null,
+                    null,
+                    null
+            );
+        }
 
-        // 保存上传会话（Redis）
-        // uploadSessionRepository.save(session);
+        // 分片上传：预分配暂存文件，各分片按偏移量直接写入
+        long chunkSize = resolveChunkSize(req.getChunkSize());
+        session.setChunkSize(chunkSize);
+        session.setTotalParts(UploadSession.calculateTotalParts(req.getFileSize(), chunkSize));
+        try {
+            fileStore.allocateStaging(uploadId, req.getFileSize());
+        } catch (IOException e) {
+            throw new BizException(ErrorCode.INTERNAL_ERROR, e);
+        }
+        uploadSessionRepository.save(session);
 
-        // 返回
         return new UploadInitResponse(
                 uploadId,
-                token.getUploadUrl(),
+                null,
                 objectKey,
-                token.getExpireAt(),
-                "DIRECT"
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(sessionTtlHours),
+                MODE_CHUNKED,
+                chunkSize,
+                session.getTotalParts(),
+                null,
+                null
         );
     }
+
+    private long resolveChunkSize(Long requested) {
+        long chunkSize = requested != null ? requested : defaultChunkSize;
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    }
 }
@@ -0,0 +1,122 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
+import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
+import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadPartResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadStatusResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 分片上传服务
+ * 分片可并发、乱序上传，接收情况记录在 Redis 位图中，断线后按缺失分片续传。
+ * 分片写入登记在会话的写入计数中：完成上传持有会话锁时拒绝新的写入，并等待进行中的写入结束后再计算摘要，
+ * 合并后的文件（内容寻址、可能被其他文档共享）不会再被写入
+ */
+@Service
+@Slf4j
+public class UploadPartAppService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final LocalFileStore fileStore;
+
+    public UploadPartAppService(UploadSessionRepository uploadSessionRepository,
+                                LocalFileStore fileStore) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStore = fileStore;
+    }
+
+    /**
+     * 上传分片
+     */
+    public UploadPartResponse uploadPart(String uploadId, int partNumber, InputStream in) throws IOException {
+        UploadSession session = loadChunkedSession(uploadId);
+        if (partNumber < 1 || partNumber > session.getTotalParts()) {
+            log.warn("上传分片失败 - 分片序号越界: {}, 分片: {}/{}", uploadId, partNumber, session.getTotalParts());
+            throw new BizException(ErrorCode.UPLOAD_PART_INVALID);
+        }
+
+        if (!uploadSessionRepository.beginPartWrite(uploadId)) {
+            log.warn("上传分片失败 - 上传正在合并: {}", uploadId);
+            throw new BizException(ErrorCode.UPLOAD_IN_PROGRESS);
+        }
+        try {
+            // 登记写入后重新读取状态：登记前完成的合并已把暂存文件转为 blob
+            session = loadChunkedSession(uploadId);
+            if (session.getStatus() != UploadStatus.INIT && session.getStatus() != UploadStatus.UPLOADING) {
+                log.warn("上传分片失败 - 上传已结束: {}, 状态: {}", uploadId, session.getStatus());
+                throw new BizException(ErrorCode.UPLOAD_PART_INVALID, "上传已结束");
+            }
+            long expected = session.partLength(partNumber);
+            long written;
+            try {
+                written = fileStore.writeStaging(uploadId, session.partOffset(partNumber), expected, in);
+            } catch (NoSuchFileException e) {
+                log.error("上传分片失败 - 暂存文件不存在: {}", uploadId);
+                throw new BizException(ErrorCode.UPLOAD_SESSION_NOT_FOUND);
+            }
+            if (written != expected || in.read() != -1) {
+                log.warn("上传分片失败 - 分片大小不正确: {}, 分片: {}, 期望: {}, 实际: {}",
+                        uploadId, partNumber, expected, written);
+                throw new BizException(ErrorCode.UPLOAD_PART_INVALID);
+            }
+            uploadSessionRepository.markPartReceived(uploadId, partNumber);
+        } finally {
+            uploadSessionRepository.endPartWrite(uploadId);
+        }
+        if (session.getStatus() == UploadStatus.INIT) {
+            uploadSessionRepository.compareAndSetStatus(uploadId, UploadStatus.INIT, UploadStatus.UPLOADING);
+        }
+
+        long received = uploadSessionRepository.countReceivedParts(uploadId);
+        log.debug("上传分片成功 - uploadId: {}, 分片: {}, 已接收: {}/{}",
+                uploadId, partNumber, received, session.getTotalParts());
+        return new UploadPartResponse(uploadId, partNumber, received, session.getTotalParts());
+    }
+
+    /**
+     * 查询上传进度，返回缺失的分片
+     */
+    public UploadStatusResponse getUploadStatus(String uploadId) {
+        UploadSession session = loadChunkedSession(uploadId);
+        List<Integer> missingParts = session.getStatus() == UploadStatus.COMPLETED
+                || session.getStatus() == UploadStatus.CONSUMED
+                ? List.of()
+                : uploadSessionRepository.findMissingParts(uploadId, session.getTotalParts());
+        return new UploadStatusResponse(
+                uploadId,
+                session.getStatus(),
+                session.getFileSize(),
+                session.getChunkSize(),
+                session.getTotalParts(),
+                missingParts
+        );
+    }
+
+    private UploadSession loadChunkedSession(String uploadId) {
+        UploadSession session = uploadSessionRepository.get(uploadId);
+        if (session == null) {
+            throw new BizException(ErrorCode.UPLOAD_SESSION_NOT_FOUND);
+        }
+        // 未绑定用户的会话（旧版匿名初始化）一律拒绝
+        if (session.getUserId() == null
+                || !Objects.equals(session.getUserId(), SecurityContext.getCurrentUserId())) {
+            throw new BizException(ErrorCode.PERMISSION_DENIED);
+        }
+        if (session.getTotalParts() == null) {
+            throw new BizException(ErrorCode.UPLOAD_PART_INVALID, "该上传会话不是分片上传");
+        }
+        return session;
+    }
+}
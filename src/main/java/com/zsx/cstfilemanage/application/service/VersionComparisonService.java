@@ -0,0 +1,223 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.github.difflib.patch.DeltaType;
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.common.util.JsonUtil;
+import com.zsx.cstfilemanage.domain.cenum.ComparisonStatus;
+import com.zsx.cstfilemanage.domain.model.entity.ComparisonDelta;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.model.entity.VersionComparison;
+import com.zsx.cstfilemanage.domain.repository.ComparisonDeltaRepository;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.domain.repository.VersionComparisonRepository;
+import com.zsx.cstfilemanage.infrastructure.diff.LineDelta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 版本对比结果持久化服务
+ * 每对版本只计算一次，差异逐条写入 comparison_deltas，再次打开同一对比时直接查询；
+ * 任一版本内容摘要变化后重新计算。
+ */
+@Service
+@Slf4j
+public class VersionComparisonService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final VersionComparisonRepository comparisonRepository;
+    private final ComparisonDeltaRepository deltaRepository;
+    private final DocumentRepository documentRepository;
+    private final FileCompareService fileCompareService;
+    private final ConcurrentMap<String, CompletableFuture<VersionComparison>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 其他实例计算中的记录超过该时长视为中断，允许重新计算
+     */
+    @Value("${compare.stale-minutes:30}")
+    private long staleMinutes;
+
+    public VersionComparisonService(VersionComparisonRepository comparisonRepository,
+                                    ComparisonDeltaRepository deltaRepository,
+                                    DocumentRepository documentRepository,
+                                    FileCompareService fileCompareService) {
+        this.comparisonRepository = comparisonRepository;
+        this.deltaRepository = deltaRepository;
+        this.documentRepository = documentRepository;
+        this.fileCompareService = fileCompareService;
+    }
+
+    /**
+     * 获取对比结果，未计算或已过期时计算并保存
+     */
+    public VersionComparison getOrCompute(Long version1Id, Long version2Id) throws IOException {
+        Document version1 = documentRepository.findById(version1Id)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND, "版本1不存在"));
+        Document version2 = documentRepository.findById(version2Id)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND, "版本2不存在"));
+
+        VersionComparison existing = comparisonRepository.findByVersion1IdAndVersion2Id(version1Id, version2Id)
+                .orElse(null);
+        if (existing != null && existing.getStatus() == ComparisonStatus.COMPLETED && isFresh(existing, version1, version2)) {
+            return existing;
+        }
+
+        String key = version1Id + ":" + version2Id;
+        CompletableFuture<VersionComparison> future = new CompletableFuture<>();
+        CompletableFuture<VersionComparison> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            VersionComparison result = compute(existing, version1, version2);
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 查询对比记录
+     */
+    public VersionComparison getComparison(Long comparisonId) {
+        return comparisonRepository.findById(comparisonId)
+                .orElseThrow(() -> new BizException(ErrorCode.COMPARISON_NOT_FOUND));
+    }
+
+    /**
+     * 分页查询差异明细
+     *
+     * @param fromLine 原文起始行（含），为空不限
+     * @param toLine   原文结束行（不含），为空不限
+     */
+    public Page<ComparisonDelta> getDeltas(Long comparisonId, Integer fromLine, Integer toLine,
+                                           DeltaType type, Pageable pageable) {
+        VersionComparison comparison = getComparison(comparisonId);
+        if (comparison.getStatus() != ComparisonStatus.COMPLETED) {
+            throw new BizException(ErrorCode.COMPARISON_IN_PROGRESS);
+        }
+        return deltaRepository.searchDeltas(comparisonId, fromLine, toLine, type, pageable);
+    }
+
+    private VersionComparison compute(VersionComparison existing, Document version1, Document version2) throws IOException {
+        VersionComparison comparison = start(existing, version1, version2);
+        long begin = System.currentTimeMillis();
+        try {
+            List<ComparisonDelta> batch = new ArrayList<>(BATCH_SIZE);
+            int[] seq = {0};
+            int count = fileCompareService.streamDifferences(version1.getId(), version2.getId(), delta -> {
+                batch.add(toEntity(comparison.getId(), seq[0]++, delta));
+                if (batch.size() >= BATCH_SIZE) {
+                    deltaRepository.saveAll(batch);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                deltaRepository.saveAll(batch);
+            }
+
+            comparison.setStatus(ComparisonStatus.COMPLETED);
+            comparison.setDeltaCount(count);
+            comparison.setErrorMessage(null);
+            comparison.setCompleteTime(LocalDateTime.now());
+            VersionComparison saved = comparisonRepository.save(comparison);
+            log.info("版本对比完成 - 版本1: {}, 版本2: {}, 差异数: {}, 耗时: {} ms",
+                    version1.getId(), version2.getId(), count, System.currentTimeMillis() - begin);
+            return saved;
+        } catch (IOException | RuntimeException e) {
+            log.error("版本对比失败 - 版本1: {}, 版本2: {}", version1.getId(), version2.getId(), e);
+            deltaRepository.deleteByComparisonId(comparison.getId());
+            comparison.setStatus(ComparisonStatus.FAILED);
+            comparison.setErrorMessage(e.getMessage());
+            comparisonRepository.save(comparison);
+            throw e;
+        }
+    }
+
+    /**
+     * 创建或重置对比记录为计算中
+     */
+    private VersionComparison start(VersionComparison existing, Document version1, Document version2) {
+        VersionComparison comparison = existing;
+        if (comparison != null && comparison.getStatus() == ComparisonStatus.COMPUTING
+                && comparison.getStartTime() != null
+                && comparison.getStartTime().isAfter(LocalDateTime.now().minusMinutes(staleMinutes))) {
+            // 其他实例正在计算
+            throw new BizException(ErrorCode.COMPARISON_IN_PROGRESS);
+        }
+        if (comparison == null) {
+            comparison = new VersionComparison();
+            comparison.setVersion1Id(version1.getId());
+            comparison.setVersion2Id(version2.getId());
+        } else {
+            deltaRepository.deleteByComparisonId(comparison.getId());
+        }
+        comparison.setVersion1Hash(version1.getContentHash());
+        comparison.setVersion2Hash(version2.getContentHash());
+        comparison.setStatus(ComparisonStatus.COMPUTING);
+        comparison.setDeltaCount(0);
+        comparison.setStartTime(LocalDateTime.now());
+        comparison.setCompleteTime(null);
+        try {
+            return comparisonRepository.saveAndFlush(comparison);
+        } catch (DataIntegrityViolationException e) {
+            // 其他实例同时创建了同一对版本的记录
+            throw new BizException(ErrorCode.COMPARISON_IN_PROGRESS);
+        }
+    }
+
+    private static boolean isFresh(VersionComparison comparison, Document version1, Document version2) {
+        return version1.getContentHash() != null && version2.getContentHash() != null
+                && Objects.equals(comparison.getVersion1Hash(), version1.getContentHash())
+                && Objects.equals(comparison.getVersion2Hash(), version2.getContentHash());
+    }
+
+    private static ComparisonDelta toEntity(Long comparisonId, int seq, LineDelta delta) {
+        ComparisonDelta entity = new ComparisonDelta();
+        entity.setComparisonId(comparisonId);
+        entity.setSeq(seq);
+        entity.setType(delta.getType());
+        entity.setSourcePosition(delta.getSourcePosition());
+        entity.setSourceSize(delta.getSourceSize());
+        entity.setTargetPosition(delta.getTargetPosition());
+        entity.setTargetSize(delta.getTargetSize());
+        entity.setSourceLines(JsonUtil.toJson(delta.getSourceLines()));
+        entity.setTargetLines(JsonUtil.toJson(delta.getTargetLines()));
+        entity.setTruncated(delta.isTruncated());
+        return entity;
+    }
+
+    private static VersionComparison join(CompletableFuture<VersionComparison> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+}
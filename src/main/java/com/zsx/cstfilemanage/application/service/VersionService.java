@@ -1,12 +1,21 @@
 package com.zsx.cstfilemanage.application.service;
 
+import com.github.difflib.patch.DeltaType;
 import com.zsx.cstfilemanage.common.exception.BizException;
 import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
+import com.zsx.cstfilemanage.domain.event.DocumentChangedEvent;
+import com.zsx.cstfilemanage.domain.model.entity.ComparisonDelta;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.model.entity.VersionComparison;
 import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.infrastructure.diff.StreamingLineDiff;
 import com.zsx.cstfilemanage.infrastructure.security.SecurityContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
@@ -24,10 +33,17 @@ public class VersionService {
 
     private final DocumentRepository documentRepository;
     private final FileCompareService fileCompareService;
+    private final VersionComparisonService versionComparisonService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public VersionService(DocumentRepository documentRepository, FileCompareService fileCompareService) {
+    public VersionService(DocumentRepository documentRepository,
+                          FileCompareService fileCompareService,
+                          VersionComparisonService versionComparisonService,
+                          ApplicationEventPublisher eventPublisher) {
         this.documentRepository = documentRepository;
         this.fileCompareService = fileCompareService;
+        this.versionComparisonService = versionComparisonService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -67,7 +83,8 @@ public class VersionService {
         newVersionDoc.setDescription(changeDescription);
         newVersionDoc.setFileType(currentVersion.getFileType());
         newVersionDoc.setFileSize(currentVersion.getFileSize());
-        newVersionDoc.setFilePath(currentVersion.getFilePath()); // 实际应该上传新文件
+        newVersionDoc.setFilePath(currentVersion.getFilePath()); // 内容寻址存储，与当前版本共享同一文件
+        newVersionDoc.setContentHash(currentVersion.getContentHash());
         newVersionDoc.setThumbnailPath(currentVersion.getThumbnailPath());
         newVersionDoc.setContentType(currentVersion.getContentType());
         newVersionDoc.setStatus(DocumentStatus.DRAFT);
@@ -76,7 +93,9 @@ public class VersionService {
         newVersionDoc.setCreateUserId(userId);
         newVersionDoc.setUpdateUserId(userId);
 
-        return documentRepository.save(newVersionDoc);
+        Document saved = documentRepository.save(newVersionDoc);
+        eventPublisher.publishEvent(new DocumentChangedEvent(saved.getId(), DocumentChangeType.VERSION_CREATED));
+        return saved;
     }
 
     /**
@@ -111,39 +130,62 @@ public class VersionService {
         if (currentVersion != null) {
             currentVersion.setIsCurrentVersion(false);
             documentRepository.save(currentVersion);
+            eventPublisher.publishEvent(new DocumentChangedEvent(currentVersion.getId(), DocumentChangeType.STATUS_CHANGED));
         }
 
         // 恢复指定版本为当前版本，但需要重新审批
         versionDoc.setIsCurrentVersion(true);
         versionDoc.setStatus(DocumentStatus.DRAFT);
         documentRepository.save(versionDoc);
+        eventPublisher.publishEvent(new DocumentChangedEvent(versionId, DocumentChangeType.STATUS_CHANGED));
 
         // TODO: 提交审批流程
     }
 
     /**
-     * 版本对比
+     * 版本对比（结果按版本对持久化，重复打开直接查询）
      */
     public VersionComparisonResult compareVersions(Long version1Id, Long version2Id) throws IOException {
-        FileCompareService.FileCompareResult compareResult = fileCompareService.compareDocuments(version1Id, version2Id);
+        VersionComparison comparison = versionComparisonService.getOrCompute(version1Id, version2Id);
 
         VersionComparisonResult result = new VersionComparisonResult();
-        result.setVersion1(compareResult.getVersion1());
-        result.setVersion2(compareResult.getVersion2());
-        result.setDifferences(compareResult.getDifferences());
-        result.setHasDifferences(compareResult.isHasDifferences());
-
+        result.setVersion1(documentRepository.findById(version1Id).orElse(null));
+        result.setVersion2(documentRepository.findById(version2Id).orElse(null));
+        result.setComparisonId(comparison.getId());
+        result.setDeltaCount(comparison.getDeltaCount());
+        result.setHasDifferences(comparison.getDeltaCount() > 0);
+        result.setCompleteTime(comparison.getCompleteTime());
         return result;
     }
 
+    /**
+     * 分页查询对比差异
+     */
+    public Page<ComparisonDelta> getComparisonDeltas(Long comparisonId, Integer fromLine, Integer toLine,
+                                                     DeltaType type, Pageable pageable) {
+        return versionComparisonService.getDeltas(comparisonId, fromLine, toLine, type, pageable);
+    }
+
+    /**
+     * 流式版本对比，差异逐条回调（不持久化）
+     *
+     * @return 差异数量
+     */
+    public int streamCompareVersions(Long version1Id, Long version2Id, StreamingLineDiff.DeltaSink sink) throws IOException {
+        return fileCompareService.streamDifferences(version1Id, version2Id, sink);
+    }
+
     /**
      * 版本对比结果
+     * 差异明细通过 comparisonId 分页查询
      */
     public static class VersionComparisonResult {
         private Document version1;
         private Document version2;
-        private String differences;
+        private Long comparisonId;
+        private int deltaCount;
         private boolean hasDifferences;
+        private LocalDateTime completeTime;
 
         // Getters and Setters
         public Document getVersion1() {
@@ -162,12 +204,20 @@ public class VersionService {
             this.version2 = version2;
         }
 
-        public String getDifferences() {
-            return differences;
+        public Long getComparisonId() {
+            return comparisonId;
         }
 
-        public void setDifferences(String differences) {
-            this.differences = differences;
+        public void setComparisonId(Long comparisonId) {
+            this.comparisonId = comparisonId;
+        }
+
+        public int getDeltaCount() {
+            return deltaCount;
+        }
+
+        public void setDeltaCount(int deltaCount) {
+            this.deltaCount = deltaCount;
         }
 
         public boolean isHasDifferences() {
@@ -177,6 +227,13 @@ public class VersionService {
         public void setHasDifferences(boolean hasDifferences) {
             this.hasDifferences = hasDifferences;
         }
+
+        public LocalDateTime getCompleteTime() {
+            return completeTime;
+        }
+
+        public void setCompleteTime(LocalDateTime completeTime) {
+            this.completeTime = completeTime;
+        }
     }
 }
-
@@ -0,0 +1,440 @@
+package com.zsx.cstfilemanage.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.cenum.PageDiffStatus;
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.repository.DocumentRepository;
+import com.zsx.cstfilemanage.infrastructure.render.DxfRenderer;
+import com.zsx.cstfilemanage.infrastructure.render.RasterDiff;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.interfaces.http.response.VisualCompareResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 图形比对服务
+ * 以相同 DPI 逐页渲染两个版本并计算像素差异，输出变化区域的外接矩形，用于发现文本对比无法识别的图纸几何变化。
+ * 页面交错分组并行处理（每组各自打开一次 PDF），任务提交到独立的有界比对线程池，
+ * 单个请求最多占用线程池一半的线程；超时后中断工作线程，未处理的页面不再渲染。
+ * 页面尺寸、内容流、资源字典（字体、图形状态、颜色空间、XObject 等）及注释完全相同的页面直接跳过渲染。
+ */
+@Service
+@Slf4j
+public class VisualCompareService {
+
+    private static final int MIN_DPI = 36;
+
+    private final DocumentRepository documentRepository;
+    private final LocalFileStore fileStore;
+    private final ThreadPoolExecutor compareExecutor;
+    private final Cache<String, VisualCompareResponse> resultCache = Caffeine.newBuilder()
+            .maximumSize(256)
+            .build();
+
+    @Value("${compare.visual.dpi:72}")
+    private int defaultDpi;
+
+    @Value("${compare.visual.max-dpi:150}")
+    private int maxDpi;
+
+    /**
+     * 灰度差阈值，过滤抗锯齿造成的细微差异
+     */
+    @Value("${compare.visual.threshold:48}")
+    private int threshold;
+
+    /**
+     * 区域合并网格边长（像素）
+     */
+    @Value("${compare.visual.cell-size:8}")
+    private int cellSize;
+
+    /**
+     * DXF 渲染的最长边像素
+     */
+    @Value("${compare.visual.dxf-size:2000}")
+    private int dxfSize;
+
+    @Value("${compare.visual.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    public VisualCompareService(DocumentRepository documentRepository,
+                                LocalFileStore fileStore,
+                                @Qualifier("compareExecutor") ThreadPoolExecutor compareExecutor) {
+        this.documentRepository = documentRepository;
+        this.fileStore = fileStore;
+        this.compareExecutor = compareExecutor;
+    }
+
+    /**
+     * 逐页图形比对
+     */
+    public VisualCompareResponse compare(Long version1Id, Long version2Id, Integer dpi) throws IOException {
+        Document version1 = documentRepository.findById(version1Id)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND, "版本1不存在"));
+        Document version2 = documentRepository.findById(version2Id)
+                .orElseThrow(() -> new BizException(ErrorCode.DOCUMENT_NOT_FOUND, "版本2不存在"));
+        FileType fileType = version1.getFileType();
+        if (fileType != version2.getFileType() || (fileType != FileType.PDF && fileType != FileType.CAD_DXF)) {
+            throw new BizException(ErrorCode.FILE_TYPE_NOT_ALLOWED, "图形比对仅支持两个 PDF 或两个 DXF 文件");
+        }
+        int resolvedDpi = Math.max(MIN_DPI, Math.min(maxDpi, dpi != null && dpi > 0 ? dpi : defaultDpi));
+
+        String cacheKey = cacheKey(version1, version2, resolvedDpi);
+        if (cacheKey != null) {
+            VisualCompareResponse cached = resultCache.getIfPresent(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Path path1 = resolveExisting(version1);
+        Path path2 = resolveExisting(version2);
+        long start = System.currentTimeMillis();
+        VisualCompareResponse response = fileType == FileType.PDF
+                ? comparePdf(version1, version2, path1, path2, resolvedDpi)
+                : compareDxf(version1, version2, path1, path2, resolvedDpi);
+        log.info("图形比对完成 - 版本1: {}, 版本2: {}, 页数: {}/{}, 变化页: {}, 耗时: {} ms",
+                version1Id, version2Id, response.getPageCount1(), response.getPageCount2(),
+                response.getChangedPages(), System.currentTimeMillis() - start);
+        if (cacheKey != null) {
+            resultCache.put(cacheKey, response);
+        }
+        return response;
+    }
+
+    private VisualCompareResponse comparePdf(Document version1, Document version2,
+                                             Path path1, Path path2, int dpi) throws IOException {
+        int pageCount1 = pageCount(path1);
+        int pageCount2 = pageCount(path2);
+        int common = Math.min(pageCount1, pageCount2);
+        boolean sameContent = version1.getContentHash() != null
+                && version1.getContentHash().equals(version2.getContentHash());
+
+        List<VisualCompareResponse.PageDiff> pages = new ArrayList<>(Math.max(pageCount1, pageCount2));
+        if (sameContent) {
+            for (int i = 0; i < common; i++) {
+                pages.add(new VisualCompareResponse.PageDiff(i + 1, PageDiffStatus.IDENTICAL, 0, 0, 0, List.of()));
+            }
+        } else if (common > 0) {
+            pages.addAll(comparePdfPages(path1, path2, common, dpi));
+        }
+        for (int i = common; i < pageCount2; i++) {
+            pages.add(new VisualCompareResponse.PageDiff(i + 1, PageDiffStatus.ADDED, 0, 0, 1, List.of()));
+        }
+        for (int i = common; i < pageCount1; i++) {
+            pages.add(new VisualCompareResponse.PageDiff(i + 1, PageDiffStatus.REMOVED, 0, 0, 1, List.of()));
+        }
+        return new VisualCompareResponse(version1.getId(), version2.getId(), dpi, pageCount1, pageCount2,
+                countChanged(pages), pages);
+    }
+
+    /**
+     * 把页面交错分组并行比对，组数不超过比对线程池的一半
+     */
+    private List<VisualCompareResponse.PageDiff> comparePdfPages(Path path1, Path path2, int pageCount, int dpi)
+            throws IOException {
+        int groups = Math.min(pageCount, Math.max(1, compareExecutor.getMaximumPoolSize() / 2));
+        List<Future<List<VisualCompareResponse.PageDiff>>> futures = new ArrayList<>(groups);
+        try {
+            for (int g = 0; g < groups; g++) {
+                int offset = g;
+                futures.add(compareExecutor.submit(
+                        () -> comparePdfGroup(path1, path2, offset, groups, pageCount, dpi)));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            log.warn("比对线程池已满，拒绝图形比对");
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        }
+
+        List<VisualCompareResponse.PageDiff> pages = new ArrayList<>(pageCount);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            for (Future<List<VisualCompareResponse.PageDiff>> future : futures) {
+                pages.addAll(await(future, deadline));
+            }
+        } finally {
+            // 超时或失败时中断其余分组，正常完成时为空操作
+            futures.forEach(future -> future.cancel(true));
+        }
+        pages.sort(Comparator.comparingInt(VisualCompareResponse.PageDiff::getPage));
+        return pages;
+    }
+
+    /**
+     * 在截止时间前等待比对结果，超时或被中断时返回繁忙
+     */
+    private static <T> T await(Future<T> future, long deadline) throws IOException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("图形比对超时，已中断比对任务");
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException(ErrorCode.RENDER_BUSY);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException uio) {
+                throw uio.getCause();
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private List<VisualCompareResponse.PageDiff> comparePdfGroup(Path path1, Path path2, int offset, int step,
+                                                                 int pageCount, int dpi) {
+        List<VisualCompareResponse.PageDiff> pages = new ArrayList<>();
+        try (PDDocument pdf1 = Loader.loadPDF(path1.toFile());
+             PDDocument pdf2 = Loader.loadPDF(path2.toFile())) {
+            PDFRenderer renderer1 = new PDFRenderer(pdf1);
+            PDFRenderer renderer2 = new PDFRenderer(pdf2);
+            PageHasher hasher1 = new PageHasher();
+            PageHasher hasher2 = new PageHasher();
+            for (int i = offset; i < pageCount; i += step) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (Arrays.equals(hasher1.hash(pdf1.getPage(i)), hasher2.hash(pdf2.getPage(i)))) {
+                    pages.add(new VisualCompareResponse.PageDiff(i + 1, PageDiffStatus.IDENTICAL, 0, 0, 0, List.of()));
+                    continue;
+                }
+                BufferedImage image1 = renderer1.renderImageWithDPI(i, dpi, ImageType.GRAY);
+                BufferedImage image2 = renderer2.renderImageWithDPI(i, dpi, ImageType.GRAY);
+                pages.add(toPageDiff(i + 1, RasterDiff.compare(image1, image2, threshold, cellSize)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return pages;
+    }
+
+    /**
+     * DXF 没有分页，按最长边 dxfSize × dpi / 72 像素整体渲染后比对
+     */
+    private VisualCompareResponse compareDxf(Document version1, Document version2,
+                                             Path path1, Path path2, int dpi) throws IOException {
+        List<VisualCompareResponse.PageDiff> pages;
+        if (version1.getContentHash() != null && version1.getContentHash().equals(version2.getContentHash())) {
+            pages = List.of(new VisualCompareResponse.PageDiff(1, PageDiffStatus.IDENTICAL, 0, 0, 0, List.of()));
+        } else {
+            int size = Math.max(1, dxfSize * dpi / 72);
+            Future<VisualCompareResponse.PageDiff> future;
+            try {
+                future = compareExecutor.submit(() -> toPageDiff(1, RasterDiff.compare(
+                        DxfRenderer.render(path1, size), DxfRenderer.render(path2, size), threshold, cellSize)));
+            } catch (RejectedExecutionException e) {
+                throw new BizException(ErrorCode.RENDER_BUSY);
+            }
+            try {
+                pages = List.of(await(future, System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds)));
+            } finally {
+                future.cancel(true);
+            }
+        }
+        return new VisualCompareResponse(version1.getId(), version2.getId(), dpi, 1, 1, countChanged(pages), pages);
+    }
+
+    private static VisualCompareResponse.PageDiff toPageDiff(int page, RasterDiff.Result diff) {
+        List<VisualCompareResponse.Region> regions = new ArrayList<>(diff.getRegions().size());
+        for (Rectangle r : diff.getRegions()) {
+            regions.add(new VisualCompareResponse.Region(r.x, r.y, r.width, r.height));
+        }
+        double ratio = (double) diff.getChangedPixels() / Math.max(1L, (long) diff.getWidth() * diff.getHeight());
+        return new VisualCompareResponse.PageDiff(page,
+                regions.isEmpty() ? PageDiffStatus.UNCHANGED : PageDiffStatus.CHANGED,
+                diff.getWidth(), diff.getHeight(), ratio, regions);
+    }
+
+    /**
+     * 页面摘要：页面尺寸、旋转、内容流、资源字典及注释（含外观流），影响渲染结果的数据都参与计算。
+     * 递归摘要对象树，跳过指向父节点的 /Parent、/P 避免遍历整个文档；
+     * 同一文档内共享的流（如字体）只计算一次摘要。
+     */
+    private static final class PageHasher {
+
+        private static final COSName KEY_P = COSName.getPDFName("P");
+
+        private final Map<COSStream, byte[]> streamDigests = new IdentityHashMap<>();
+
+        byte[] hash(PDPage page) throws IOException {
+            MessageDigest digest = sha256();
+            digest.update((page.getMediaBox() + "/" + page.getCropBox() + "/" + page.getRotation())
+                    .getBytes(StandardCharsets.US_ASCII));
+            try (InputStream in = page.getContents()) {
+                digestAll(digest, in);
+            }
+            Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            PDResources resources = page.getResources();
+            update(digest, resources != null ? resources.getCOSObject() : null, visited);
+            update(digest, page.getCOSObject().getDictionaryObject(COSName.ANNOTS), visited);
+            return digest.digest();
+        }
+
+        private void update(MessageDigest digest, COSBase base, Set<COSBase> visited) throws IOException {
+            if (base instanceof COSObject object) {
+                base = object.getObject();
+            }
+            if (base == null || base instanceof COSNull) {
+                digest.update((byte) 'n');
+                return;
+            }
+            if (!visited.add(base)) {
+                // 已摘要过的共享对象只记录引用，结构相同的两份文档结果一致
+                digest.update((byte) 'r');
+                return;
+            }
+            if (base instanceof COSStream stream) {
+                digest.update((byte) 's');
+                updateDictionary(digest, stream, visited);
+                digest.update(streamDigest(stream));
+            } else if (base instanceof COSDictionary dictionary) {
+                digest.update((byte) 'd');
+                updateDictionary(digest, dictionary, visited);
+            } else if (base instanceof COSArray array) {
+                digest.update((byte) 'a');
+                for (int i = 0; i < array.size(); i++) {
+                    update(digest, array.get(i), visited);
+                }
+                digest.update((byte) ']');
+            } else if (base instanceof COSName name) {
+                digest.update(('/' + name.getName()).getBytes(StandardCharsets.UTF_8));
+            } else if (base instanceof COSString string) {
+                digest.update((byte) '(');
+                digest.update(string.getBytes());
+                digest.update((byte) ')');
+            } else {
+                // 数字、布尔值
+                digest.update(base.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void updateDictionary(MessageDigest digest, COSDictionary dictionary, Set<COSBase> visited)
+                throws IOException {
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.sort(Comparator.comparing(COSName::getName));
+            for (COSName key : keys) {
+                if (COSName.PARENT.equals(key) || KEY_P.equals(key)) {
+                    continue;
+                }
+                digest.update(('/' + key.getName()).getBytes(StandardCharsets.UTF_8));
+                update(digest, dictionary.getItem(key), visited);
+            }
+            digest.update((byte) '>');
+        }
+
+        private byte[] streamDigest(COSStream stream) throws IOException {
+            byte[] cached = streamDigests.get(stream);
+            if (cached == null) {
+                MessageDigest digest = sha256();
+                try (InputStream in = stream.createRawInputStream()) {
+                    digestAll(digest, in);
+                }
+                cached = digest.digest();
+                streamDigests.put(stream, cached);
+            }
+            return cached;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void digestAll(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+    }
+
+    private static int countChanged(List<VisualCompareResponse.PageDiff> pages) {
+        int changed = 0;
+        for (VisualCompareResponse.PageDiff page : pages) {
+            if (page.getStatus() == PageDiffStatus.CHANGED
+                    || page.getStatus() == PageDiffStatus.ADDED
+                    || page.getStatus() == PageDiffStatus.REMOVED) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private static int pageCount(Path path) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(path.toFile())) {
+            return pdf.getNumberOfPages();
+        }
+    }
+
+    private Path resolveExisting(Document document) {
+        Path filePath = fileStore.resolve(document.getFilePath());
+        if (!Files.isRegularFile(filePath)) {
+            throw new BizException(ErrorCode.FILE_NOT_FOUND);
+        }
+        return filePath;
+    }
+
+    /**
+     * 两个版本都有内容摘要时才缓存结果
+     */
+    private static String cacheKey(Document version1, Document version2, int dpi) {
+        if (version1.getContentHash() == null || version2.getContentHash() == null) {
+            return null;
+        }
+        return version1.getContentHash() + "/" + version2.getContentHash() + "/" + dpi;
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Getter;
 @AllArgsConstructor
 public enum ErrorCode {
 
+    BAD_REQUEST(400, "请求参数不正确"),
     UNAUTHORIZED(401, "未登录或登录已过期"),
     FILE_TYPE_NOT_ALLOWED(1001, "文件类型不允许"),
     FILE_TOO_LARGE(1002, "文件过大"),
@@ -40,6 +41,24 @@ public enum ErrorCode {
     USERGROUP_CODE_EXISTS(1029, "用户组代码已存在"),
     USERGROUP_NOT_FOUND(1030, "用户组不存在"),
     PERMISSION_DENIED(1031, "没有权限"),
+    UPLOAD_SESSION_NOT_FOUND(1032, "上传会话不存在或已过期"),
+    UPLOAD_PART_INVALID(1033, "分片序号或分片大小不正确"),
+    UPLOAD_NOT_COMPLETE(1034, "分片尚未全部上传"),
+    UPLOAD_CHECKSUM_MISMATCH(1035, "文件校验值不一致"),
+    UPLOAD_IN_PROGRESS(1036, "上传正在合并中，请稍后重试"),
+    OBJECT_STORAGE_UNAVAILABLE(1037, "对象存储不可用"),
+    RENDER_BUSY(1038, "预览渲染繁忙，请稍后重试"),
+    PAGE_OUT_OF_RANGE(1039, "页码超出范围"),
+    COMPARISON_IN_PROGRESS(1040, "版本对比计算中，请稍后重试"),
+    COMPARISON_NOT_FOUND(1041, "对比记录不存在"),
+    INVALID_CURSOR(1042, "分页游标无效"),
+    EXPORT_BUSY(1043, "导出任务过多，请稍后重试"),
+    EXPORT_JOB_NOT_FOUND(1044, "导出任务不存在或已过期"),
+    EXPORT_NOT_READY(1045, "导出尚未完成"),
+    LOG_ARCHIVE_UNAVAILABLE(1046, "归档日志读取失败"),
+    UPLOAD_PROOF_INVALID(1047, "秒传校验失败，请重新上传文件"),
+    UPLOAD_ALREADY_CONSUMED(1048, "该上传已用于创建文档"),
+    UPLOAD_SIZE_MISMATCH(1049, "上传文件大小与声明不一致"),
     INTERNAL_ERROR(500, "系统内部错误");
 
     private final int code;
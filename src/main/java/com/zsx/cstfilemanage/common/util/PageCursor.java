@@ -0,0 +1,49 @@
+package com.zsx.cstfilemanage.common.util;
+
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页位置：上一页最后一条记录的 (createTime, id)
+ * 对外以不透明字符串传递，客户端不应解析其内容
+ */
+@Data
+@AllArgsConstructor
+public class PageCursor {
+
+    private static final String VERSION = "1";
+
+    private LocalDateTime createTime;
+    private Long id;
+
+    public String encode() {
+        String raw = VERSION + "|" + createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空时返回 null（第一页）
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new BizException(ErrorCode.INVALID_CURSOR);
+            }
+            return new PageCursor(LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BizException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.zsx.cstfilemanage.common.util;
+
+/**
+ * 令牌桶限流
+ * 按固定速率补充令牌，桶容量即允许的突发量；取令牌不阻塞，返回实际取得的数量
+ */
+public class TokenBucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity      桶容量
+     */
+    public TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("ratePerSecond must be > 0 and capacity >= 1");
+        }
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 最多取 max 个令牌
+     *
+     * @return 实际取得的令牌数（可能为 0）
+     */
+    public synchronized int tryAcquire(int max) {
+        refill();
+        int granted = (int) Math.min(max, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    /**
+     * 归还未使用的令牌
+     */
+    public synchronized void release(int count) {
+        tokens = Math.min(capacity, tokens + count);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
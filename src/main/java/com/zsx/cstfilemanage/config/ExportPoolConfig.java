@@ -0,0 +1,33 @@
+package com.zsx.cstfilemanage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导出任务线程池配置
+ * 单节点同时执行的导出数受线程数限制，排队数受队列容量限制，超出时拒绝提交
+ */
+@Configuration
+public class ExportPoolConfig {
+
+    @Bean(name = "exportExecutor", destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor exportExecutor(
+            @Value("${export.max-concurrent:2}") int maxConcurrent,
+            @Value("${export.queue-capacity:8}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "export-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,8 +1,8 @@
 package com.zsx.cstfilemanage.config;
 
 
-import com.zsx.cstfilemanage.domain.storage.OcsClient;
-import com.zsx.cstfilemanage.domain.storage.UploadToken;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalOcsClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,13 +10,8 @@ import org.springframework.context.annotation.Configuration;
 public class OcsConfig {
 
     @Bean
-    public OcsClient ocsClient() {
-        return new OcsClient() {
-            @Override
-            public UploadToken generateUploadToken(String objectKey, int expireSeconds) {
-                return null;
-            }
-        };
+    public LocalOcsClient ocsClient(OcsProperties properties, LocalFileStore fileStore) {
+        return new LocalOcsClient(properties, fileStore);
         // return new OcsClient("endpoint", "accessKeyId", "accessKeySecret");
     }
 }
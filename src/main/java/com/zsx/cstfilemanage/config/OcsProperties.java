@@ -0,0 +1,40 @@
+package com.zsx.cstfilemanage.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地对象存储配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ocs.local")
+public class OcsProperties {
+
+    /**
+     * 是否启用本地对象存储直传；关闭时上传退化为分片上传
+     */
+    private boolean enabled = true;
+
+    /**
+     * 监听地址与端口（独立于 Web 容器）
+     */
+    private String host = "0.0.0.0";
+    private int port = 9000;
+
+    /**
+     * 客户端访问的外部地址，用于拼接预签名 URL
+     */
+    private String publicUrl = "http://localhost:9000";
+
+    /**
+     * 签名密钥，为空时启动时随机生成（重启后已签发的 URL 失效）
+     */
+    private String secret = "";
+
+    /**
+     * 传输线程数
+     */
+    private int threads = 8;
+}
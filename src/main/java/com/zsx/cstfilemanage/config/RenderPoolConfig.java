@@ -0,0 +1,88 @@
+package com.zsx.cstfilemanage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 渲染线程池配置
+ * PDF 渲染占用 CPU 和内存，使用独立的有界线程池，队列满时拒绝新任务而不是无限堆积
+ */
+@Configuration
+public class RenderPoolConfig {
+
+    @Bean(name = "renderExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor renderExecutor(
+            @Value("${preview.render.threads:0}") int threads,
+            @Value("${preview.render.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "preview-render-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 预热线程池：低优先级、队列有界，批量下发时多余的预热任务直接丢弃，不影响业务请求
+     */
+    @Bean(name = "warmupExecutor", destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor warmupExecutor(
+            @Value("${preview.warmup.threads:1}") int threads,
+            @Value("${preview.warmup.queue-capacity:256}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "preview-warmup-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 图形比对线程池：与预览渲染隔离，整份文档的逐页比对不会占满预览、预热所用的渲染线程
+     */
+    @Bean(name = "compareExecutor", destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor compareExecutor(
+            @Value("${compare.visual.threads:0}") int threads,
+            @Value("${compare.visual.queue-capacity:16}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "visual-compare-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 缩略图线程池：失败任务按退避时间重新调度
+     */
+    @Bean(name = "thumbnailExecutor", destroyMethod = "shutdownNow")
+    public ScheduledThreadPoolExecutor thumbnailExecutor(@Value("${thumbnail.workers:2}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(workers, r -> {
+            Thread thread = new Thread(r, "thumbnail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,20 @@
+package com.zsx.cstfilemanage.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定时任务线程池配置
+ * 容器中已有缩略图用的 ScheduledExecutorService，Spring Boot 不再自动创建调度器，
+ * 这里显式声明，使 @Scheduled 任务不占用缩略图线程，线程数由 spring.task.scheduling.pool.size 配置
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
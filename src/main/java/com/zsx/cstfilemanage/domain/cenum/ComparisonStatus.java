@@ -0,0 +1,10 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 版本对比状态
+ */
+public enum ComparisonStatus {
+    COMPUTING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,22 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 文档变更类型枚举
+ */
+public enum DocumentChangeType {
+    UPLOADED("已上传"),
+    VERSION_CREATED("已创建新版本"),
+    STATUS_CHANGED("状态变更"),
+    APPROVED("审批通过"),
+    DISTRIBUTED("已下发");
+
+    private final String description;
+
+    DocumentChangeType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,32 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 导出文件格式枚举
+ */
+public enum ExportFormat {
+    XLSX("Excel", "xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    CSV("CSV", "csv", "text/csv;charset=UTF-8"),
+    CSV_GZ("CSV（gzip 压缩）", "csv.gz", "application/gzip");
+
+    private final String description;
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String description, String extension, String contentType) {
+        this.description = description;
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
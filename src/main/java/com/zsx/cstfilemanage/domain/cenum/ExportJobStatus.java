@@ -0,0 +1,11 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 导出任务状态
+ */
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
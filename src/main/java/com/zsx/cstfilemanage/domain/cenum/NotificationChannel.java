@@ -0,0 +1,9 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 通知渠道
+ */
+public enum NotificationChannel {
+    EMAIL,
+    SMS
+}
@@ -0,0 +1,20 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 通知发送状态
+ */
+public enum NotificationStatus {
+    /**
+     * 待发送（含等待重试）
+     */
+    PENDING,
+    /**
+     * 已被发送线程领取，租约到期未完成时重新领取
+     */
+    SENDING,
+    SENT,
+    /**
+     * 超过最大重试次数
+     */
+    FAILED
+}
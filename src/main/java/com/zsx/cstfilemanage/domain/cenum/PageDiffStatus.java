@@ -0,0 +1,24 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 页面比对状态
+ */
+public enum PageDiffStatus {
+    /**
+     * 页面内容摘要相同，未渲染
+     */
+    IDENTICAL,
+    /**
+     * 内容摘要不同但渲染结果无差异
+     */
+    UNCHANGED,
+    CHANGED,
+    /**
+     * 仅新版本有该页
+     */
+    ADDED,
+    /**
+     * 仅旧版本有该页
+     */
+    REMOVED
+}
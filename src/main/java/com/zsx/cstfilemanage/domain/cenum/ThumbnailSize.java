@@ -0,0 +1,26 @@
+package com.zsx.cstfilemanage.domain.cenum;
+
+/**
+ * 缩略图规格枚举（最长边像素）
+ */
+public enum ThumbnailSize {
+    LIST("列表", 64),
+    GRID("网格", 200),
+    DETAIL("详情", 800);
+
+    private final String description;
+    private final int pixels;
+
+    ThumbnailSize(String description, int pixels) {
+        this.description = description;
+        this.pixels = pixels;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPixels() {
+        return pixels;
+    }
+}
@@ -4,5 +4,9 @@ public enum UploadStatus {
     INIT,
     UPLOADING,
     COMPLETED,
-    FAILED
+    FAILED,
+    /**
+     * 已用于创建文档，不能重复使用
+     */
+    CONSUMED
 }
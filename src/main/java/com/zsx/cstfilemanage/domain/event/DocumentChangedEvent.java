@@ -0,0 +1,16 @@
+package com.zsx.cstfilemanage.domain.event;
+
+import com.zsx.cstfilemanage.domain.cenum.DocumentChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 文档变更事件（领域事件，由业务服务在状态流转时发布）
+ */
+@Data
+@AllArgsConstructor
+public class DocumentChangedEvent {
+
+    private Long documentId;
+    private DocumentChangeType changeType;
+}
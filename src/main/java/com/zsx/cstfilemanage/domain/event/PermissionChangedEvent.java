@@ -0,0 +1,37 @@
+package com.zsx.cstfilemanage.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 权限变更事件（角色的权限、用户的角色或权限定义发生变化时发布，用于失效权限缓存）
+ */
+@Data
+@AllArgsConstructor
+public class PermissionChangedEvent {
+
+    /**
+     * 权限被修改的角色，为空表示不涉及
+     */
+    private Long roleId;
+
+    /**
+     * 角色被修改的用户，为空表示不涉及
+     */
+    private Long userId;
+
+    public static PermissionChangedEvent ofRole(Long roleId) {
+        return new PermissionChangedEvent(roleId, null);
+    }
+
+    public static PermissionChangedEvent ofUser(Long userId) {
+        return new PermissionChangedEvent(null, userId);
+    }
+
+    /**
+     * 权限定义变化（新增权限等），roleId 与 userId 均为空
+     */
+    public static PermissionChangedEvent ofDefinitions() {
+        return new PermissionChangedEvent(null, null);
+    }
+}
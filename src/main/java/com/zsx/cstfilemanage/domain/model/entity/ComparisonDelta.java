@@ -0,0 +1,65 @@
+package com.zsx.cstfilemanage.domain.model.entity;
+
+import com.github.difflib.patch.DeltaType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 版本对比差异明细
+ * 位置为提取文本的行号（从 0 开始）
+ */
+@Entity
+@Table(name = "comparison_deltas", indexes = {
+    @Index(name = "idx_comparison_seq", columnList = "comparisonId,seq"),
+    @Index(name = "idx_comparison_source", columnList = "comparisonId,sourcePosition")
+})
+@Data
+public class ComparisonDelta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long comparisonId;
+
+    /**
+     * 差异序号（按位置顺序）
+     */
+    @Column(nullable = false)
+    private Integer seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private DeltaType type;
+
+    @Column(nullable = false)
+    private Integer sourcePosition;
+
+    @Column(nullable = false)
+    private Integer sourceSize;
+
+    @Column(nullable = false)
+    private Integer targetPosition;
+
+    @Column(nullable = false)
+    private Integer targetSize;
+
+    /**
+     * 原文行（JSON 数组）
+     */
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String sourceLines;
+
+    /**
+     * 修改后行（JSON 数组）
+     */
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String targetLines;
+
+    /**
+     * 行内容是否被截断
+     */
+    @Column(nullable = false)
+    private Boolean truncated = false;
+}
@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
  * 文档实体
  */
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = {
+    @Index(name = "idx_content_hash", columnList = "contentHash"),
+    @Index(name = "idx_file_path", columnList = "filePath"),
+    @Index(name = "idx_create_time_id", columnList = "createTime,id")
+})
 @Data
 public class Document {
 
@@ -98,6 +102,12 @@ public class Document {
     @Column(length = 500)
     private String thumbnailPath;
 
+    /**
+     * 文件内容SHA-256摘要
+     */
+    @Column(length = 64)
+    private String contentHash;
+
     /**
      * 文件MIME类型
      */
@@ -0,0 +1,82 @@
+package com.zsx.cstfilemanage.domain.model.entity;
+
+import com.zsx.cstfilemanage.domain.cenum.NotificationChannel;
+import com.zsx.cstfilemanage.domain.cenum.NotificationStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 通知发件箱
+ * 业务事务内写入，事务提交后由 NotificationDispatcher 异步发送；一条记录对应一批收件人（一封邮件或一组短信）
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+    @Index(name = "idx_channel_status_next", columnList = "channel,status,nextAttemptTime"),
+    @Index(name = "idx_status_sent_time", columnList = "status,sentTime")
+})
+@Data
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationChannel channel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationStatus status;
+
+    /**
+     * 收件人（邮箱或手机号），每行一个
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String recipients;
+
+    @Column(nullable = false)
+    private Integer recipientCount;
+
+    /**
+     * 已发送的收件人数（短信逐个发送，重试时从此处继续）
+     */
+    @Column(nullable = false)
+    private Integer sentCount = 0;
+
+    @Column(length = 200)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    /**
+     * 已失败次数
+     */
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * 下次可发送时间（重试退避、发送租约）
+     */
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptTime;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createTime;
+
+    private LocalDateTime sentTime;
+
+    @PrePersist
+    protected void onCreate() {
+        createTime = LocalDateTime.now();
+        if (nextAttemptTime == null) {
+            nextAttemptTime = createTime;
+        }
+    }
+}
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Table(name = "operation_logs", indexes = {
     @Index(name = "idx_user_id", columnList = "userId"),
     @Index(name = "idx_operation_type", columnList = "operationType"),
-    @Index(name = "idx_create_time", columnList = "createTime")
+    @Index(name = "idx_create_time_id", columnList = "createTime,id")
 })
 @Data
 public class OperationLog {
@@ -91,7 +91,9 @@ public class OperationLog {
 
     @PrePersist
     protected void onCreate() {
-        createTime = LocalDateTime.now();
+        if (createTime == null) {
+            createTime = LocalDateTime.now();
+        }
     }
 }
 
@@ -19,23 +19,56 @@ public class UploadSession {
     private UploadStatus status;
     private Long createTime;
 
+    // 分片上传信息
+    private String fileName;
+    private String contentType;
+    private Long fileSize;
+    private Long chunkSize;
+    private Integer totalParts;
+    private String checksum;
+
+    // 秒传持有证明区间
+    private Long proofOffset;
+    private Long proofLength;
+
     public static UploadSession init(
             String uploadId,
             Long userId,
             String objectKey,
             String bizType) {
 
-        return new UploadSession(
-                uploadId,
-                userId,
-                objectKey,
-                bizType,
-                UploadStatus.INIT,
-                System.currentTimeMillis()
-        );
+        UploadSession session = new UploadSession();
+        session.setUploadId(uploadId);
+        session.setUserId(userId);
+        session.setObjectKey(objectKey);
+        session.setBizType(bizType);
+        session.setStatus(UploadStatus.INIT);
+        session.setCreateTime(System.currentTimeMillis());
+        return session;
     }
 
     public static String generateUploadId() {
         return "upl_" + UUID.randomUUID().toString().replace("-", "");
     }
+
+    /**
+     * 计算分片数
+     */
+    public static int calculateTotalParts(long fileSize, long chunkSize) {
+        return (int) ((fileSize + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * 指定分片（从1开始）在文件中的偏移量
+     */
+    public long partOffset(int partNumber) {
+        return (partNumber - 1) * chunkSize;
+    }
+
+    /**
+     * 指定分片（从1开始）的期望大小，最后一片可能不足 chunkSize
+     */
+    public long partLength(int partNumber) {
+        return Math.min(chunkSize, fileSize - partOffset(partNumber));
+    }
 }
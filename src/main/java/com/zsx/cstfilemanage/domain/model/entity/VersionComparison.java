@@ -0,0 +1,68 @@
+package com.zsx.cstfilemanage.domain.model.entity;
+
+import com.zsx.cstfilemanage.domain.cenum.ComparisonStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 版本对比记录
+ * 每对版本只计算一次，差异明细见 ComparisonDelta
+ */
+@Entity
+@Table(name = "version_comparisons",
+        uniqueConstraints = @UniqueConstraint(name = "uk_version_pair", columnNames = {"version1Id", "version2Id"}))
+@Data
+public class VersionComparison {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long version1Id;
+
+    @Column(nullable = false)
+    private Long version2Id;
+
+    /**
+     * 计算时版本1的内容摘要，摘要变化后重新计算
+     */
+    @Column(length = 64)
+    private String version1Hash;
+
+    /**
+     * 计算时版本2的内容摘要
+     */
+    @Column(length = 64)
+    private String version2Hash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ComparisonStatus status;
+
+    /**
+     * 差异数量
+     */
+    @Column(nullable = false)
+    private Integer deltaCount = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createTime;
+
+    /**
+     * 本次计算开始时间
+     */
+    private LocalDateTime startTime;
+
+    private LocalDateTime completeTime;
+
+    @PrePersist
+    protected void onCreate() {
+        createTime = LocalDateTime.now();
+    }
+}
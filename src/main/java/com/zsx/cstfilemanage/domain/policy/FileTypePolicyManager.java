@@ -26,4 +26,14 @@ public class FileTypePolicyManager {
         }
         policy.validate(contentType, fileSize);
     }
+
+    /**
+     * 业务类型配置了策略时按策略校验，未配置时不做额外限制
+     */
+    public void validateIfPresent(String bizType, String contentType, long fileSize) {
+        FileTypePolicy policy = policyMap.get(bizType);
+        if (policy != null) {
+            policy.validate(contentType, fileSize);
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package com.zsx.cstfilemanage.domain.repository;
+
+import com.github.difflib.patch.DeltaType;
+import com.zsx.cstfilemanage.domain.model.entity.ComparisonDelta;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 版本对比差异仓储接口
+ */
+public interface ComparisonDeltaRepository extends JpaRepository<ComparisonDelta, Long> {
+
+    /**
+     * 分页查询差异，可按原文行号区间（与差异区间有交集）和差异类型过滤
+     */
+    @Query("""
+            SELECT d FROM ComparisonDelta d
+            WHERE d.comparisonId = :comparisonId
+            AND
+            (:fromLine IS NULL OR d.sourcePosition + d.sourceSize > :fromLine
+                OR (d.sourceSize = 0 AND d.sourcePosition >= :fromLine))
+            AND
+            (:toLine IS NULL OR d.sourcePosition < :toLine)
+            AND
+            (:type IS NULL OR d.type = :type)
+            """)
+    Page<ComparisonDelta> searchDeltas(
+            @Param("comparisonId") Long comparisonId,
+            @Param("fromLine") Integer fromLine,
+            @Param("toLine") Integer toLine,
+            @Param("type") DeltaType type,
+            Pageable pageable
+    );
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ComparisonDelta d WHERE d.comparisonId = :comparisonId")
+    int deleteByComparisonId(@Param("comparisonId") Long comparisonId);
+}
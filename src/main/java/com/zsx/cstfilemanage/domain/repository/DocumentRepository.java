@@ -5,9 +5,12 @@ import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +39,34 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
      */
     Optional<Document> findByFileNumberAndIsCurrentVersionTrue(String fileNumber);
 
+    /**
+     * 根据内容摘要查询（内容寻址去重）
+     */
+    Optional<Document> findFirstByContentHash(String contentHash);
+
+    /**
+     * 根据内容摘要查询指定用户编制的文档
+     */
+    Optional<Document> findFirstByContentHashAndCompilerId(String contentHash, Long compilerId);
+
+    /**
+     * 引用指定存储路径的文档数
+     */
+    long countByFilePath(String filePath);
+
+    /**
+     * 按主键顺序读取 id 大于 lastId 的一批文档（全量遍历用，不做 OFFSET 和 COUNT）
+     */
+    List<Document> findByIdGreaterThanOrderByIdAsc(Long lastId, Pageable limit);
+
+    /**
+     * 更新缩略图路径（后台生成完成后回写）
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Document d SET d.thumbnailPath = :thumbnailPath WHERE d.id = :id")
+    int updateThumbnailPath(@Param("id") Long id, @Param("thumbnailPath") String thumbnailPath);
+
     /**
      * 根据状态查询
      */
@@ -52,11 +83,16 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     Page<Document> findByProductModel(String productModel, Pageable pageable);
 
     /**
-     * 多条件搜索
+     * 多条件搜索（keyword 匹配文件编号、文件名、描述，全文索引不可用时使用）
      */
     @Query("""
             SELECT d FROM Document d
             WHERE
+            (:keyword IS NULL OR :keyword = ''
+                OR d.fileNumber LIKE CONCAT('%', :keyword, '%')
+                OR d.fileName LIKE CONCAT('%', :keyword, '%')
+                OR d.description LIKE CONCAT('%', :keyword, '%'))
+            AND
             (:fileNumber IS NULL OR :fileNumber = '' OR d.fileNumber LIKE CONCAT('%', :fileNumber, '%'))
             AND
             (:fileName IS NULL OR :fileName = '' OR d.fileName LIKE CONCAT('%', :fileName, '%'))
@@ -68,6 +104,7 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
             (:compilerId IS NULL OR d.compilerId = :compilerId)
             """)
     Page<Document> searchDocuments(
+            @Param("keyword") String keyword,
             @Param("fileNumber") String fileNumber,
             @Param("fileName") String fileName,
             @Param("productModel") String productModel,
@@ -76,6 +113,97 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
             Pageable pageable
     );
 
+    /**
+     * 多条件搜索（游标分页）
+     * 按 (createTime, id) 倒序定位到游标之后，走 idx_create_time_id 索引，不做 OFFSET 扫描和 COUNT；
+     * cursorTime 为空时返回第一页，条数由 limit 的 pageSize 控制
+     */
+    @Query("""
+            SELECT d FROM Document d
+            WHERE
+            (:fileNumber IS NULL OR :fileNumber = '' OR d.fileNumber LIKE CONCAT('%', :fileNumber, '%'))
+            AND
+            (:fileName IS NULL OR :fileName = '' OR d.fileName LIKE CONCAT('%', :fileName, '%'))
+            AND
+            (:productModel IS NULL OR :productModel = '' OR d.productModel = :productModel)
+            AND
+            (:status IS NULL OR d.status = :status)
+            AND
+            (:compilerId IS NULL OR d.compilerId = :compilerId)
+            AND
+            (:cursorTime IS NULL OR d.createTime < :cursorTime
+                OR (d.createTime = :cursorTime AND d.id < :cursorId))
+            ORDER BY d.createTime DESC, d.id DESC
+            """)
+    List<Document> seekDocuments(
+            @Param("fileNumber") String fileNumber,
+            @Param("fileName") String fileName,
+            @Param("productModel") String productModel,
+            @Param("status") DocumentStatus status,
+            @Param("compilerId") Long compilerId,
+            @Param("cursorTime") LocalDateTime cursorTime,
+            @Param("cursorId") Long cursorId,
+            Pageable limit
+    );
+
+    /**
+     * 多条件搜索的总数（游标分页按需计算）
+     */
+    @Query("""
+            SELECT COUNT(d) FROM Document d
+            WHERE
+            (:fileNumber IS NULL OR :fileNumber = '' OR d.fileNumber LIKE CONCAT('%', :fileNumber, '%'))
+            AND
+            (:fileName IS NULL OR :fileName = '' OR d.fileName LIKE CONCAT('%', :fileName, '%'))
+            AND
+            (:productModel IS NULL OR :productModel = '' OR d.productModel = :productModel)
+            AND
+            (:status IS NULL OR d.status = :status)
+            AND
+            (:compilerId IS NULL OR d.compilerId = :compilerId)
+            """)
+    long countDocuments(
+            @Param("fileNumber") String fileNumber,
+            @Param("fileName") String fileName,
+            @Param("productModel") String productModel,
+            @Param("status") DocumentStatus status,
+            @Param("compilerId") Long compilerId
+    );
+
+    /**
+     * 多条件搜索的分面统计（全文索引不可用时使用）
+     * 一次扫描按 状态、文件类型、产品型号、编制人 组合分组计数，各维度的数量由调用方汇总
+     *
+     * @return [status, fileType, productModel, compilerId, count]
+     */
+    @Query("""
+            SELECT d.status, d.fileType, d.productModel, d.compilerId, COUNT(d) FROM Document d
+            WHERE
+            (:keyword IS NULL OR :keyword = ''
+                OR d.fileNumber LIKE CONCAT('%', :keyword, '%')
+                OR d.fileName LIKE CONCAT('%', :keyword, '%')
+                OR d.description LIKE CONCAT('%', :keyword, '%'))
+            AND
+            (:fileNumber IS NULL OR :fileNumber = '' OR d.fileNumber LIKE CONCAT('%', :fileNumber, '%'))
+            AND
+            (:fileName IS NULL OR :fileName = '' OR d.fileName LIKE CONCAT('%', :fileName, '%'))
+            AND
+            (:productModel IS NULL OR :productModel = '' OR d.productModel = :productModel)
+            AND
+            (:status IS NULL OR d.status = :status)
+            AND
+            (:compilerId IS NULL OR d.compilerId = :compilerId)
+            GROUP BY d.status, d.fileType, d.productModel, d.compilerId
+            """)
+    List<Object[]> countFacets(
+            @Param("keyword") String keyword,
+            @Param("fileNumber") String fileNumber,
+            @Param("fileName") String fileName,
+            @Param("productModel") String productModel,
+            @Param("status") DocumentStatus status,
+            @Param("compilerId") Long compilerId
+    );
+
     /**
      * 查询待审批的文档
      */
@@ -0,0 +1,86 @@
+package com.zsx.cstfilemanage.domain.repository;
+
+import com.zsx.cstfilemanage.domain.cenum.NotificationStatus;
+import com.zsx.cstfilemanage.domain.model.entity.NotificationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 通知发件箱仓储接口
+ */
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * 锁定到期待发送的记录（含租约过期的发送中记录）
+     * SKIP LOCKED 跳过其他节点已锁定的行，多节点可并行领取互不阻塞
+     */
+    @Query(value = """
+            SELECT * FROM notification_outbox
+            WHERE channel = :channel
+            AND status IN ('PENDING', 'SENDING')
+            AND next_attempt_time <= :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<NotificationOutbox> lockDue(@Param("channel") String channel,
+                                     @Param("now") LocalDateTime now,
+                                     @Param("limit") int limit);
+
+    /**
+     * 回写发送结果：仅当记录仍处于本次领取的租约中（发送中且租约到期时间未变）时更新
+     *
+     * @return 更新行数，0 表示租约已过期并被其他节点重新领取
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE NotificationOutbox o
+            SET o.status = :status, o.sentCount = :sentCount, o.attempts = :attempts,
+                o.nextAttemptTime = :nextAttemptTime, o.lastError = :lastError, o.sentTime = :sentTime
+            WHERE o.id = :id
+            AND o.status = com.zsx.cstfilemanage.domain.cenum.NotificationStatus.SENDING
+            AND o.nextAttemptTime = :lease
+            """)
+    int updateIfLeased(@Param("id") Long id,
+                       @Param("lease") LocalDateTime lease,
+                       @Param("status") NotificationStatus status,
+                       @Param("sentCount") Integer sentCount,
+                       @Param("attempts") Integer attempts,
+                       @Param("nextAttemptTime") LocalDateTime nextAttemptTime,
+                       @Param("lastError") String lastError,
+                       @Param("sentTime") LocalDateTime sentTime);
+
+    /**
+     * 保存发送进度并续租（条件同上）
+     *
+     * @return 更新行数，0 表示租约已丢失
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE NotificationOutbox o
+            SET o.sentCount = :sentCount, o.nextAttemptTime = :renewedLease
+            WHERE o.id = :id
+            AND o.status = com.zsx.cstfilemanage.domain.cenum.NotificationStatus.SENDING
+            AND o.nextAttemptTime = :lease
+            """)
+    int updateProgress(@Param("id") Long id,
+                       @Param("lease") LocalDateTime lease,
+                       @Param("sentCount") Integer sentCount,
+                       @Param("renewedLease") LocalDateTime renewedLease);
+
+    /**
+     * 删除指定时间之前已发送的记录（分批）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM notification_outbox WHERE status = 'SENT' AND sent_time < :before LIMIT :limit",
+            nativeQuery = true)
+    int deleteSentBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
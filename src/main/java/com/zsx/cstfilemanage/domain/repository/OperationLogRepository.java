@@ -48,11 +48,54 @@ public interface OperationLogRepository extends JpaRepository<OperationLog, Long
             Pageable pageable
     );
 
+    /**
+     * 多条件查询日志（游标分页）
+     * 按 (createTime, id) 倒序定位到游标之后，走 idx_create_time_id 索引，深翻页不再随页码线性变慢
+     */
+    @Query("""
+            SELECT ol FROM OperationLog ol
+            WHERE
+            (:userId IS NULL OR ol.userId = :userId)
+            AND
+            (:operationType IS NULL OR ol.operationType = :operationType)
+            AND
+            (:startTime IS NULL OR ol.createTime >= :startTime)
+            AND
+            (:endTime IS NULL OR ol.createTime < :endTime)
+            AND
+            (:cursorTime IS NULL OR ol.createTime < :cursorTime
+                OR (ol.createTime = :cursorTime AND ol.id < :cursorId))
+            ORDER BY ol.createTime DESC, ol.id DESC
+            """)
+    List<OperationLog> seekLogs(
+            @Param("userId") Long userId,
+            @Param("operationType") OperationType operationType,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("cursorTime") LocalDateTime cursorTime,
+            @Param("cursorId") Long cursorId,
+            Pageable limit
+    );
 
     /**
-     * 查询指定时间之前的日志（用于清理）
+     * 多条件查询日志的总数（游标分页按需计算）
      */
-    @Query("SELECT ol FROM OperationLog ol WHERE ol.createTime < :beforeTime")
-    List<OperationLog> findLogsBefore(@Param("beforeTime") LocalDateTime beforeTime);
+    @Query("""
+            SELECT COUNT(ol) FROM OperationLog ol
+            WHERE
+            (:userId IS NULL OR ol.userId = :userId)
+            AND
+            (:operationType IS NULL OR ol.operationType = :operationType)
+            AND
+            (:startTime IS NULL OR ol.createTime >= :startTime)
+            AND
+            (:endTime IS NULL OR ol.createTime < :endTime)
+            """)
+    long countLogs(
+            @Param("userId") Long userId,
+            @Param("operationType") OperationType operationType,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
 }
 
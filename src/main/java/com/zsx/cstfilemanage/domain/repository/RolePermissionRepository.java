@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,6 +19,12 @@ public interface RolePermissionRepository extends JpaRepository<RolePermission,
     @Query("SELECT rp.permissionId FROM RolePermission rp WHERE rp.roleId = :roleId")
     List<Long> findPermissionIdsByRoleId(@Param("roleId") Long roleId);
 
+    /**
+     * 批量查询多个角色的权限ID（去重）
+     */
+    @Query("SELECT DISTINCT rp.permissionId FROM RolePermission rp WHERE rp.roleId IN :roleIds")
+    List<Long> findPermissionIdsByRoleIds(@Param("roleIds") Collection<Long> roleIds);
+
     /**
      * 根据权限ID查询角色ID列表
      */
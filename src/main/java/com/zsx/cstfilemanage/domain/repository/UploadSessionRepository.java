@@ -1,10 +1,64 @@
 package com.zsx.cstfilemanage.domain.repository;
 
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
 import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
 
+import java.util.List;
+
 public interface UploadSessionRepository {
 
     void save(UploadSession session);
 
     UploadSession get(String uploadId);
+
+    /**
+     * 标记分片已接收（分片序号从1开始），同时刷新会话有效期
+     */
+    void markPartReceived(String uploadId, int partNumber);
+
+    /**
+     * 已接收的分片数
+     */
+    long countReceivedParts(String uploadId);
+
+    /**
+     * 未接收的分片序号列表
+     */
+    List<Integer> findMissingParts(String uploadId, int totalParts);
+
+    /**
+     * 仅当会话当前状态为 expected 时改为 target（原子比较），不会覆盖并发写入的其他状态
+     *
+     * @return 是否已更新
+     */
+    boolean compareAndSetStatus(String uploadId, UploadStatus expected, UploadStatus target);
+
+    /**
+     * 获取会话锁（用于合并等互斥操作），获取后新的分片写入会被拒绝
+     */
+    boolean tryLock(String uploadId);
+
+    /**
+     * 开始写入分片：会话锁未被持有时登记一个进行中的写入（原子操作）
+     *
+     * @return false 表示会话正在合并，拒绝写入
+     */
+    boolean beginPartWrite(String uploadId);
+
+    /**
+     * 结束分片写入
+     */
+    void endPartWrite(String uploadId);
+
+    /**
+     * 进行中的分片写入数
+     */
+    long countPartWrites(String uploadId);
+
+    void unlock(String uploadId);
+
+    /**
+     * 删除分片位图
+     */
+    void deleteParts(String uploadId);
 }
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +35,12 @@ public interface UserGroupMemberRepository extends JpaRepository<UserGroupMember
     @Query("SELECT ugm.userId FROM UserGroupMember ugm WHERE ugm.groupId = :groupId")
     List<Long> findUserIdsByGroupId(@Param("groupId") Long groupId);
 
+    /**
+     * 根据多个用户组ID查询用户ID列表（去重）
+     */
+    @Query("SELECT DISTINCT ugm.userId FROM UserGroupMember ugm WHERE ugm.groupId IN :groupIds")
+    List<Long> findUserIdsByGroupIds(@Param("groupIds") Collection<Long> groupIds);
+
     /**
      * 根据用户ID查询用户组ID列表
      */
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     List<User> findByDepartmentId(Long departmentId);
 
+    /**
+     * 根据多个部门ID查询
+     */
+    List<User> findByDepartmentIdIn(Collection<Long> departmentIds);
+
     /**
      * 查询启用的用户
      */
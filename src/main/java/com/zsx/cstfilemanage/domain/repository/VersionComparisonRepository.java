@@ -0,0 +1,14 @@
+package com.zsx.cstfilemanage.domain.repository;
+
+import com.zsx.cstfilemanage.domain.model.entity.VersionComparison;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+/**
+ * 版本对比记录仓储接口
+ */
+public interface VersionComparisonRepository extends JpaRepository<VersionComparison, Long> {
+
+    Optional<VersionComparison> findByVersion1IdAndVersion2Id(Long version1Id, Long version2Id);
+}
@@ -0,0 +1,12 @@
+package com.zsx.cstfilemanage.domain.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DownloadToken {
+
+    private String downloadUrl;
+    private Long expireAt;
+}
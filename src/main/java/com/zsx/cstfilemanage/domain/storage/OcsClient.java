@@ -2,5 +2,7 @@ package com.zsx.cstfilemanage.domain.storage;
 
 public interface OcsClient {
 
-    UploadToken generateUploadToken(String objectKey, int expireSeconds);
+    UploadToken generateUploadToken(String objectKey, long size, int expireSeconds);
+
+    DownloadToken generateDownloadToken(String objectKey, int expireSeconds);
 }
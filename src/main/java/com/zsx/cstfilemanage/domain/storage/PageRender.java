@@ -0,0 +1,38 @@
+package com.zsx.cstfilemanage.domain.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * 单页渲染任务：确定了页码、分辨率和格式，可直接计算缓存 key 与 ETag
+ */
+@Data
+@AllArgsConstructor
+public class PageRender {
+
+    private Path path;
+    /**
+     * 页码（从 0 开始）
+     */
+    private int pageIndex;
+    private int dpi;
+    /**
+     * 图片格式：png / jpg
+     */
+    private String format;
+    private String cacheKey;
+    /**
+     * 渲染阶段：preview（低分辨率）/ full
+     */
+    private String stage;
+
+    public String getContentType() {
+        return "jpg".equals(format) ? "image/jpeg" : "image/png";
+    }
+
+    public String getEtag() {
+        return "\"" + cacheKey.replace('/', '-') + "\"";
+    }
+}
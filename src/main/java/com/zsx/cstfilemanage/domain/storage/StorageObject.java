@@ -0,0 +1,17 @@
+package com.zsx.cstfilemanage.domain.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 已落盘的存储对象
+ */
+@Data
+@AllArgsConstructor
+public class StorageObject {
+
+    private String objectKey;   // 相对 upload-dir 的存储路径
+    private long size;          // 文件大小（字节）
+    private String sha256;      // 内容摘要（十六进制）
+    private boolean deduplicated; // 是否复用了已存在的 blob
+}
@@ -0,0 +1,23 @@
+package com.zsx.cstfilemanage.domain.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * 本地已存储文件的描述（用于按字节范围输出）
+ */
+@Data
+@AllArgsConstructor
+public class StoredFile {
+
+    private Path path;
+    private long size;
+    private long lastModified;
+    /**
+     * 内容摘要（SHA-256），旧数据可能为空
+     */
+    private String contentHash;
+    private String fileName;
+}
@@ -0,0 +1,294 @@
+package com.zsx.cstfilemanage.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * 预览渲染结果缓存
+ * 两级缓存：按字节数限制的堆内 LRU + 磁盘缓存（uploads/.cache/preview）。
+ * 同一 key 的并发请求只触发一次渲染：缓存查询和等待都在调用线程进行，
+ * 只有发起渲染的请求向渲染线程池提交任务，其余请求等待同一个 Future，不占用渲染线程或队列位置。
+ * 磁盘缓存定时清理：超过保留天数未访问的文件删除，总大小超过上限时按最近访问时间从旧到新删除。
+ */
+@Component
+@Slf4j
+public class PreviewCache {
+
+    private static final String CACHE_DIR = ".cache/preview";
+
+    private final LocalFileStore fileStore;
+    private final Cache<String, byte[]> memory;
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 磁盘缓存总大小上限（字节）
+     */
+    @Value("${preview.cache.disk-max-bytes:10737418240}")
+    private long diskMaxBytes;
+
+    /**
+     * 磁盘缓存未访问的保留天数
+     */
+    @Value("${preview.cache.disk-ttl-days:30}")
+    private long diskTtlDays;
+
+    /**
+     * 渲染逻辑
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        byte[] render() throws IOException;
+    }
+
+    public PreviewCache(LocalFileStore fileStore,
+                        @Value("${preview.cache.memory-max-bytes:134217728}") long memoryMaxBytes) {
+        this.fileStore = fileStore;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxBytes)
+                .weigher((String key, byte[] value) -> value.length)
+                .build();
+    }
+
+    /**
+     * 缓存 key：文档ID/内容摘要/页码_DPI.格式
+     * 内容摘要参与 key，文件内容变化后旧缓存自然失效
+     */
+    public static String key(Long documentId, String contentHash, int page, int dpi, String format) {
+        return documentId + "/" + contentHash + "/p" + page + "_" + dpi + "." + format;
+    }
+
+    /**
+     * 获取缓存结果：依次查询堆内缓存、进行中的渲染、磁盘缓存（在调用线程完成），
+     * 都未命中时才把渲染任务提交到 executor，结果写入两级缓存
+     *
+     * @return 已完成（命中）或进行中的渲染结果；等待超时不会取消共享的渲染
+     * @throws RejectedExecutionException executor 已满，未发起渲染
+     */
+    public CompletableFuture<byte[]> getAsync(String key, Renderer renderer, Executor executor) throws IOException {
+        byte[] cached = memory.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<byte[]> existing = inFlight.get(key);
+        if (existing != null) {
+            log.debug("预览渲染进行中，等待结果 - key: {}", key);
+            return existing;
+        }
+        cached = readDisk(key);
+        if (cached != null) {
+            memory.put(key, cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    byte[] result = loadOrRender(key, renderer);
+                    memory.put(key, result);
+                    future.complete(result);
+                } catch (IOException | RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * 是否已缓存（内存或磁盘）
+     */
+    public boolean contains(String key) {
+        return memory.getIfPresent(key) != null || Files.exists(diskPath(key));
+    }
+
+    /**
+     * 清除文档的全部预览缓存
+     */
+    public void evict(Long documentId) {
+        String prefix = documentId + "/";
+        memory.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        Path dir = fileStore.resolve(CACHE_DIR + "/" + documentId);
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("清除预览缓存失败 - 文档ID: {}, 错误: {}", documentId, e.getMessage());
+        }
+    }
+
+    private byte[] readDisk(String key) throws IOException {
+        Path path = diskPath(key);
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            touch(path);
+            log.debug("预览磁盘缓存命中 - key: {}", key);
+            return bytes;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private byte[] loadOrRender(String key, Renderer renderer) throws IOException {
+        // 提交前另一个渲染可能刚写完磁盘缓存
+        byte[] cached = readDisk(key);
+        if (cached != null) {
+            return cached;
+        }
+        Path path = diskPath(key);
+
+        long start = System.currentTimeMillis();
+        byte[] bytes = renderer.render();
+        log.info("预览渲染完成 - key: {}, 大小: {} bytes, 耗时: {} ms", key, bytes.length, System.currentTimeMillis() - start);
+
+        Path temp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // 磁盘缓存写入失败不影响本次结果
+            FileUtils.deleteQuietly(temp.toFile());
+            log.warn("写入预览磁盘缓存失败 - key: {}, 错误: {}", key, e.getMessage());
+        }
+        return bytes;
+    }
+
+    /**
+     * 清理磁盘缓存
+     */
+    @Scheduled(cron = "${preview.cache.disk-sweep-cron:0 40 * * * ?}")
+    public void sweepDisk() {
+        Path dir = fileStore.resolve(CACHE_DIR);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant expireBefore = Instant.now().minus(Duration.ofDays(diskTtlDays));
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long total = 0;
+        int deleted = 0;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // 遍历期间已被删除（如文档作废清除缓存）
+                    continue;
+                }
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                if (attrs.lastModifiedTime().toInstant().isBefore(expireBefore)) {
+                    deleted += Files.deleteIfExists(path) ? 1 : 0;
+                    continue;
+                }
+                files.add(path);
+                attributes.put(path, attrs);
+                total += attrs.size();
+            }
+            if (total > diskMaxBytes) {
+                files.sort(Comparator.comparing(path -> attributes.get(path).lastModifiedTime()));
+                for (Path path : files) {
+                    if (total <= diskMaxBytes) {
+                        break;
+                    }
+                    if (Files.deleteIfExists(path)) {
+                        total -= attributes.get(path).size();
+                        deleted++;
+                    }
+                }
+            }
+            deleteEmptyDirectories(dir);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("清理预览磁盘缓存失败: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("已清理预览磁盘缓存 - 文件数: {}, 剩余: {} bytes", deleted, total);
+        }
+    }
+
+    /**
+     * 磁盘命中时更新修改时间，清理时按最近访问时间淘汰
+     */
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("更新预览缓存访问时间失败 - path: {}, 错误: {}", path, e.getMessage());
+        }
+    }
+
+    private static void deleteEmptyDirectories(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .filter(path -> !path.equals(dir) && Files.isDirectory(path))
+                    .forEach(path -> {
+                        try (Stream<Path> children = Files.list(path)) {
+                            if (children.findAny().isEmpty()) {
+                                Files.deleteIfExists(path);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+    }
+
+    private Path diskPath(String key) {
+        return fileStore.resolve(CACHE_DIR + "/" + key);
+    }
+}
@@ -0,0 +1,28 @@
+package com.zsx.cstfilemanage.infrastructure.diff;
+
+import com.github.difflib.patch.DeltaType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 行级差异
+ * 位置从 0 开始；单处差异的行内容最多保留 maxLinesPerDelta 行，完整行数见 sourceSize / targetSize
+ */
+@Data
+@AllArgsConstructor
+public class LineDelta {
+
+    private DeltaType type;
+    private int sourcePosition;
+    private int sourceSize;
+    private int targetPosition;
+    private int targetSize;
+    private List<String> sourceLines;
+    private List<String> targetLines;
+    /**
+     * 行内容是否被截断
+     */
+    private boolean truncated;
+}
@@ -0,0 +1,356 @@
+package com.zsx.cstfilemanage.infrastructure.diff;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.DeltaType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 流式行级差异计算
+ * <p>
+ * 第一遍只读取每行的 64 位摘要；以两侧都只出现一次的行为锚点（patience diff），
+ * 取锚点的最长递增子序列把文本切分为若干窗口，仅在不超过 windowLines 行的窗口内运行 Myers 算法。
+ * 仍然过大且没有唯一行可锚定的窗口整体作为一处修改输出。
+ * 第二遍顺序读取两侧文本，只为差异区间取出行内容并逐条回调，内存与文本总量无关。
+ */
+@Slf4j
+public class StreamingLineDiff {
+
+    /**
+     * 文本来源，两遍扫描各打开一次
+     */
+    @FunctionalInterface
+    public interface LineSource {
+        BufferedReader open() throws IOException;
+    }
+
+    /**
+     * 差异回调
+     */
+    @FunctionalInterface
+    public interface DeltaSink {
+        void accept(LineDelta delta) throws IOException;
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int windowLines;
+    private final int maxLinesPerDelta;
+
+    public StreamingLineDiff(int windowLines, int maxLinesPerDelta) {
+        this.windowLines = windowLines;
+        this.maxLinesPerDelta = maxLinesPerDelta;
+    }
+
+    /**
+     * 计算差异并按位置顺序回调
+     *
+     * @return 差异数量
+     */
+    public int diff(LineSource source, LineSource target, DeltaSink sink) throws IOException {
+        long[] a = hashLines(source);
+        long[] b = hashLines(target);
+        IntList ranges = computeRanges(a, b);
+        int count = ranges.size() / 4;
+        if (count > 0) {
+            emit(source, target, ranges, sink);
+        }
+        return count;
+    }
+
+    /**
+     * 计算差异区间，每处差异占 4 个整数：源起点、源终点（不含）、目标起点、目标终点（不含）
+     */
+    IntList computeRanges(long[] a, long[] b) {
+        IntList ranges = new IntList();
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{0, a.length, 0, b.length});
+        while (!stack.isEmpty()) {
+            int[] window = stack.pop();
+            int a0 = window[0];
+            int a1 = window[1];
+            int b0 = window[2];
+            int b1 = window[3];
+
+            // 去掉公共前缀和后缀
+            while (a0 < a1 && b0 < b1 && a[a0] == b[b0]) {
+                a0++;
+                b0++;
+            }
+            while (a0 < a1 && b0 < b1 && a[a1 - 1] == b[b1 - 1]) {
+                a1--;
+                b1--;
+            }
+            if (a0 == a1 && b0 == b1) {
+                continue;
+            }
+            if (a0 == a1 || b0 == b1) {
+                addRange(ranges, a0, a1, b0, b1);
+                continue;
+            }
+            if (a1 - a0 <= windowLines && b1 - b0 <= windowLines) {
+                myers(a, a0, a1, b, b0, b1, ranges);
+                continue;
+            }
+
+            int[][] anchors = uniqueAnchors(a, a0, a1, b, b0, b1);
+            if (anchors.length == 0) {
+                log.debug("差异窗口过大且无唯一行可锚定，整体视为修改 - 源: [{}, {}), 目标: [{}, {})", a0, a1, b0, b1);
+                addRange(ranges, a0, a1, b0, b1);
+                continue;
+            }
+            // 逆序入栈，保证按位置顺序处理
+            int prevA = anchors[anchors.length - 1][0] + 1;
+            int prevB = anchors[anchors.length - 1][1] + 1;
+            stack.push(new int[]{prevA, a1, prevB, b1});
+            for (int i = anchors.length - 1; i > 0; i--) {
+                stack.push(new int[]{anchors[i - 1][0] + 1, anchors[i][0], anchors[i - 1][1] + 1, anchors[i][1]});
+            }
+            stack.push(new int[]{a0, anchors[0][0], b0, anchors[0][1]});
+        }
+        return ranges;
+    }
+
+    private void myers(long[] a, int a0, int a1, long[] b, int b0, int b1, IntList ranges) {
+        List<Long> left = new ArrayList<>(a1 - a0);
+        for (int i = a0; i < a1; i++) {
+            left.add(a[i]);
+        }
+        List<Long> right = new ArrayList<>(b1 - b0);
+        for (int i = b0; i < b1; i++) {
+            right.add(b[i]);
+        }
+        for (AbstractDelta<Long> delta : DiffUtils.diff(left, right).getDeltas()) {
+            int sa = a0 + delta.getSource().getPosition();
+            int ta = b0 + delta.getTarget().getPosition();
+            addRange(ranges, sa, sa + delta.getSource().size(), ta, ta + delta.getTarget().size());
+        }
+    }
+
+    /**
+     * 两侧各只出现一次的行，按源位置排序后取目标位置的最长递增子序列
+     */
+    private int[][] uniqueAnchors(long[] a, int a0, int a1, long[] b, int b0, int b1) {
+        LineTable table = new LineTable((a1 - a0) + (b1 - b0));
+        for (int i = a0; i < a1; i++) {
+            table.add(a[i], i, true);
+        }
+        for (int i = b0; i < b1; i++) {
+            table.add(b[i], i, false);
+        }
+        IntList candidatesA = new IntList();
+        IntList candidatesB = new IntList();
+        for (int i = a0; i < a1; i++) {
+            int slot = table.find(a[i]);
+            if (table.countA[slot] == 1 && table.countB[slot] == 1) {
+                candidatesA.add(i);
+                candidatesB.add(table.posB[slot]);
+            }
+        }
+        return longestIncreasing(candidatesA, candidatesB);
+    }
+
+    /**
+     * 耐心排序求最长递增子序列，O(n log n)
+     */
+    private static int[][] longestIncreasing(IntList as, IntList bs) {
+        int n = as.size();
+        if (n == 0) {
+            return new int[0][];
+        }
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int value = bs.get(i);
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bs.get(tails[mid]) < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+        int[][] result = new int[length][];
+        for (int i = tails[length - 1], k = length - 1; i >= 0; i = previous[i], k--) {
+            result[k] = new int[]{as.get(i), bs.get(i)};
+        }
+        return result;
+    }
+
+    private static void addRange(IntList ranges, int a0, int a1, int b0, int b1) {
+        int n = ranges.size();
+        // 与上一处差异相邻时合并
+        if (n >= 4 && ranges.get(n - 3) == a0 && ranges.get(n - 1) == b0) {
+            ranges.set(n - 3, a1);
+            ranges.set(n - 1, b1);
+            return;
+        }
+        ranges.add(a0);
+        ranges.add(a1);
+        ranges.add(b0);
+        ranges.add(b1);
+    }
+
+    /**
+     * 第二遍：顺序读取两侧文本，只收集差异区间内的行
+     */
+    private void emit(LineSource source, LineSource target, IntList ranges, DeltaSink sink) throws IOException {
+        try (BufferedReader left = source.open(); BufferedReader right = target.open()) {
+            int lineA = 0;
+            int lineB = 0;
+            for (int i = 0; i < ranges.size(); i += 4) {
+                int a0 = ranges.get(i);
+                int a1 = ranges.get(i + 1);
+                int b0 = ranges.get(i + 2);
+                int b1 = ranges.get(i + 3);
+                lineA = skip(left, lineA, a0);
+                lineB = skip(right, lineB, b0);
+                List<String> sourceLines = new ArrayList<>();
+                List<String> targetLines = new ArrayList<>();
+                lineA = collect(left, lineA, a1, sourceLines);
+                lineB = collect(right, lineB, b1, targetLines);
+
+                DeltaType type = a0 == a1 ? DeltaType.INSERT : b0 == b1 ? DeltaType.DELETE : DeltaType.CHANGE;
+                boolean truncated = a1 - a0 > sourceLines.size() || b1 - b0 > targetLines.size();
+                sink.accept(new LineDelta(type, a0, a1 - a0, b0, b1 - b0, sourceLines, targetLines, truncated));
+            }
+        }
+    }
+
+    private static int skip(BufferedReader reader, int line, int until) throws IOException {
+        while (line < until && reader.readLine() != null) {
+            line++;
+        }
+        return line;
+    }
+
+    private int collect(BufferedReader reader, int line, int until, List<String> lines) throws IOException {
+        String text;
+        while (line < until && (text = reader.readLine()) != null) {
+            if (lines.size() < maxLinesPerDelta) {
+                lines.add(text);
+            }
+            line++;
+        }
+        return line;
+    }
+
+    private static long[] hashLines(LineSource source) throws IOException {
+        long[] hashes = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = source.open()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                hashes[count++] = hash(line);
+            }
+        }
+        return Arrays.copyOf(hashes, count);
+    }
+
+    /**
+     * FNV-1a 64 位摘要，末尾混入长度
+     */
+    private static long hash(String line) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < line.length(); i++) {
+            h ^= line.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= line.length();
+        h *= FNV_PRIME;
+        return h;
+    }
+
+    /**
+     * 开放寻址表：行摘要 -> 两侧出现次数及位置
+     */
+    private static final class LineTable {
+        private final long[] keys;
+        private final boolean[] used;
+        private final int[] countA;
+        private final int[] countB;
+        private final int[] posB;
+        private final int mask;
+
+        LineTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            countA = new int[capacity];
+            countB = new int[capacity];
+            posB = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void add(long key, int position, boolean sideA) {
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            if (sideA) {
+                countA[slot]++;
+            } else {
+                countB[slot]++;
+                posB[slot] = position;
+            }
+        }
+
+        int find(long key) {
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * 可增长的 int 数组
+     */
+    static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
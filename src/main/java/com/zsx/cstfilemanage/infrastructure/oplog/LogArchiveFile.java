@@ -0,0 +1,495 @@
+package com.zsx.cstfilemanage.infrastructure.oplog;
+
+import com.zsx.cstfilemanage.domain.cenum.OperationType;
+import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 操作日志归档文件（列式存储）
+ * <pre>
+ * 文件结构：魔数 | 行组... | 尾部索引 | 尾部索引偏移(8) | 魔数
+ * 行组：每列一个独立 gzip 压缩块，依次为 id、userId、operationType、createTime（过滤列）及其余各列
+ * 尾部索引：行组数，每个行组的偏移、行数、createTime 最小/最大值、各列压缩块长度
+ * </pre>
+ * 查询时先按 createTime 统计裁剪行组，再只解压过滤列定位命中行，最后才解压其余列读取命中行。
+ * 整数列按差值 zig-zag 变长编码，时间以 UTC 解释的本地时间毫秒数存储（与数据库 DATETIME 一致，无时区换算）。
+ */
+public final class LogArchiveFile {
+
+    private static final byte[] MAGIC = {'O', 'L', 'A', '1'};
+
+    static final int COL_ID = 0;
+    static final int COL_USER_ID = 1;
+    static final int COL_OPERATION_TYPE = 2;
+    static final int COL_CREATE_TIME = 3;
+    static final int COL_USER_NAME = 4;
+    static final int COL_OPERATION_CONTENT = 5;
+    static final int COL_OBJECT_TYPE = 6;
+    static final int COL_OBJECT_ID = 7;
+    static final int COL_RESULT = 8;
+    static final int COL_ERROR_MESSAGE = 9;
+    static final int COL_IP_ADDRESS = 10;
+    static final int COL_USER_AGENT = 11;
+    private static final int COLUMN_COUNT = 12;
+
+    private LogArchiveFile() {
+    }
+
+    /**
+     * 行组元数据
+     */
+    public static final class RowGroup {
+        private final long offset;
+        private final int rowCount;
+        private final long minTime;
+        private final long maxTime;
+        private final int[] columnLengths;
+
+        RowGroup(long offset, int rowCount, long minTime, long maxTime, int[] columnLengths) {
+            this.offset = offset;
+            this.rowCount = rowCount;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.columnLengths = columnLengths;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public LocalDateTime getMinTime() {
+            return fromMillis(minTime);
+        }
+
+        public LocalDateTime getMaxTime() {
+            return fromMillis(maxTime);
+        }
+
+        /**
+         * 行组时间范围是否与 [startTime, endTime) 相交，参数为空表示不限
+         */
+        public boolean overlaps(LocalDateTime startTime, LocalDateTime endTime) {
+            return (startTime == null || maxTime >= toMillis(startTime))
+                    && (endTime == null || minTime < toMillis(endTime));
+        }
+
+        private long columnOffset(int column) {
+            long position = offset;
+            for (int i = 0; i < column; i++) {
+                position += columnLengths[i];
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 过滤条件，字段为空表示不限
+     */
+    public static final class Filter {
+        private final Long userId;
+        private final OperationType operationType;
+        private final Long startMillis;
+        private final Long endMillis;
+
+        public Filter(Long userId, OperationType operationType, LocalDateTime startTime, LocalDateTime endTime) {
+            this.userId = userId;
+            this.operationType = operationType;
+            this.startMillis = startTime != null ? toMillis(startTime) : null;
+            this.endMillis = endTime != null ? toMillis(endTime) : null;
+        }
+    }
+
+    /**
+     * 顺序写入，行按调用方给出的顺序存储（约定为 createTime、id 倒序）
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final int rowGroupSize;
+        private final List<OperationLog> buffer;
+        private final List<RowGroup> rowGroups = new ArrayList<>();
+        private long position;
+        private long rowCount;
+
+        public Writer(Path path, int rowGroupSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.out = Channels.newOutputStream(channel);
+            this.rowGroupSize = rowGroupSize;
+            this.buffer = new ArrayList<>(rowGroupSize);
+            out.write(MAGIC);
+            position = MAGIC.length;
+        }
+
+        public void write(OperationLog log) throws IOException {
+            buffer.add(log);
+            if (buffer.size() >= rowGroupSize) {
+                flushRowGroup();
+            }
+        }
+
+        public long getRowCount() {
+            return rowCount + buffer.size();
+        }
+
+        /**
+         * 写入尾部索引并强制刷盘
+         */
+        public void finish() throws IOException {
+            flushRowGroup();
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(rowGroups.size());
+            for (RowGroup group : rowGroups) {
+                footer.writeLong(group.offset);
+                footer.writeInt(group.rowCount);
+                footer.writeLong(group.minTime);
+                footer.writeLong(group.maxTime);
+                for (int length : group.columnLengths) {
+                    footer.writeInt(length);
+                }
+            }
+            footer.writeLong(position);
+            footer.write(MAGIC);
+            footer.flush();
+            out.write(footerBytes.toByteArray());
+            out.flush();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void flushRowGroup() throws IOException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            int[] lengths = new int[COLUMN_COUNT];
+            long minTime = Long.MAX_VALUE;
+            long maxTime = Long.MIN_VALUE;
+            for (OperationLog log : buffer) {
+                long time = toMillis(log.getCreateTime());
+                minTime = Math.min(minTime, time);
+                maxTime = Math.max(maxTime, time);
+            }
+            long groupOffset = position;
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                byte[] block = encodeColumn(column, buffer);
+                out.write(block);
+                lengths[column] = block.length;
+                position += block.length;
+            }
+            rowGroups.add(new RowGroup(groupOffset, buffer.size(), minTime, maxTime, lengths));
+            rowCount += buffer.size();
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 读取尾部索引
+     */
+    public static List<RowGroup> readRowGroups(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(8 + MAGIC.length);
+            readFully(channel, tail, size - tail.capacity());
+            tail.flip();
+            long footerOffset = tail.getLong();
+            byte[] magic = new byte[MAGIC.length];
+            tail.get(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是有效的日志归档文件: " + path);
+            }
+            ByteBuffer footer = ByteBuffer.allocate((int) (size - tail.capacity() - footerOffset));
+            readFully(channel, footer, footerOffset);
+            footer.flip();
+            int count = footer.getInt();
+            List<RowGroup> groups = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long offset = footer.getLong();
+                int rowCount = footer.getInt();
+                long minTime = footer.getLong();
+                long maxTime = footer.getLong();
+                int[] lengths = new int[COLUMN_COUNT];
+                for (int c = 0; c < COLUMN_COUNT; c++) {
+                    lengths[c] = footer.getInt();
+                }
+                groups.add(new RowGroup(offset, rowCount, minTime, maxTime, lengths));
+            }
+            return Collections.unmodifiableList(groups);
+        }
+    }
+
+    /**
+     * 在行组中查找符合条件的行号（只解压过滤列）
+     */
+    public static int[] match(Path path, RowGroup group, Filter filter) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] userIds = filter.userId != null ? decodeLongs(channel, group, COL_USER_ID) : null;
+            String[] types = filter.operationType != null ? decodeStrings(channel, group, COL_OPERATION_TYPE) : null;
+            long[] times = filter.startMillis != null || filter.endMillis != null
+                    ? decodeLongs(channel, group, COL_CREATE_TIME) : null;
+            int[] rows = new int[group.rowCount];
+            int count = 0;
+            for (int i = 0; i < group.rowCount; i++) {
+                if (userIds != null && userIds[i] != filter.userId) {
+                    continue;
+                }
+                if (types != null && !filter.operationType.name().equals(types[i])) {
+                    continue;
+                }
+                if (times != null && ((filter.startMillis != null && times[i] < filter.startMillis)
+                        || (filter.endMillis != null && times[i] >= filter.endMillis))) {
+                    continue;
+                }
+                rows[count++] = i;
+            }
+            return java.util.Arrays.copyOf(rows, count);
+        }
+    }
+
+    /**
+     * 读取行组中指定行（行号升序）
+     */
+    public static List<OperationLog> read(Path path, RowGroup group, int[] rows) throws IOException {
+        List<OperationLog> logs = new ArrayList<>(rows.length);
+        if (rows.length == 0) {
+            return logs;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < rows.length; i++) {
+                logs.add(new OperationLog());
+            }
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                switch (column) {
+                    case COL_ID, COL_USER_ID, COL_CREATE_TIME -> {
+                        long[] values = decodeLongs(channel, group, column);
+                        for (int i = 0; i < rows.length; i++) {
+                            long value = values[rows[i]];
+                            OperationLog log = logs.get(i);
+                            if (column == COL_ID) {
+                                log.setId(value);
+                            } else if (column == COL_USER_ID) {
+                                log.setUserId(value);
+                            } else {
+                                log.setCreateTime(fromMillis(value));
+                            }
+                        }
+                    }
+                    case COL_OBJECT_ID -> {
+                        Long[] values = decodeNullableLongs(channel, group, column);
+                        for (int i = 0; i < rows.length; i++) {
+                            logs.get(i).setObjectId(values[rows[i]]);
+                        }
+                    }
+                    default -> {
+                        String[] values = decodeStrings(channel, group, column);
+                        for (int i = 0; i < rows.length; i++) {
+                            setString(logs.get(i), column, values[rows[i]]);
+                        }
+                    }
+                }
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * 校验文件完整性并返回总行数
+     */
+    public static long countRows(Path path) throws IOException {
+        long count = 0;
+        for (RowGroup group : readRowGroups(path)) {
+            count += group.rowCount;
+        }
+        return count;
+    }
+
+    // ---------------------------------------------------------------- 编码
+
+    private static byte[] encodeColumn(int column, List<OperationLog> logs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes, 8192))) {
+            switch (column) {
+                case COL_ID, COL_USER_ID, COL_CREATE_TIME -> {
+                    long previous = 0;
+                    for (OperationLog log : logs) {
+                        long value = column == COL_ID ? log.getId()
+                                : column == COL_USER_ID ? log.getUserId()
+                                : toMillis(log.getCreateTime());
+                        writeVarLong(out, zigZag(value - previous));
+                        previous = value;
+                    }
+                }
+                case COL_OBJECT_ID -> {
+                    long previous = 0;
+                    for (OperationLog log : logs) {
+                        Long value = log.getObjectId();
+                        out.writeBoolean(value != null);
+                        if (value != null) {
+                            writeVarLong(out, zigZag(value - previous));
+                            previous = value;
+                        }
+                    }
+                }
+                default -> {
+                    for (OperationLog log : logs) {
+                        String value = getString(log, column);
+                        if (value == null) {
+                            writeVarLong(out, 0);
+                        } else {
+                            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                            writeVarLong(out, utf8.length + 1L);
+                            out.write(utf8);
+                        }
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long[] decodeLongs(FileChannel channel, RowGroup group, int column) throws IOException {
+        long[] values = new long[group.rowCount];
+        try (DataInputStream in = openColumn(channel, group, column)) {
+            long previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                previous += unZigZag(readVarLong(in));
+                values[i] = previous;
+            }
+        }
+        return values;
+    }
+
+    private static Long[] decodeNullableLongs(FileChannel channel, RowGroup group, int column) throws IOException {
+        Long[] values = new Long[group.rowCount];
+        try (DataInputStream in = openColumn(channel, group, column)) {
+            long previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (in.readBoolean()) {
+                    previous += unZigZag(readVarLong(in));
+                    values[i] = previous;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String[] decodeStrings(FileChannel channel, RowGroup group, int column) throws IOException {
+        String[] values = new String[group.rowCount];
+        try (DataInputStream in = openColumn(channel, group, column)) {
+            for (int i = 0; i < values.length; i++) {
+                long length = readVarLong(in);
+                if (length > 0) {
+                    byte[] utf8 = new byte[(int) (length - 1)];
+                    in.readFully(utf8);
+                    values[i] = new String(utf8, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return values;
+    }
+
+    private static DataInputStream openColumn(FileChannel channel, RowGroup group, int column) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(group.columnLengths[column]);
+        readFully(channel, block, group.columnOffset(column));
+        block.flip();
+        InputStream raw = new java.io.ByteArrayInputStream(block.array(), 0, block.limit());
+        return new DataInputStream(new GZIPInputStream(raw, 8192));
+    }
+
+    private static String getString(OperationLog log, int column) {
+        return switch (column) {
+            case COL_OPERATION_TYPE -> log.getOperationType() != null ? log.getOperationType().name() : null;
+            case COL_USER_NAME -> log.getUserName();
+            case COL_OPERATION_CONTENT -> log.getOperationContent();
+            case COL_OBJECT_TYPE -> log.getObjectType();
+            case COL_RESULT -> log.getResult();
+            case COL_ERROR_MESSAGE -> log.getErrorMessage();
+            case COL_IP_ADDRESS -> log.getIpAddress();
+            case COL_USER_AGENT -> log.getUserAgent();
+            default -> throw new IllegalArgumentException("不是字符串列: " + column);
+        };
+    }
+
+    private static void setString(OperationLog log, int column, String value) {
+        switch (column) {
+            case COL_OPERATION_TYPE -> log.setOperationType(value != null ? OperationType.valueOf(value) : null);
+            case COL_USER_NAME -> log.setUserName(value);
+            case COL_OPERATION_CONTENT -> log.setOperationContent(value);
+            case COL_OBJECT_TYPE -> log.setObjectType(value);
+            case COL_RESULT -> log.setResult(value);
+            case COL_ERROR_MESSAGE -> log.setErrorMessage(value);
+            case COL_IP_ADDRESS -> log.setIpAddress(value);
+            case COL_USER_AGENT -> log.setUserAgent(value);
+            default -> throw new IllegalArgumentException("不是字符串列: " + column);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("日志归档文件已损坏");
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
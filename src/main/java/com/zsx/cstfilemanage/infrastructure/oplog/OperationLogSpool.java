@@ -0,0 +1,160 @@
+package com.zsx.cstfilemanage.infrastructure.oplog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 操作日志预写文件
+ * 每批日志在写库前先写成一个文件（JSON Lines），写库成功后删除；
+ * 写库失败或进程崩溃时文件保留，按文件序号顺序重放。
+ * 无法写库的行（违反约束等）和无法解析的文件移入 dead 子目录，留待人工处理，不再重放。
+ */
+@Slf4j
+public class OperationLogSpool {
+
+    private static final String SUFFIX = ".jsonl";
+    private static final String DEAD_LETTER_DIR = "dead";
+
+    private final Path dir;
+    private final Path deadLetterDir;
+    private final boolean fsync;
+    private final ObjectMapper mapper;
+    private final AtomicLong sequence;
+
+    public OperationLogSpool(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.deadLetterDir = dir.resolve(DEAD_LETTER_DIR);
+        this.fsync = fsync;
+        this.mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        Files.createDirectories(dir);
+        // 崩溃时未写完的临时文件不完整，直接丢弃
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path temp : files.filter(file -> file.getFileName().toString().endsWith(".tmp")).toList()) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        long max = 0;
+        for (Path file : pending()) {
+            max = Math.max(max, sequenceOf(file));
+        }
+        this.sequence = new AtomicLong(max);
+    }
+
+    /**
+     * 写入一批日志（线程安全，每批一个文件）
+     *
+     * @return 预写文件
+     */
+    public Path write(List<OperationLog> logs) throws IOException {
+        Path file = dir.resolve(String.format("%019d%s", sequence.incrementAndGet(), SUFFIX));
+        writeFile(file, logs);
+        return file;
+    }
+
+    /**
+     * 用剩余未写库的日志替换预写文件（保持原序号，重放顺序不变）
+     */
+    public void rewrite(Path file, List<OperationLog> logs) throws IOException {
+        if (logs.isEmpty()) {
+            delete(file);
+            return;
+        }
+        writeFile(file, logs);
+    }
+
+    /**
+     * 写入死信文件
+     */
+    public Path deadLetter(List<OperationLog> logs) throws IOException {
+        Files.createDirectories(deadLetterDir);
+        Path file = deadLetterDir.resolve(String.format("%019d%s", sequence.incrementAndGet(), SUFFIX));
+        writeFile(file, logs);
+        return file;
+    }
+
+    /**
+     * 把无法解析的预写文件移入死信目录
+     */
+    public Path quarantine(Path file) throws IOException {
+        Files.createDirectories(deadLetterDir);
+        return Files.move(file, deadLetterDir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeFile(Path file, List<OperationLog> logs) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (OperationLog entry : logs) {
+                out.write(mapper.writeValueAsBytes(entry));
+                out.write('\n');
+            }
+            out.flush();
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        // 改名后才视为完整的一批，避免重放写了一半的文件
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 读取预写文件
+     */
+    public List<OperationLog> read(Path file) throws IOException {
+        List<OperationLog> logs = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    logs.add(mapper.readValue(line, OperationLog.class));
+                }
+            }
+        }
+        return logs;
+    }
+
+    public void delete(Path file) throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * 待写库的预写文件，按序号升序
+     */
+    public List<Path> pending() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无法识别的预写文件: {}", file);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.zsx.cstfilemanage.infrastructure.oplog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.zsx.cstfilemanage.common.util.MpscRingBuffer;
+import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步批量写入
+ * 请求线程只把日志放入无锁环形队列；单个后台线程按批量大小或刷新间隔取出，
+ * 先写预写文件再以多行 INSERT 写库，成功后删除预写文件。
+ * 数据库不可用时日志只落预写文件，按指数退避重试并按顺序重放；启动时重放上次遗留的文件。
+ * 队列满时由调用线程直接写预写文件，不丢日志也不阻塞在数据库上。
+ * 连接、超时等暂时错误保留预写文件重试；违反约束、SQL 错误等永久错误改为逐条写入，
+ * 失败的行写入死信文件后继续，单条坏数据不会阻塞后续日志。有长度限制的字段入队前截断。
+ * 尚在队列中、未到刷新间隔的日志在进程崩溃时可能丢失（最多一个刷新间隔）。
+ */
+@Component
+@Slf4j
+public class OperationLogWriter implements SmartLifecycle {
+
+    private static final String INSERT_PREFIX = "INSERT INTO operation_logs "
+            + "(user_id, user_name, operation_type, operation_content, object_type, object_id, "
+            + "result, error_message, ip_address, user_agent, create_time) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * TEXT 列最多 65535 字节，按 utf8mb4 每字符 4 字节留余量
+     */
+    private static final int TEXT_MAX_LENGTH = 16000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalFileStore fileStore;
+    private final MpscRingBuffer<OperationLog> ring;
+
+    @Value("${operation-log.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${operation-log.async.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${operation-log.async.spool-dir:.oplog}")
+    private String spoolDir;
+
+    @Value("${operation-log.async.fsync:false}")
+    private boolean fsync;
+
+    @Value("${operation-log.async.retry-initial-ms:1000}")
+    private long retryInitialMs;
+
+    @Value("${operation-log.async.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    private OperationLogSpool spool;
+    private volatile boolean running;
+    private volatile Thread worker;
+    /**
+     * 存在未写库的预写文件（写库失败、启动遗留或队列满时调用线程直接落盘）
+     */
+    private volatile boolean backlog;
+    private long retryDelayMs;
+    private long nextRetryAt;
+
+    public OperationLogWriter(JdbcTemplate jdbcTemplate,
+                              LocalFileStore fileStore,
+                              @Value("${operation-log.async.ring-capacity:8192}") int ringCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fileStore = fileStore;
+        this.ring = new MpscRingBuffer<>(ringCapacity);
+    }
+
+    /**
+     * 提交一条日志（不阻塞，不访问数据库）
+     */
+    public void append(OperationLog entry) {
+        truncate(entry);
+        if (ring.offer(entry)) {
+            Thread thread = worker;
+            if (thread != null && ring.size() >= batchSize) {
+                LockSupport.unpark(thread);
+            }
+            return;
+        }
+        // 队列已满：由调用线程直接写预写文件，后台线程随后重放
+        try {
+            spool.write(List.of(entry));
+            backlog = true;
+        } catch (IOException e) {
+            log.error("操作日志队列已满且写入预写文件失败，日志丢失 - 类型: {}, 内容: {}",
+                    entry.getOperationType(), entry.getOperationContent(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        try {
+            spool = new OperationLogSpool(fileStore.resolve(spoolDir), fsync);
+            backlog = !spool.pending().isEmpty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("初始化操作日志预写目录失败", e);
+        }
+        retryDelayMs = retryInitialMs;
+        running = true;
+        Thread thread = new Thread(this::runWorker, "oplog-writer");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+        log.info("操作日志异步写入已启动 - 队列容量: {}, 批量: {}, 刷新间隔: {} ms, 遗留预写文件: {}",
+                ring.capacity(), batchSize, flushIntervalMs, backlog);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWorker() {
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running) {
+            long deadline = System.nanoTime() + intervalNanos;
+            // 攒满一批或到达刷新间隔后写出
+            while (running && batch.size() < batchSize) {
+                ring.drainTo(batch, batchSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            flush(batch);
+            batch.clear();
+            if (backlog && System.currentTimeMillis() >= nextRetryAt) {
+                replay();
+            }
+        }
+        // 关闭前写出队列中剩余的日志
+        while (ring.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+        if (backlog) {
+            replay();
+        }
+    }
+
+    private void flush(List<OperationLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Path file;
+        try {
+            file = spool.write(batch);
+        } catch (IOException e) {
+            // 预写文件不可用时仍尝试直接写库
+            log.error("写入操作日志预写文件失败 - 条数: {}", batch.size(), e);
+            file = null;
+        }
+        if (backlog && file != null) {
+            // 已有积压时保持写入顺序，由重放统一处理
+            return;
+        }
+        try {
+            write(batch);
+        } catch (PartialWriteException e) {
+            if (file == null) {
+                log.error("操作日志写库失败且无预写文件，日志丢失 - 条数: {}", batch.size() - e.written, e.getCause());
+                return;
+            }
+            log.warn("操作日志写库失败，暂存预写文件稍后重试 - 条数: {}, 错误: {}",
+                    batch.size() - e.written, e.getCause().getMessage());
+            backlog = true;
+            scheduleRetry();
+            keepRemaining(file, List.of(), batch, e.written);
+            return;
+        }
+        if (file != null) {
+            try {
+                spool.delete(file);
+            } catch (IOException e) {
+                log.warn("删除操作日志预写文件失败 - 文件: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * 按顺序重放预写文件，遇到暂时错误停止并退避；无法解析的文件移入死信目录后继续
+     */
+    private void replay() {
+        // 先清标记再列目录：重放期间新落盘的文件会重新置位
+        backlog = false;
+        try {
+            List<Path> files = spool.pending();
+            int replayed = 0;
+            // 小文件（队列满时逐条落盘）合并成整批写库，写库成功后删除对应文件
+            List<OperationLog> pending = new ArrayList<>(batchSize);
+            List<Path> covered = new ArrayList<>();
+            for (Path file : files) {
+                List<OperationLog> logs;
+                try {
+                    logs = spool.read(file);
+                } catch (JsonProcessingException e) {
+                    log.error("操作日志预写文件无法解析，已移入死信目录 - 文件: {}", spool.quarantine(file), e);
+                    continue;
+                }
+                pending.addAll(logs);
+                covered.add(file);
+                if (pending.size() >= batchSize) {
+                    replayed += replayBatch(pending, covered);
+                }
+            }
+            replayed += replayBatch(pending, covered);
+            if (replayed > 0) {
+                log.info("操作日志预写文件重放完成 - 文件数: {}, 条数: {}", files.size(), replayed);
+            }
+            retryDelayMs = retryInitialMs;
+        } catch (RuntimeException | IOException e) {
+            backlog = true;
+            log.warn("操作日志重放失败，{} ms 后重试 - 错误: {}", retryDelayMs, e.getMessage());
+            scheduleRetry();
+        }
+    }
+
+    private int replayBatch(List<OperationLog> pending, List<Path> covered) throws IOException {
+        int count = pending.size();
+        int written = 0;
+        try {
+            while (written < count) {
+                List<OperationLog> chunk = pending.subList(written, Math.min(count, written + batchSize));
+                write(chunk);
+                written += chunk.size();
+            }
+        } catch (PartialWriteException e) {
+            // 只保留未写库的部分，重试时不重复写入已成功的行
+            keepRemaining(covered.get(0), covered.subList(1, covered.size()), pending, written + e.written);
+            throw e;
+        }
+        for (Path file : covered) {
+            spool.delete(file);
+        }
+        pending.clear();
+        covered.clear();
+        return count;
+    }
+
+    /**
+     * 部分写库后把剩余日志写回第一个预写文件（保持重放顺序），删除其余已覆盖的文件
+     */
+    private void keepRemaining(Path file, List<Path> others, List<OperationLog> logs, int written) {
+        if (written == 0) {
+            return;
+        }
+        try {
+            spool.rewrite(file, logs.subList(written, logs.size()));
+            for (Path other : others) {
+                spool.delete(other);
+            }
+        } catch (IOException e) {
+            log.warn("更新操作日志预写文件失败，重放时已写入的 {} 条可能重复 - 文件: {}", written, file, e);
+        }
+    }
+
+    /**
+     * 写库：整批一条 INSERT；违反约束、SQL 错误等永久错误时改为逐条写入，失败的行写入死信文件。
+     * 连接、超时等暂时错误抛出 {@link PartialWriteException}，附带已处理（写库或转入死信）的条数
+     */
+    private void write(List<OperationLog> logs) {
+        try {
+            insert(logs);
+            return;
+        } catch (RuntimeException e) {
+            if (!isPermanent(e)) {
+                throw new PartialWriteException(0, e);
+            }
+            log.warn("操作日志批量写库出现永久错误，改为逐条写入 - 条数: {}, 错误: {}", logs.size(), e.getMessage());
+        }
+        for (int i = 0; i < logs.size(); i++) {
+            OperationLog entry = logs.get(i);
+            try {
+                insert(List.of(entry));
+            } catch (RuntimeException e) {
+                if (!isPermanent(e)) {
+                    throw new PartialWriteException(i, e);
+                }
+                deadLetter(entry, e);
+            }
+        }
+    }
+
+    private void deadLetter(OperationLog entry, RuntimeException cause) {
+        try {
+            Path file = spool.deadLetter(List.of(entry));
+            log.error("操作日志无法写库，已写入死信文件 - 文件: {}, 类型: {}, 错误: {}",
+                    file, entry.getOperationType(), cause.getMessage());
+        } catch (IOException e) {
+            log.error("操作日志无法写库且写入死信文件失败，日志丢失 - 类型: {}, 内容: {}",
+                    entry.getOperationType(), entry.getOperationContent(), e);
+        }
+    }
+
+    /**
+     * 重试也不会成功的错误：违反约束、数据过长、SQL 语法错误，以及绑定参数时的空值等数据问题。
+     * 其余（连接失败、超时、死锁、无法归类的错误）按暂时错误重试
+     */
+    private static boolean isPermanent(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException
+                || e instanceof InvalidDataAccessResourceUsageException
+                || !(e instanceof DataAccessException);
+    }
+
+    /**
+     * 截断有长度限制的字段，避免单条超长数据导致写库失败
+     */
+    private static void truncate(OperationLog entry) {
+        entry.setUserName(truncate(entry.getUserName(), 100));
+        entry.setOperationContent(truncate(entry.getOperationContent(), TEXT_MAX_LENGTH));
+        entry.setObjectType(truncate(entry.getObjectType(), 50));
+        entry.setResult(truncate(entry.getResult(), 20));
+        entry.setErrorMessage(truncate(entry.getErrorMessage(), TEXT_MAX_LENGTH));
+        entry.setIpAddress(truncate(entry.getIpAddress(), 50));
+        entry.setUserAgent(truncate(entry.getUserAgent(), 500));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        // 不在代理对中间截断
+        int end = Character.isHighSurrogate(value.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+        return value.substring(0, end);
+    }
+
+    private void scheduleRetry() {
+        nextRetryAt = System.currentTimeMillis() + retryDelayMs;
+        retryDelayMs = Math.min(retryMaxMs, retryDelayMs * 2);
+    }
+
+    /**
+     * 多行 INSERT，一批一条语句
+     */
+    private void insert(List<OperationLog> logs) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + logs.size() * (ROW_PLACEHOLDERS.length() + 2))
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < logs.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        jdbcTemplate.update(sql.toString(), ps -> {
+            int index = 1;
+            for (OperationLog entry : logs) {
+                index = bind(ps, index, entry);
+            }
+        });
+    }
+
+    private static int bind(PreparedStatement ps, int index, OperationLog entry) throws SQLException {
+        ps.setLong(index++, entry.getUserId());
+        ps.setString(index++, entry.getUserName());
+        ps.setString(index++, entry.getOperationType().name());
+        ps.setString(index++, entry.getOperationContent());
+        ps.setString(index++, entry.getObjectType());
+        if (entry.getObjectId() != null) {
+            ps.setLong(index++, entry.getObjectId());
+        } else {
+            ps.setNull(index++, Types.BIGINT);
+        }
+        ps.setString(index++, entry.getResult());
+        ps.setString(index++, entry.getErrorMessage());
+        ps.setString(index++, entry.getIpAddress());
+        ps.setString(index++, entry.getUserAgent());
+        ps.setTimestamp(index++, Timestamp.valueOf(entry.getCreateTime()));
+        return index;
+    }
+
+    /**
+     * 暂时错误导致写库中断
+     */
+    private static final class PartialWriteException extends RuntimeException {
+
+        /**
+         * 中断前已处理的条数
+         */
+        private final int written;
+
+        PartialWriteException(int written, RuntimeException cause) {
+            super(cause.getMessage(), cause);
+            this.written = written;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.zsx.cstfilemanage.infrastructure.persistence.redis;
 
 import com.zsx.cstfilemanage.common.util.JsonUtil;
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
 import com.zsx.cstfilemanage.domain.model.entity.UploadSession;
 import com.zsx.cstfilemanage.domain.repository.UploadSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Repository
@@ -13,9 +22,30 @@ public class UploadSessionRedisRepository
         implements UploadSessionRepository {
 
     private static final String PREFIX = "upload:session:";
+    private static final String PARTS_PREFIX = "upload:parts:";
+    private static final String LOCK_PREFIX = "upload:lock:";
+    private static final String WRITERS_PREFIX = "upload:writers:";
+    private static final long LOCK_TTL_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+    /**
+     * 会话锁不存在时登记分片写入：KEYS[1] 会话锁，KEYS[2] 写入计数，ARGV[1] 计数过期秒数
+     */
+    private static final byte[] BEGIN_PART_WRITE = ("if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end "
+            + "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[1]) return 1")
+            .getBytes(StandardCharsets.UTF_8);
+    /**
+     * 结束分片写入，计数归零（或计数键已过期）时删除，避免留下负数
+     */
+    private static final byte[] END_PART_WRITE = ("if redis.call('DECR', KEYS[1]) <= 0 then "
+            + "redis.call('DEL', KEYS[1]) end return 1").getBytes(StandardCharsets.UTF_8);
 
     private final RedisTemplate<String, String> redisTemplate;
 
+    /**
+     * 会话有效期（小时），断点续传需要较长的保留时间
+     */
+    @Value("${upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
     public UploadSessionRedisRepository(
             RedisTemplate<String, String> redisTemplate) {
         this.redisTemplate = redisTemplate;
@@ -26,8 +56,8 @@ public class UploadSessionRedisRepository
         redisTemplate.opsForValue().set(
                 PREFIX + session.getUploadId(),
                 JsonUtil.toJson(session),
-                15,
-                TimeUnit.MINUTES
+                sessionTtlHours,
+                TimeUnit.HOURS
         );
     }
 
@@ -38,4 +68,110 @@ public class UploadSessionRedisRepository
         return json == null ? null :
                 JsonUtil.fromJson(json, UploadSession.class);
     }
+
+    @Override
+    public void markPartReceived(String uploadId, int partNumber) {
+        String partsKey = PARTS_PREFIX + uploadId;
+        redisTemplate.opsForValue().setBit(partsKey, partNumber - 1, true);
+        redisTemplate.expire(partsKey, sessionTtlHours, TimeUnit.HOURS);
+        redisTemplate.expire(PREFIX + uploadId, sessionTtlHours, TimeUnit.HOURS);
+    }
+
+    @Override
+    public long countReceivedParts(String uploadId) {
+        byte[] rawKey = rawKey(PARTS_PREFIX + uploadId);
+        Long count = redisTemplate.execute(
+                (RedisCallback<Long>) connection -> connection.stringCommands().bitCount(rawKey));
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<Integer> findMissingParts(String uploadId, int totalParts) {
+        byte[] rawKey = rawKey(PARTS_PREFIX + uploadId);
+        byte[] bitmap = redisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < totalParts; i++) {
+            // Redis 位图偏移 0 对应第一个字节的最高位
+            boolean received = bitmap != null
+                    && i / 8 < bitmap.length
+                    && (bitmap[i / 8] & (0x80 >>> (i % 8))) != 0;
+            if (!received) {
+                missing.add(i + 1);
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public boolean compareAndSetStatus(String uploadId, UploadStatus expected, UploadStatus target) {
+        String key = PREFIX + uploadId;
+        List<Object> result = redisTemplate.execute(new SessionCallback<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.watch(key);
+                String json = ops.opsForValue().get(key);
+                UploadSession session = json == null ? null : JsonUtil.fromJson(json, UploadSession.class);
+                if (session == null || session.getStatus() != expected) {
+                    ops.unwatch();
+                    return null;
+                }
+                session.setStatus(target);
+                ops.multi();
+                ops.opsForValue().set(key, JsonUtil.toJson(session), sessionTtlHours, TimeUnit.HOURS);
+                // WATCH 的键被修改时 EXEC 返回空结果
+                return ops.exec();
+            }
+        });
+        return result != null && !result.isEmpty();
+    }
+
+    @Override
+    public boolean tryLock(String uploadId) {
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(LOCK_PREFIX + uploadId, uploadId, LOCK_TTL_SECONDS, TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(locked);
+    }
+
+    @Override
+    public boolean beginPartWrite(String uploadId) {
+        byte[] lockKey = rawKey(LOCK_PREFIX + uploadId);
+        byte[] writersKey = rawKey(WRITERS_PREFIX + uploadId);
+        byte[] ttl = rawKey(String.valueOf(LOCK_TTL_SECONDS));
+        Long begun = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(BEGIN_PART_WRITE, ReturnType.INTEGER, 2, lockKey, writersKey, ttl));
+        return begun != null && begun == 1;
+    }
+
+    @Override
+    public void endPartWrite(String uploadId) {
+        byte[] writersKey = rawKey(WRITERS_PREFIX + uploadId);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(END_PART_WRITE, ReturnType.INTEGER, 1, writersKey));
+    }
+
+    @Override
+    public long countPartWrites(String uploadId) {
+        byte[] writersKey = rawKey(WRITERS_PREFIX + uploadId);
+        byte[] value = redisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.stringCommands().get(writersKey));
+        return value == null ? 0 : Math.max(0, Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void unlock(String uploadId) {
+        redisTemplate.delete(LOCK_PREFIX + uploadId);
+    }
+
+    @Override
+    public void deleteParts(String uploadId) {
+        redisTemplate.delete(PARTS_PREFIX + uploadId);
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
 }
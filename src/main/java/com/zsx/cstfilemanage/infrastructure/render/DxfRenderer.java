@@ -0,0 +1,246 @@
+package com.zsx.cstfilemanage.infrastructure.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DXF 线框渲染（用于缩略图）
+ * 只解析 ASCII DXF 的 ENTITIES 段，支持 LINE、CIRCLE、ARC、LWPOLYLINE、POLYLINE/VERTEX；
+ * 文字、填充、块引用等忽略，足以辨认图纸轮廓。
+ */
+public final class DxfRenderer {
+
+    /**
+     * 解析的图元数量上限，防止超大图纸占满内存
+     */
+    private static final int MAX_SHAPES = 200_000;
+
+    private DxfRenderer() {
+    }
+
+    /**
+     * 渲染为白底黑线图片，最长边为 maxSize 像素
+     */
+    public static BufferedImage render(Path path, int maxSize) throws IOException {
+        List<Shape> shapes = parse(path);
+        if (shapes.isEmpty()) {
+            throw new IOException("DXF 中没有可渲染的图元");
+        }
+
+        Rectangle2D bounds = null;
+        for (Shape shape : shapes) {
+            Rectangle2D b = shape.getBounds2D();
+            bounds = bounds == null ? b : bounds.createUnion(b);
+        }
+        double drawingWidth = Math.max(bounds.getWidth(), 1e-9);
+        double drawingHeight = Math.max(bounds.getHeight(), 1e-9);
+        double scale = (maxSize - 4) / Math.max(drawingWidth, drawingHeight);
+        int width = Math.max(1, (int) Math.ceil(drawingWidth * scale) + 4);
+        int height = Math.max(1, (int) Math.ceil(drawingHeight * scale) + 4);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.setStroke(new BasicStroke(1f));
+
+            // DXF 的 Y 轴向上，图片的 Y 轴向下
+            AffineTransform transform = new AffineTransform();
+            transform.translate(2, height - 2);
+            transform.scale(scale, -scale);
+            transform.translate(-bounds.getMinX(), -bounds.getMinY());
+            for (Shape shape : shapes) {
+                g.draw(transform.createTransformedShape(shape));
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static List<Shape> parse(Path path) throws IOException {
+        ParseState state = new ParseState();
+        List<Shape> shapes = state.shapes;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+            boolean inEntities = false;
+            Entity entity = null;
+            String codeLine;
+            while ((codeLine = reader.readLine()) != null) {
+                String value = reader.readLine();
+                if (value == null) {
+                    break;
+                }
+                int code;
+                try {
+                    code = Integer.parseInt(codeLine.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("不支持的 DXF 格式（仅支持 ASCII DXF）");
+                }
+                value = value.trim();
+
+                if (code == 0) {
+                    if (entity != null) {
+                        entity.finish(state);
+                        entity = null;
+                    }
+                    if (!inEntities) {
+                        continue;
+                    }
+                    if ("ENDSEC".equals(value)) {
+                        inEntities = false;
+                        continue;
+                    }
+                    if (shapes.size() >= MAX_SHAPES) {
+                        break;
+                    }
+                    entity = new Entity(value);
+                } else if (code == 2 && !inEntities && "ENTITIES".equals(value)) {
+                    inEntities = true;
+                } else if (entity != null) {
+                    entity.accept(code, value);
+                }
+            }
+            if (entity != null) {
+                entity.finish(state);
+            }
+        }
+        return shapes;
+    }
+
+    /**
+     * 解析过程状态：旧式 POLYLINE 由后续 VERTEX 图元组成，在 SEQEND 时结束
+     */
+    private static final class ParseState {
+        private final List<Shape> shapes = new ArrayList<>();
+        private Path2D.Double polyline;
+        private boolean polylineClosed;
+        private boolean polylineStarted;
+    }
+
+    /**
+     * 单个图元的组码收集
+     */
+    private static final class Entity {
+
+        private final String type;
+        private double x;
+        private double y;
+        private double x2;
+        private double y2;
+        private double radius;
+        private double startAngle;
+        private double endAngle = 360;
+        private int flags;
+        private final List<double[]> points = new ArrayList<>();
+        private double pendingX;
+
+        Entity(String type) {
+            this.type = type;
+        }
+
+        void accept(int code, String value) {
+            double number;
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            switch (code) {
+                case 10 -> {
+                    x = number;
+                    pendingX = number;
+                }
+                case 20 -> {
+                    y = number;
+                    if ("LWPOLYLINE".equals(type)) {
+                        points.add(new double[]{pendingX, number});
+                    }
+                }
+                case 11 -> x2 = number;
+                case 21 -> y2 = number;
+                case 40 -> radius = number;
+                case 50 -> startAngle = number;
+                case 51 -> endAngle = number;
+                case 70 -> flags = (int) number;
+                default -> {
+                }
+            }
+        }
+
+        void finish(ParseState state) {
+            List<Shape> shapes = state.shapes;
+            switch (type) {
+                case "LINE" -> shapes.add(new Line2D.Double(x, y, x2, y2));
+                case "CIRCLE" -> shapes.add(new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2));
+                case "ARC" -> {
+                    double extent = endAngle - startAngle;
+                    if (extent <= 0) {
+                        extent += 360;
+                    }
+                    // Arc2D 按 Y 轴向下计算角度，DXF 坐标系 Y 轴向上，角度取反
+                    shapes.add(new Arc2D.Double(x - radius, y - radius, radius * 2, radius * 2,
+                            -startAngle, -extent, Arc2D.OPEN));
+                }
+                case "LWPOLYLINE" -> {
+                    if (points.size() >= 2) {
+                        Path2D.Double shape = new Path2D.Double();
+                        shape.moveTo(points.get(0)[0], points.get(0)[1]);
+                        for (int i = 1; i < points.size(); i++) {
+                            shape.lineTo(points.get(i)[0], points.get(i)[1]);
+                        }
+                        if ((flags & 1) != 0) {
+                            shape.closePath();
+                        }
+                        shapes.add(shape);
+                    }
+                }
+                case "POLYLINE" -> {
+                    state.polyline = new Path2D.Double();
+                    state.polylineClosed = (flags & 1) != 0;
+                    state.polylineStarted = false;
+                }
+                case "VERTEX" -> {
+                    if (state.polyline != null) {
+                        if (state.polylineStarted) {
+                            state.polyline.lineTo(x, y);
+                        } else {
+                            state.polyline.moveTo(x, y);
+                            state.polylineStarted = true;
+                        }
+                    }
+                }
+                case "SEQEND" -> {
+                    if (state.polyline != null && state.polylineStarted) {
+                        if (state.polylineClosed) {
+                            state.polyline.closePath();
+                        }
+                        shapes.add(state.polyline);
+                    }
+                    state.polyline = null;
+                }
+                default -> {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.zsx.cstfilemanage.infrastructure.render;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 灰度图像素级差异
+ * 逐像素比较灰度值得到差异掩码，按 cell×cell 网格汇总后做 8 连通区域合并，输出各变化区域的外接矩形。
+ * 两张图尺寸不同时按并集比较，超出一方范围的部分按白色（空白页面）处理，只有另一方在该处有内容时才计为差异。
+ */
+public final class RasterDiff {
+
+    private RasterDiff() {
+    }
+
+    /**
+     * 差异结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private int width;
+        private int height;
+        private long changedPixels;
+        private List<Rectangle> regions;
+    }
+
+    /**
+     * @param threshold 灰度差超过该值视为变化（过滤抗锯齿噪声）
+     * @param cell      区域合并的网格边长（像素），相距不足一个网格的变化合并为同一区域
+     */
+    public static Result compare(BufferedImage a, BufferedImage b, int threshold, int cell) {
+        int width = Math.max(a.getWidth(), b.getWidth());
+        int height = Math.max(a.getHeight(), b.getHeight());
+        byte[] pa = gray(a);
+        byte[] pb = gray(b);
+        int gridW = (width + cell - 1) / cell;
+        int gridH = (height + cell - 1) / cell;
+        boolean[] grid = new boolean[gridW * gridH];
+
+        long changed = 0;
+        for (int y = 0; y < height; y++) {
+            int gy = y / cell * gridW;
+            for (int x = 0; x < width; x++) {
+                int va = pixel(pa, a, x, y);
+                int vb = pixel(pb, b, x, y);
+                if (Math.abs(va - vb) > threshold) {
+                    changed++;
+                    grid[gy + x / cell] = true;
+                }
+            }
+        }
+        return new Result(width, height, changed, regions(grid, gridW, gridH, cell, width, height));
+    }
+
+    /**
+     * 网格 8 连通区域（含相隔一格的邻居）合并为外接矩形
+     */
+    private static List<Rectangle> regions(boolean[] grid, int gridW, int gridH, int cell, int width, int height) {
+        List<Rectangle> regions = new ArrayList<>();
+        boolean[] visited = new boolean[grid.length];
+        int[] queue = new int[grid.length];
+        for (int start = 0; start < grid.length; start++) {
+            if (!grid[start] || visited[start]) {
+                continue;
+            }
+            int minX = gridW;
+            int minY = gridH;
+            int maxX = -1;
+            int maxY = -1;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            visited[start] = true;
+            while (head < tail) {
+                int index = queue[head++];
+                int gx = index % gridW;
+                int gy = index / gridW;
+                minX = Math.min(minX, gx);
+                minY = Math.min(minY, gy);
+                maxX = Math.max(maxX, gx);
+                maxY = Math.max(maxY, gy);
+                for (int dy = -2; dy <= 2; dy++) {
+                    int ny = gy + dy;
+                    if (ny < 0 || ny >= gridH) {
+                        continue;
+                    }
+                    for (int dx = -2; dx <= 2; dx++) {
+                        int nx = gx + dx;
+                        if (nx < 0 || nx >= gridW) {
+                            continue;
+                        }
+                        int neighbor = ny * gridW + nx;
+                        if (grid[neighbor] && !visited[neighbor]) {
+                            visited[neighbor] = true;
+                            queue[tail++] = neighbor;
+                        }
+                    }
+                }
+            }
+            int x = minX * cell;
+            int y = minY * cell;
+            regions.add(new Rectangle(x, y,
+                    Math.min(width, (maxX + 1) * cell) - x,
+                    Math.min(height, (maxY + 1) * cell) - y));
+        }
+        return regions;
+    }
+
+    private static int pixel(byte[] data, BufferedImage image, int x, int y) {
+        if (x >= image.getWidth() || y >= image.getHeight()) {
+            // 超出范围按白色处理，与空白页面一致
+            return 255;
+        }
+        return data[y * image.getWidth() + x] & 0xff;
+    }
+
+    /**
+     * 取灰度像素数组；非灰度图先转换
+     */
+    private static byte[] gray(BufferedImage image) {
+        BufferedImage gray = image;
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = gray.createGraphics();
+            try {
+                g.drawImage(image, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+        }
+        return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+    }
+}
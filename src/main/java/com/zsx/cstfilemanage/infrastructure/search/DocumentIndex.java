@@ -0,0 +1,486 @@
+package com.zsx.cstfilemanage.infrastructure.search;
+
+import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.infrastructure.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 文档全文索引（Lucene，存放于 uploads/.index）
+ * 元数据与提取文本共同建索引：文件名、描述使用 smartcn 中文分词，正文使用 CJK 二元切分，
+ * 文件编号按 2~32 字符 n-gram 建索引以支持子串匹配，另存完整编号供更短或更长的输入做通配符匹配。
+ * 状态、文件类型、产品型号、编制人另建 SortedSet 分面，检索时与命中结果在同一次遍历中统计。
+ * 通过 SearcherManager 近实时可见，写入后由调用方批量 commit。
+ */
+@Component
+@Slf4j
+public class DocumentIndex implements SmartLifecycle {
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_FILE_NUMBER = "fileNumber";
+    static final String FIELD_FILE_NUMBER_EXACT = "fileNumberExact";
+    static final String FIELD_FILE_NAME = "fileName";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_CONTENT = "content";
+    static final String FIELD_CONTENT_STORED = "contentStored";
+    static final String FIELD_PRODUCT_MODEL = "productModel";
+    static final String FIELD_STATUS = "status";
+    static final String FIELD_COMPILER_ID = "compilerId";
+    static final String FIELD_CREATE_TIME = "createTime";
+
+    public static final String FACET_STATUS = "status";
+    public static final String FACET_FILE_TYPE = "fileType";
+    public static final String FACET_PRODUCT_MODEL = "productModel";
+    public static final String FACET_COMPILER = "compilerId";
+    private static final List<String> FACET_DIMS =
+            List.of(FACET_STATUS, FACET_FILE_TYPE, FACET_PRODUCT_MODEL, FACET_COMPILER);
+
+    private static final int FILE_NUMBER_MIN_GRAM = 2;
+    private static final int FILE_NUMBER_MAX_GRAM = 32;
+    /**
+     * 提交信息中标记索引已完整构建
+     */
+    private static final String COMMIT_BUILT = "built";
+    /**
+     * 提交信息中的索引结构版本，与当前版本不一致时视为未构建，启动后自动全量重建
+     */
+    private static final String COMMIT_SCHEMA = "schema";
+    private static final String SCHEMA_VERSION = "3";
+
+    private final LocalFileStore fileStore;
+    private final Analyzer analyzer;
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+
+    @Value("${search.index-dir:.index}")
+    private String indexDir;
+
+    @Value("${search.highlight-fragments:2}")
+    private int highlightFragments;
+
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean built;
+    private volatile boolean running;
+    /**
+     * 分面序号映射按 IndexReader 缓存，检索视图刷新后重建
+     */
+    private volatile SortedSetDocValuesReaderState facetState;
+
+    public DocumentIndex(LocalFileStore fileStore) {
+        this.fileStore = fileStore;
+        Map<String, Analyzer> perField = new HashMap<>();
+        perField.put(FIELD_FILE_NUMBER, new FileNumberAnalyzer());
+        // 正文按 CJK 二元切分，避免词典分词边界不一致导致漏检（如“液压泵”与“液压泵站”）
+        CJKAnalyzer bigram = new CJKAnalyzer();
+        perField.put(FIELD_CONTENT, bigram);
+        perField.put(FIELD_CONTENT_STORED, bigram);
+        this.analyzer = new PerFieldAnalyzerWrapper(new SmartChineseAnalyzer(), perField);
+    }
+
+    @Override
+    public void start() {
+        try {
+            Path path = fileStore.resolve(indexDir);
+            Files.createDirectories(path);
+            directory = FSDirectory.open(path);
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            writer = new IndexWriter(directory, config);
+            searcherManager = new SearcherManager(writer, null);
+            Map<String, String> commitData = new HashMap<>();
+            writer.getLiveCommitData().forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+            built = "true".equals(commitData.get(COMMIT_BUILT))
+                    && SCHEMA_VERSION.equals(commitData.get(COMMIT_SCHEMA));
+            running = true;
+            log.info("全文索引已打开 - 路径: {}, 文档数: {}, 已完整构建: {}", path, writer.getDocStats().numDocs, built);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开全文索引失败", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭全文索引失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 先于索引维护服务启动、晚于其关闭
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    /**
+     * 索引是否已完整构建（未构建时检索回退到数据库）
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * 添加或替换文档
+     *
+     * @param content 提取的全文（可为空），只用于建索引不存储
+     * @param preview 用于高亮的文本前缀（存储）
+     */
+    public void index(Document document, Reader content, String preview) throws IOException {
+        org.apache.lucene.document.Document doc = new org.apache.lucene.document.Document();
+        String id = String.valueOf(document.getId());
+        doc.add(new StringField(FIELD_ID, id, Field.Store.YES));
+        addText(doc, FIELD_FILE_NUMBER, document.getFileNumber());
+        if (document.getFileNumber() != null) {
+            doc.add(new StringField(FIELD_FILE_NUMBER_EXACT, document.getFileNumber().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        addText(doc, FIELD_FILE_NAME, document.getFileName());
+        addText(doc, FIELD_DESCRIPTION, document.getDescription());
+        if (content != null) {
+            doc.add(new TextField(FIELD_CONTENT, content));
+        }
+        if (preview != null && !preview.isEmpty()) {
+            doc.add(new StoredField(FIELD_CONTENT_STORED, preview));
+        }
+        if (document.getProductModel() != null) {
+            doc.add(new StringField(FIELD_PRODUCT_MODEL, document.getProductModel(), Field.Store.NO));
+        }
+        if (document.getStatus() != null) {
+            doc.add(new StringField(FIELD_STATUS, document.getStatus().name(), Field.Store.NO));
+        }
+        if (document.getCompilerId() != null) {
+            doc.add(new StringField(FIELD_COMPILER_ID, String.valueOf(document.getCompilerId()), Field.Store.NO));
+        }
+        long createTime = document.getCreateTime() == null ? 0
+                : document.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        doc.add(new LongPoint(FIELD_CREATE_TIME, createTime));
+        doc.add(new NumericDocValuesField(FIELD_CREATE_TIME, createTime));
+        addFacet(doc, FACET_STATUS, document.getStatus() != null ? document.getStatus().name() : null);
+        addFacet(doc, FACET_FILE_TYPE, document.getFileType() != null ? document.getFileType().name() : null);
+        addFacet(doc, FACET_PRODUCT_MODEL, document.getProductModel());
+        addFacet(doc, FACET_COMPILER, document.getCompilerId() != null ? String.valueOf(document.getCompilerId()) : null);
+        writer.updateDocument(new Term(FIELD_ID, id), facetsConfig.build(doc));
+    }
+
+    public void delete(Long documentId) throws IOException {
+        writer.deleteDocuments(new Term(FIELD_ID, String.valueOf(documentId)));
+    }
+
+    /**
+     * 清空索引（全量重建前调用），重建完成前视为未构建
+     */
+    public void deleteAll() throws IOException {
+        built = false;
+        writer.deleteAll();
+    }
+
+    /**
+     * 提交并刷新检索视图
+     *
+     * @param markBuilt 是否标记为已完整构建
+     */
+    public void commit(boolean markBuilt) throws IOException {
+        if (markBuilt) {
+            built = true;
+        }
+        writer.setLiveCommitData(Map.of(COMMIT_BUILT, String.valueOf(built), COMMIT_SCHEMA, SCHEMA_VERSION).entrySet());
+        writer.commit();
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * 仅刷新检索视图（近实时，不落盘）
+     */
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * 检索，有关键字时按相关度排序，否则按创建时间倒序
+     */
+    public SearchResult search(DocumentQuery criteria, int offset, int limit) throws IOException {
+        return search(criteria, offset, limit, 0);
+    }
+
+    /**
+     * 检索并统计分面
+     *
+     * @param facetSize 每个分面维度返回的取值数量，0 表示不统计分面
+     */
+    public SearchResult search(DocumentQuery criteria, int offset, int limit, int facetSize) throws IOException {
+        Query query = buildQuery(criteria);
+        boolean ranked = hasText(criteria.getKeyword()) || hasText(criteria.getFileName());
+        Sort byCreateTime = new Sort(new SortField(FIELD_CREATE_TIME, SortField.Type.LONG, true));
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            int topN = Math.max(1, offset + limit);
+            TopDocs topDocs;
+            Map<String, List<FacetValue>> facets = Map.of();
+            if (facetSize > 0) {
+                // 分面收集与 TopN 在同一次遍历中完成
+                FacetsCollector facetsCollector = new FacetsCollector();
+                topDocs = ranked
+                        ? FacetsCollector.search(searcher, query, topN, facetsCollector)
+                        : FacetsCollector.search(searcher, query, topN, byCreateTime, facetsCollector);
+                facets = countFacets(searcher.getIndexReader(), facetsCollector, facetSize);
+            } else {
+                topDocs = ranked
+                        ? searcher.search(query, topN)
+                        : searcher.search(query, topN, byCreateTime);
+            }
+            ScoreDoc[] page = slice(topDocs.scoreDocs, offset, limit);
+
+            Map<String, String[]> highlights = Map.of();
+            if (ranked && page.length > 0) {
+                highlights = highlight(searcher, query, page);
+            }
+            List<SearchHit> hits = new ArrayList<>(page.length);
+            for (int i = 0; i < page.length; i++) {
+                String id = searcher.storedFields().document(page[i].doc).get(FIELD_ID);
+                Map<String, String> fragments = new LinkedHashMap<>();
+                for (Map.Entry<String, String[]> entry : highlights.entrySet()) {
+                    String fragment = entry.getValue()[i];
+                    if (fragment != null && fragment.contains("<em>")) {
+                        fragments.put(entry.getKey(), fragment);
+                    }
+                }
+                hits.add(new SearchHit(Long.valueOf(id), ranked ? page[i].score : 0f, fragments));
+            }
+            return new SearchResult(topDocs.totalHits.value, hits, facets);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Map<String, List<FacetValue>> countFacets(IndexReader reader, FacetsCollector collector,
+                                                      int facetSize) throws IOException {
+        Map<String, List<FacetValue>> result = new LinkedHashMap<>();
+        FACET_DIMS.forEach(dim -> result.put(dim, new ArrayList<>()));
+        SortedSetDocValuesReaderState state = facetState;
+        if (state == null || state.getReader() != reader) {
+            try {
+                state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+            } catch (IllegalArgumentException e) {
+                // 索引中还没有任何分面数据（空索引）
+                return result;
+            }
+            facetState = state;
+        }
+        Facets facets = new SortedSetDocValuesFacetCounts(state, collector);
+        for (String dim : FACET_DIMS) {
+            FacetResult facetResult;
+            try {
+                facetResult = facets.getTopChildren(facetSize, dim);
+            } catch (IllegalArgumentException e) {
+                // 该维度在索引中没有任何取值
+                continue;
+            }
+            if (facetResult == null) {
+                continue;
+            }
+            for (LabelAndValue labelValue : facetResult.labelValues) {
+                result.get(dim).add(new FacetValue(labelValue.label, labelValue.label, labelValue.value.longValue()));
+            }
+        }
+        return result;
+    }
+
+    private Query buildQuery(DocumentQuery criteria) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean hasClause = false;
+
+        if (hasText(criteria.getKeyword())) {
+            String keyword = criteria.getKeyword().trim();
+            BooleanQuery.Builder keywordQuery = new BooleanQuery.Builder();
+            Map<String, Float> weights = new LinkedHashMap<>();
+            weights.put(FIELD_FILE_NAME, 3f);
+            weights.put(FIELD_DESCRIPTION, 1.5f);
+            weights.put(FIELD_CONTENT, 1f);
+            SimpleQueryParser parser = new SimpleQueryParser(analyzer, weights);
+            parser.setDefaultOperator(BooleanClause.Occur.MUST);
+            Query text = parser.parse(keyword);
+            if (text != null) {
+                keywordQuery.add(text, BooleanClause.Occur.SHOULD);
+            }
+            keywordQuery.add(new BoostQuery(fileNumberQuery(keyword), 5f), BooleanClause.Occur.SHOULD);
+            builder.add(keywordQuery.build(), BooleanClause.Occur.MUST);
+            hasClause = true;
+        }
+        if (hasText(criteria.getFileNumber())) {
+            builder.add(fileNumberQuery(criteria.getFileNumber().trim()), BooleanClause.Occur.MUST);
+            hasClause = true;
+        }
+        if (hasText(criteria.getFileName())) {
+            SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_FILE_NAME);
+            parser.setDefaultOperator(BooleanClause.Occur.MUST);
+            Query fileName = parser.parse(criteria.getFileName().trim());
+            if (fileName != null) {
+                builder.add(fileName, BooleanClause.Occur.MUST);
+                hasClause = true;
+            }
+        }
+        if (hasText(criteria.getProductModel())) {
+            builder.add(new TermQuery(new Term(FIELD_PRODUCT_MODEL, criteria.getProductModel())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getStatus() != null) {
+            builder.add(new TermQuery(new Term(FIELD_STATUS, criteria.getStatus().name())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getCompilerId() != null) {
+            builder.add(new TermQuery(new Term(FIELD_COMPILER_ID, String.valueOf(criteria.getCompilerId()))), BooleanClause.Occur.FILTER);
+        }
+        if (!hasClause) {
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 文件编号子串查询：长度在 n-gram 范围内时直接匹配 n-gram 词项；
+     * 过短或过长的输入在完整编号上做通配符子串匹配
+     */
+    private static Query fileNumberQuery(String value) {
+        String normalized = value.toLowerCase(Locale.ROOT);
+        if (normalized.length() >= FILE_NUMBER_MIN_GRAM && normalized.length() <= FILE_NUMBER_MAX_GRAM) {
+            return new TermQuery(new Term(FIELD_FILE_NUMBER, normalized));
+        }
+        StringBuilder pattern = new StringBuilder("*");
+        for (char c : normalized.toCharArray()) {
+            if (c == WildcardQuery.WILDCARD_STRING || c == WildcardQuery.WILDCARD_CHAR || c == WildcardQuery.WILDCARD_ESCAPE) {
+                pattern.append(WildcardQuery.WILDCARD_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return new WildcardQuery(new Term(FIELD_FILE_NUMBER_EXACT, pattern.append('*').toString()));
+    }
+
+    private Map<String, String[]> highlight(IndexSearcher searcher, Query query, ScoreDoc[] page) throws IOException {
+        UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                .withFormatter(new DefaultPassageFormatter("<em>", "</em>", "...", true))
+                // contentStored 只存储不建索引，需匹配 content 字段的查询词
+                .withFieldMatcher(field -> true)
+                .build();
+        int[] docIds = new int[page.length];
+        for (int i = 0; i < page.length; i++) {
+            docIds[i] = page[i].doc;
+        }
+        String[] fields = {FIELD_FILE_NAME, FIELD_DESCRIPTION, FIELD_CONTENT_STORED};
+        int[] maxPassages = {1, 1, highlightFragments};
+        Map<String, String[]> raw = highlighter.highlightFields(fields, query, docIds, maxPassages);
+        Map<String, String[]> result = new LinkedHashMap<>();
+        raw.forEach((field, values) -> result.put(FIELD_CONTENT_STORED.equals(field) ? FIELD_CONTENT : field, values));
+        return result;
+    }
+
+    private static ScoreDoc[] slice(ScoreDoc[] docs, int offset, int limit) {
+        if (offset >= docs.length) {
+            return new ScoreDoc[0];
+        }
+        int end = Math.min(docs.length, offset + limit);
+        ScoreDoc[] page = new ScoreDoc[end - offset];
+        System.arraycopy(docs, offset, page, 0, page.length);
+        return page;
+    }
+
+    private static void addText(org.apache.lucene.document.Document doc, String field, String value) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static void addFacet(org.apache.lucene.document.Document doc, String dim, String value) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new SortedSetDocValuesFacetField(dim, value));
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * 文件编号分词：小写后切分为 2~32 字符的 n-gram
+     */
+    private static final class FileNumberAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new NGramTokenizer(FILE_NUMBER_MIN_GRAM, FILE_NUMBER_MAX_GRAM);
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    }
+}
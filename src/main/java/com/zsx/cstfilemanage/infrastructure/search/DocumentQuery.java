@@ -0,0 +1,26 @@
+package com.zsx.cstfilemanage.infrastructure.search;
+
+import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 文档检索条件，为空的条件不参与过滤
+ */
+@Data
+@AllArgsConstructor
+public class DocumentQuery {
+
+    /**
+     * 全文关键字（文件编号、文件名、描述、文件内容）
+     */
+    private String keyword;
+    /**
+     * 文件编号（子串匹配）
+     */
+    private String fileNumber;
+    private String fileName;
+    private String productModel;
+    private DocumentStatus status;
+    private Long compilerId;
+}
@@ -0,0 +1,22 @@
+package com.zsx.cstfilemanage.infrastructure.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 分面统计项
+ */
+@Data
+@AllArgsConstructor
+public class FacetValue {
+
+    /**
+     * 取值（枚举名、产品型号或编制人ID）
+     */
+    private String value;
+    /**
+     * 显示名称（编制人为姓名，其余与取值相同）
+     */
+    private String label;
+    private long count;
+}
@@ -0,0 +1,21 @@
+package com.zsx.cstfilemanage.infrastructure.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 检索命中
+ */
+@Data
+@AllArgsConstructor
+public class SearchHit {
+
+    private Long documentId;
+    private float score;
+    /**
+     * 字段名 -> 高亮片段（命中词以 &lt;em&gt; 标记，其余内容已做 HTML 转义）
+     */
+    private Map<String, String> highlights;
+}
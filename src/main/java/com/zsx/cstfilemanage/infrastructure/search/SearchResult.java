@@ -0,0 +1,22 @@
+package com.zsx.cstfilemanage.infrastructure.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 检索结果
+ */
+@Data
+@AllArgsConstructor
+public class SearchResult {
+
+    private long total;
+    private List<SearchHit> hits;
+    /**
+     * 分面统计：维度 -> 按数量倒序的取值（未请求分面时为空）
+     */
+    private Map<String, List<FacetValue>> facets;
+}
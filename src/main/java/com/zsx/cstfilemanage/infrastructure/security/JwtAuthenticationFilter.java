@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,18 +13,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Objects;
 
 /**
  * JWT认证过滤器
+ * Token 携带权限时校验其权限版本号：与当前版本不一致（签发后角色或权限有变化）的 Token 不予认证，客户端需重新登录；
+ * 版本号无法读取时仍认证，但不使用 Token 中的权限。
  */
 @Component
+@Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
+    private final PermissionCache permissionCache;
 
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider) {
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, PermissionCache permissionCache) {
         this.tokenProvider = tokenProvider;
+        this.permissionCache = permissionCache;
     }
 
     @Override
@@ -31,17 +39,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                    HttpServletResponse response,
                                    FilterChain filterChain) throws ServletException, IOException {
         String token = getTokenFromRequest(request);
+        // 线程复用，先清除上一个请求遗留的用户信息
+        SecurityContext.clear();
 
-        if (token != null && tokenProvider.validateToken(token)) {
-            Long userId = tokenProvider.getUserIdFromToken(token);
-            String username = tokenProvider.getUsernameFromToken(token);
-            String realName = tokenProvider.getRealNameFromToken(token);
+        JwtTokenProvider.TokenDetails details = token != null ? tokenProvider.verify(token) : null;
+        if (details != null) {
+            Long userId = details.getUserId();
+            String username = details.getUsername();
+            String realName = details.getRealName();
+
+            BitSet permissions = null;
+            Long tokenVersion = details.getPermissionVersion();
+            if (tokenVersion != null) {
+                Long currentVersion = permissionCache.getVersion(userId);
+                if (currentVersion != null && !Objects.equals(currentVersion, tokenVersion)) {
+                    log.info("Token 权限版本已过期 - 用户ID: {}, Token 版本: {}, 当前版本: {}", userId, tokenVersion, currentVersion);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                if (currentVersion != null) {
+                    permissions = details.getPermissions();
+                }
+            }
 
             // 设置SecurityContext
             SecurityContext.UserInfo userInfo = new SecurityContext.UserInfo();
             userInfo.setUserId(userId);
             userInfo.setUsername(username);
             userInfo.setRealName(realName);
+            userInfo.setPermissions(permissions);
             SecurityContext.setCurrentUser(userInfo);
 
             // 设置Spring Security认证
@@ -1,100 +1,216 @@
 package com.zsx.cstfilemanage.infrastructure.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT Token提供者
+ * 签名密钥和解析器只构建一次；验证通过的 Token 以其 SHA-256 摘要为 key 缓存解析结果直到过期，
+ * 同一 Token 的后续请求不再重复验签和解析。验证失败的 Token 不缓存。
  */
 @Component
 public class JwtTokenProvider {
 
+    /**
+     * 权限位图（以权限ID为下标，Base64url 编码）
+     */
+    private static final String CLAIM_PERMISSIONS = "perms";
+
+    /**
+     * 签发时的权限版本号
+     */
+    private static final String CLAIM_PERMISSION_VERSION = "pv";
+
     @Value("${jwt.secret:your-secret-key-should-be-at-least-256-bits-long-for-security}")
     private String secret;
 
     @Value("${jwt.expiration:86400000}") // 默认24小时
     private Long expiration;
 
+    /**
+     * 已验证 Token 缓存的条目上限
+     */
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, TokenDetails> verified;
+
+    /**
+     * Token 解析结果（缓存共享，只读）
+     */
+    @Data
+    public static class TokenDetails {
+        private Long userId;
+        private String username;
+        private String realName;
+        /**
+         * 权限位图，未携带时为 null；多个请求共享同一实例，不得修改
+         */
+        private BitSet permissions;
+        private Long permissionVersion;
+        private Date expiration;
+    }
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, TokenDetails>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenDetails details, long currentTime) {
+                        long remaining = details.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenDetails details, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenDetails details, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     /**
      * 生成Token
      */
     public String generateToken(Long userId, String username, String realName) {
+        return generateToken(userId, username, realName, null, null);
+    }
+
+    /**
+     * 生成携带权限的Token
+     *
+     * @param permissions       权限位图，为空时不携带
+     * @param permissionVersion 签发时的权限版本号，为空时不携带
+     */
+    public String generateToken(Long userId, String username, String realName,
+                                BitSet permissions, Long permissionVersion) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("realName", realName);
+        if (permissions != null && permissionVersion != null) {
+            claims.put(CLAIM_PERMISSIONS, Base64.getUrlEncoder().withoutPadding().encodeToString(permissions.toByteArray()));
+            claims.put(CLAIM_PERMISSION_VERSION, permissionVersion);
+        }
 
         return Jwts.builder()
                 .claims(claims)
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * 验证并解析Token（只验签一次，结果缓存到过期）
+     *
+     * @return Token 无效或已过期时返回 null
+     */
+    public TokenDetails verify(String token) {
+        String digest = digest(token);
+        TokenDetails details = verified.getIfPresent(digest);
+        if (details == null) {
+            details = parse(token);
+            if (details == null) {
+                return null;
+            }
+            verified.put(digest, details);
+        }
+        return details.getExpiration().before(new Date()) ? null : details;
+    }
+
     /**
      * 从Token中获取用户ID
      */
     public Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("userId", Long.class);
+        TokenDetails details = verify(token);
+        return details == null ? null : details.getUserId();
     }
 
     /**
      * 从Token中获取用户名
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("username", String.class);
+        TokenDetails details = verify(token);
+        return details == null ? null : details.getUsername();
     }
 
     /**
      * 从Token中获取真实姓名
      */
     public String getRealNameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("realName", String.class);
+        TokenDetails details = verify(token);
+        return details == null ? null : details.getRealName();
     }
 
     /**
      * 验证Token是否有效
      */
     public boolean validateToken(String token) {
-        try {
-            Claims claims = getClaimsFromToken(token);
-            return !claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            return false;
-        }
+        return verify(token) != null;
     }
 
-    /**
-     * 从Token中获取Claims
-     */
-    private Claims getClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private TokenDetails parse(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.getExpiration() == null) {
+            return null;
+        }
+        TokenDetails details = new TokenDetails();
+        details.setUserId(claims.get("userId", Long.class));
+        details.setUsername(claims.get("username", String.class));
+        details.setRealName(claims.get("realName", String.class));
+        String permissions = claims.get(CLAIM_PERMISSIONS, String.class);
+        if (permissions != null) {
+            details.setPermissions(BitSet.valueOf(Base64.getUrlDecoder().decode(permissions)));
+        }
+        details.setPermissionVersion(claims.get(CLAIM_PERMISSION_VERSION, Long.class));
+        details.setExpiration(claims.getExpiration());
+        return details;
     }
 
-    /**
-     * 获取签名密钥
-     */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
-
@@ -0,0 +1,364 @@
+package com.zsx.cstfilemanage.infrastructure.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zsx.cstfilemanage.domain.event.PermissionChangedEvent;
+import com.zsx.cstfilemanage.domain.model.entity.Permission;
+import com.zsx.cstfilemanage.domain.repository.PermissionRepository;
+import com.zsx.cstfilemanage.domain.repository.RolePermissionRepository;
+import com.zsx.cstfilemanage.domain.repository.UserRoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户权限缓存
+ * 每个用户的权限保存为以权限ID为下标的位图（权限代码在加载时映射为权限ID，ID 各节点一致，位图可在节点间共享），
+ * 命中时一次哈希查找 + 一次位运算即可完成检查。
+ * 两级缓存：本地 Caffeine + Redis（perm:bits:{userId}），都未命中时两条查询加载（用户角色、角色权限）。
+ * 角色权限、用户角色变更的事务提交后删除受影响用户的 Redis 缓存，并通过 Redis 发布/订阅通知所有节点清除本地缓存。
+ * 同时递增用户的权限版本号（perm:ver:{userId}），携带权限的 JWT 中记录签发时的版本号，版本不一致即视为过期。
+ * Redis 中的位图带有加载前读到的版本号：只有版本号仍未变化时才写入（Lua 脚本原子比较），读取时版本不一致视为未命中，
+ * 避免失效前从数据库读到的旧权限在删除缓存之后又被写回。
+ */
+@Component
+@Slf4j
+public class PermissionCache {
+
+    private static final String KEY_PREFIX = "perm:bits:";
+    private static final String VERSION_PREFIX = "perm:ver:";
+    private static final String CHANNEL = "perm:invalidate";
+    private static final String MESSAGE_DEFINITIONS = "definitions";
+    private static final String MESSAGE_USERS = "users:";
+    private static final BitSet EMPTY = new BitSet();
+    /**
+     * 版本号未变化时写入位图：KEYS[1] 位图键，KEYS[2] 版本键，ARGV[1] 加载前的版本号，ARGV[2] 值，ARGV[3] 过期秒数
+     */
+    private static final byte[] SET_IF_VERSION = ("local v = redis.call('GET', KEYS[2]) or '0' "
+            + "if v == ARGV[1] then redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 end "
+            + "return 0").getBytes(StandardCharsets.UTF_8);
+
+    private final PermissionRepository permissionRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<Long, BitSet> local;
+    private final Cache<Long, Long> versions;
+
+    /**
+     * 权限代码 -> 权限ID，整体替换
+     */
+    private volatile Map<String, Integer> codeIds;
+    private volatile Map<Integer, String> idCodes = Map.of();
+    private volatile long definitionsLoadedAt;
+
+    @Value("${permission.cache.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${permission.cache.redis-ttl-seconds:3600}")
+    private long redisTtlSeconds;
+
+    /**
+     * Token 有效期，版本号的保留时间需长于 Token 有效期，否则版本号过期归零后旧 Token 会重新生效
+     */
+    @Value("${jwt.expiration:86400000}")
+    private long tokenExpirationMs;
+
+    /**
+     * 遇到未知权限代码时重新加载权限定义的最小间隔，避免无效代码反复查库
+     */
+    @Value("${permission.cache.definitions-reload-interval-ms:5000}")
+    private long definitionsReloadIntervalMs;
+
+    public PermissionCache(PermissionRepository permissionRepository,
+                           RolePermissionRepository rolePermissionRepository,
+                           UserRoleRepository userRoleRepository,
+                           RedisTemplate<String, String> redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           @Value("${permission.cache.local-max-size:10000}") long localMaxSize,
+                           @Value("${permission.cache.local-ttl-seconds:600}") long localTtlSeconds) {
+        this.permissionRepository = permissionRepository;
+        this.rolePermissionRepository = rolePermissionRepository;
+        this.userRoleRepository = userRoleRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (redisEnabled) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    onMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        }
+    }
+
+    /**
+     * 用户是否拥有指定权限
+     */
+    public boolean hasPermission(Long userId, String permissionCode) {
+        Integer permissionId = permissionId(permissionCode);
+        return permissionId != null && permissions(userId).get(permissionId);
+    }
+
+    /**
+     * 权限位图中是否包含指定权限（用于 Token 中携带的权限，不访问数据库）
+     */
+    public boolean contains(BitSet permissions, String permissionCode) {
+        Integer permissionId = permissionId(permissionCode);
+        return permissionId != null && permissions.get(permissionId);
+    }
+
+    /**
+     * 用户的权限位图
+     */
+    public BitSet getPermissions(Long userId) {
+        return permissions(userId);
+    }
+
+    /**
+     * 用户当前的权限版本号；未启用 Redis 或 Redis 不可用时返回 null，此时无法校验 Token 中的权限
+     */
+    public Long getVersion(Long userId) {
+        if (!redisEnabled) {
+            return null;
+        }
+        try {
+            return versions.get(userId, this::loadVersion);
+        } catch (RuntimeException e) {
+            log.warn("读取权限版本失败 - 用户ID: {}, 错误: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 用户的全部权限代码
+     */
+    public Set<String> getPermissionCodes(Long userId) {
+        BitSet bits = permissions(userId);
+        Map<Integer, String> codes = idCodes;
+        Set<String> result = new HashSet<>();
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            String code = codes.get(id);
+            if (code != null) {
+                result.add(code);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 权限相关数据变更的事务提交后失效缓存
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPermissionChanged(PermissionChangedEvent event) {
+        if (event.getUserId() != null) {
+            invalidateUsers(List.of(event.getUserId()));
+        } else if (event.getRoleId() != null) {
+            invalidateUsers(userRoleRepository.findUserIdsByRoleId(event.getRoleId()));
+        } else {
+            reloadDefinitions();
+            publish(MESSAGE_DEFINITIONS);
+        }
+    }
+
+    private void invalidateUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        local.invalidateAll(userIds);
+        versions.invalidateAll(userIds);
+        StringJoiner message = new StringJoiner(",", MESSAGE_USERS, "");
+        List<String> keys = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            keys.add(KEY_PREFIX + userId);
+            message.add(String.valueOf(userId));
+        }
+        if (redisEnabled) {
+            try {
+                incrementVersions(userIds);
+                redisTemplate.delete(keys);
+            } catch (RuntimeException e) {
+                log.warn("删除权限缓存失败 - 用户数: {}, 错误: {}", userIds.size(), e.getMessage());
+            }
+        }
+        publish(message.toString());
+        log.debug("权限缓存已失效 - 用户ID: {}", userIds);
+    }
+
+    private void publish(String message) {
+        if (!redisEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            log.warn("发布权限缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    private void onMessage(String message) {
+        // 消息经过 RedisTemplate 的 JSON 序列化，带引号
+        String body = message.startsWith("\"") && message.endsWith("\"")
+                ? message.substring(1, message.length() - 1) : message;
+        if (MESSAGE_DEFINITIONS.equals(body)) {
+            reloadDefinitions();
+        } else if (body.startsWith(MESSAGE_USERS)) {
+            List<Long> userIds = new ArrayList<>();
+            for (String id : body.substring(MESSAGE_USERS.length()).split(",")) {
+                userIds.add(Long.valueOf(id));
+            }
+            local.invalidateAll(userIds);
+            versions.invalidateAll(userIds);
+        }
+    }
+
+    private BitSet permissions(Long userId) {
+        return local.get(userId, this::loadShared);
+    }
+
+    /**
+     * 位图按 "{版本号}:{Base64}" 保存，与版本号一次 MGET 读出；加载前读到的版本号随位图一起写回
+     */
+    private BitSet loadShared(Long userId) {
+        byte[] key = (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+        byte[] versionKey = (VERSION_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+        String version = null;
+        if (redisEnabled) {
+            try {
+                List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                        connection.stringCommands().mGet(key, versionKey));
+                version = values.get(1) == null ? "0" : new String(values.get(1), StandardCharsets.UTF_8);
+                BitSet cached = decode(values.get(0), version);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (RuntimeException e) {
+                log.warn("读取权限缓存失败，回退到数据库 - 用户ID: {}, 错误: {}", userId, e.getMessage());
+            }
+        }
+        BitSet bits = loadFromDatabase(userId);
+        if (version != null) {
+            // 未读到版本号时不写入，无法判断加载期间权限是否变更
+            byte[] expected = version.getBytes(StandardCharsets.UTF_8);
+            byte[] value = (version + ":" + Base64.getEncoder().encodeToString(bits.toByteArray()))
+                    .getBytes(StandardCharsets.UTF_8);
+            byte[] ttl = String.valueOf(redisTtlSeconds).getBytes(StandardCharsets.UTF_8);
+            try {
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                        .eval(SET_IF_VERSION, ReturnType.INTEGER, 2, key, versionKey, expected, value, ttl));
+            } catch (RuntimeException e) {
+                log.warn("写入权限缓存失败 - 用户ID: {}, 错误: {}", userId, e.getMessage());
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 解析缓存的位图，版本号与当前版本不一致（或旧格式）时返回 null
+     */
+    private static BitSet decode(byte[] cached, String version) {
+        if (cached == null) {
+            return null;
+        }
+        String value = new String(cached, StandardCharsets.UTF_8);
+        int separator = value.indexOf(':');
+        if (separator < 0 || !version.equals(value.substring(0, separator))) {
+            return null;
+        }
+        try {
+            return BitSet.valueOf(Base64.getDecoder().decode(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Long loadVersion(Long userId) {
+        byte[] key = (VERSION_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        return value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private void incrementVersions(List<Long> userIds) {
+        long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(tokenExpirationMs) + TimeUnit.HOURS.toSeconds(1);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.openPipeline();
+            for (Long userId : userIds) {
+                byte[] key = (VERSION_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+                connection.stringCommands().incr(key);
+                connection.keyCommands().expire(key, ttlSeconds);
+            }
+            connection.closePipeline();
+            return null;
+        });
+    }
+
+    private BitSet loadFromDatabase(Long userId) {
+        List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
+        if (roleIds.isEmpty()) {
+            return EMPTY;
+        }
+        BitSet bits = new BitSet();
+        for (Long permissionId : rolePermissionRepository.findPermissionIdsByRoleIds(roleIds)) {
+            bits.set(Math.toIntExact(permissionId));
+        }
+        return bits;
+    }
+
+    private Integer permissionId(String permissionCode) {
+        Map<String, Integer> codes = codeIds;
+        if (codes == null) {
+            codes = reloadDefinitions();
+        }
+        Integer id = codes.get(permissionCode);
+        if (id == null && System.currentTimeMillis() - definitionsLoadedAt >= definitionsReloadIntervalMs) {
+            // 权限可能由其他节点或直接写库新增
+            id = reloadDefinitions().get(permissionCode);
+        }
+        return id;
+    }
+
+    private synchronized Map<String, Integer> reloadDefinitions() {
+        Map<String, Integer> codes = new HashMap<>();
+        Map<Integer, String> ids = new HashMap<>();
+        for (Permission permission : permissionRepository.findAll()) {
+            int id = Math.toIntExact(permission.getId());
+            codes.put(permission.getPermissionCode(), id);
+            ids.put(id, permission.getPermissionCode());
+        }
+        idCodes = Map.copyOf(ids);
+        codeIds = Map.copyOf(codes);
+        definitionsLoadedAt = System.currentTimeMillis();
+        log.debug("权限定义已加载 - 数量: {}", codes.size());
+        return codes;
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.BitSet;
+
 public class SecurityContext {
 
     // ThreadLocal 存储当前用户信息
@@ -55,5 +57,6 @@ public class SecurityContext {
         private String username;
         private String realName;
         private String tenantId; // 多租户可选
+        private BitSet permissions; // Token 中携带且版本校验通过的权限位图，为空时按权限缓存检查
     }
 }
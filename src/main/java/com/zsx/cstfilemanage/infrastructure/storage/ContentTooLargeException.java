@@ -0,0 +1,13 @@
+package com.zsx.cstfilemanage.infrastructure.storage;
+
+import java.io.IOException;
+
+/**
+ * 写入的数据超过允许的最大字节数，已写入的部分已被丢弃
+ */
+public class ContentTooLargeException extends IOException {
+
+    public ContentTooLargeException(long limit) {
+        super("数据超过允许的大小: " + limit + " bytes");
+    }
+}
@@ -0,0 +1,421 @@
+package com.zsx.cstfilemanage.infrastructure.storage;
+
+import com.zsx.cstfilemanage.domain.cenum.FileType;
+import com.zsx.cstfilemanage.domain.storage.StorageObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 本地文件存储
+ * 请求体只读取一次，经 FileChannel 写盘，同时计算 SHA-256。
+ * 文件按内容摘要寻址，相同内容只保存一份，由 Document.filePath 引用计数。
+ */
+@Component
+@Slf4j
+public class LocalFileStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final String STAGING_SUFFIX = ".part";
+    private static final String DIRECT_UPLOAD_PREFIX = "uploads/";
+    private static final String BLOB_PREFIX_GLOB = "[0-9a-f][0-9a-f]";
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}(\\.[^.]+)?");
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    /**
+     * 复用已有 blob 与回收 blob 互斥：复用时刷新修改时间，回收时只删除宽限期内未被复用的文件
+     */
+    private final Object blobLock = new Object();
+
+    /**
+     * 流式保存文件到 uploads/&lt;fileType&gt;/ 下的内容寻址路径
+     * 先写入同一文件系统的暂存文件，摘要算出后重命名为 blob；blob 已存在时直接丢弃暂存文件
+     *
+     * @param in        上传数据流（调用方负责关闭）
+     * @param fileType  文件类型
+     * @param extension 扩展名
+     * @param maxBytes  允许写入的最大字节数，超出时中止并丢弃暂存文件
+     * @throws ContentTooLargeException 数据超过 maxBytes
+     */
+    public StorageObject store(InputStream in, FileType fileType, String extension, long maxBytes) throws IOException {
+        Path temp = stagingDir().resolve(UUID.randomUUID() + ".tmp");
+        Files.createDirectories(temp.getParent());
+
+        MessageDigest digest = sha256();
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            size = transfer(new DigestInputStream(in, digest), channel, maxBytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        StorageObject stored = adopt(temp, size, sha256, fileType, extension);
+        log.info("文件保存成功 - objectKey: {}, 大小: {} bytes, 已存在: {}", stored.getObjectKey(), size, stored.isDeduplicated());
+        return stored;
+    }
+
+    /**
+     * 内容寻址的存储路径：&lt;fileType&gt;/&lt;sha256前两位&gt;/&lt;sha256&gt;.&lt;ext&gt;
+     */
+    public static String blobKey(FileType fileType, String sha256, String extension) {
+        String name = extension == null || extension.isEmpty() ? sha256 : sha256 + "." + extension;
+        return fileType.name().toLowerCase() + "/" + sha256.substring(0, 2) + "/" + name;
+    }
+
+    /**
+     * 把已写好的文件登记为 blob：目标不存在时重命名过去，已存在时删除源文件。
+     * 两种情况都把 blob 的修改时间刷新为当前时间，文档记录保存前不会被回收
+     */
+    public StorageObject adopt(Path source, long size, String sha256, FileType fileType, String extension) throws IOException {
+        String objectKey = blobKey(fileType, sha256, extension);
+        Path target = resolve(objectKey);
+        synchronized (blobLock) {
+            FileTime now = FileTime.from(Instant.now());
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, now);
+                Files.deleteIfExists(source);
+                return new StorageObject(objectKey, size, sha256, true);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(target, now);
+        }
+        return new StorageObject(objectKey, size, sha256, false);
+    }
+
+    /**
+     * 列出最后修改时间早于指定时间的 blob（&lt;fileType&gt;/&lt;xx&gt;/&lt;sha256&gt;[.ext]）
+     */
+    public List<String> listBlobs(Instant modifiedBefore) throws IOException {
+        List<String> objectKeys = new ArrayList<>();
+        for (FileType fileType : FileType.values()) {
+            String typeDir = fileType.name().toLowerCase();
+            Path dir = root().resolve(typeDir);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(dir, BLOB_PREFIX_GLOB)) {
+                for (Path prefix : prefixes) {
+                    for (Path path : listModifiedBefore(prefix, modifiedBefore)) {
+                        String name = path.getFileName().toString();
+                        if (BLOB_NAME.matcher(name).matches()) {
+                            objectKeys.add(typeDir + "/" + prefix.getFileName() + "/" + name);
+                        }
+                    }
+                }
+            }
+        }
+        return objectKeys;
+    }
+
+    /**
+     * 删除宽限期内未被复用的 blob（修改时间仍早于指定时间）
+     *
+     * @return 是否已删除
+     */
+    public boolean deleteBlobIfUnmodifiedSince(String objectKey, Instant modifiedBefore) throws IOException {
+        Path path = resolve(objectKey);
+        synchronized (blobLock) {
+            if (!Files.exists(path) || !Files.getLastModifiedTime(path).toInstant().isBefore(modifiedBefore)) {
+                return false;
+            }
+            return Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * 根据 objectKey 获取本地路径
+     */
+    public Path resolve(String objectKey) {
+        Path root = root();
+        Path path = root.resolve(objectKey).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("非法的存储路径: " + objectKey);
+        }
+        return path;
+    }
+
+    /**
+     * 直传对象的存储路径：uploads/&lt;uploadId&gt;.&lt;ext&gt;，完成上传后转为内容寻址的 blob
+     */
+    public static String directUploadKey(String uploadId, String extension) {
+        String ext = extension == null ? "" : extension.replaceAll("[^A-Za-z0-9]", "");
+        if (ext.length() > 16) {
+            ext = ext.substring(0, 16);
+        }
+        return DIRECT_UPLOAD_PREFIX + (ext.isEmpty() ? uploadId : uploadId + "." + ext);
+    }
+
+    /**
+     * 直传对象对应的 uploadId
+     */
+    public static String directUploadId(Path path) {
+        return FilenameUtils.removeExtension(path.getFileName().toString());
+    }
+
+    /**
+     * 按指定 objectKey 保存文件（对象存储直传）
+     * 只允许写入直传目录，且不覆盖已存在的对象；
+     * 先写入暂存文件再以硬链接发布，读取方不会看到写了一半的文件
+     *
+     * @param maxBytes 允许写入的最大字节数，超出时中止并丢弃暂存文件
+     * @return 写入的字节数
+     * @throws FileAlreadyExistsException 对象已存在
+     * @throws ContentTooLargeException   数据超过 maxBytes
+     */
+    public long put(String objectKey, InputStream in, long maxBytes) throws IOException {
+        Path target = resolve(objectKey);
+        if (!target.startsWith(directUploadDir()) || target.equals(directUploadDir())) {
+            throw new IllegalArgumentException("只允许写入直传目录: " + objectKey);
+        }
+        if (Files.exists(target)) {
+            throw new FileAlreadyExistsException(objectKey);
+        }
+        Path temp = stagingDir().resolve(UUID.randomUUID() + ".tmp");
+        Files.createDirectories(temp.getParent());
+
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            size = transfer(in, channel, maxBytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.createDirectories(target.getParent());
+        try {
+            // 创建链接在目标已存在时失败，并发上传同一对象时只有一个成功
+            Files.createLink(target, temp);
+        } catch (UnsupportedOperationException e) {
+            Files.move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return size;
+    }
+
+    /**
+     * 为分片上传预分配暂存文件（稀疏文件，不实际占用磁盘）
+     */
+    public void allocateStaging(String uploadId, long size) throws IOException {
+        Path staging = stagingPath(uploadId);
+        Files.createDirectories(staging.getParent());
+        try (RandomAccessFile file = new RandomAccessFile(staging.toFile(), "rw")) {
+            file.setLength(size);
+        }
+    }
+
+    /**
+     * 把分片数据按偏移量写入暂存文件，不同分片可并发乱序写入
+     *
+     * @return 实际写入的字节数
+     */
+    public long writeStaging(String uploadId, long offset, long length, InputStream in) throws IOException {
+        Path staging = stagingPath(uploadId);
+        if (!Files.exists(staging)) {
+            throw new NoSuchFileException(staging.toString());
+        }
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+            ReadableByteChannel src = Channels.newChannel(in);
+            long written = 0;
+            long n;
+            while (written < length
+                    && (n = channel.transferFrom(src, offset + written, length - written)) > 0) {
+                written += n;
+            }
+            return written;
+        }
+    }
+
+    /**
+     * 暂存文件转为正式 blob：同一文件系统内重命名，不复制数据
+     */
+    public StorageObject commitStaging(String uploadId, FileType fileType, String extension) throws IOException {
+        Path staging = stagingPath(uploadId);
+        String sha256 = digest(staging);
+        long size = Files.size(staging);
+
+        StorageObject stored = adopt(staging, size, sha256, fileType, extension);
+        log.info("分片文件合并完成 - uploadId: {}, objectKey: {}, 大小: {} bytes", uploadId, stored.getObjectKey(), size);
+        return stored;
+    }
+
+    /**
+     * 删除暂存文件
+     */
+    public void deleteStaging(String uploadId) {
+        try {
+            Files.deleteIfExists(stagingPath(uploadId));
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败 - uploadId: {}, 错误: {}", uploadId, e.getMessage());
+        }
+    }
+
+    /**
+     * 列出最后修改时间早于指定时间的暂存文件（分片暂存文件及中断写入遗留的临时文件）
+     */
+    public List<Path> listStaging(Instant modifiedBefore) throws IOException {
+        return listModifiedBefore(stagingDir(), modifiedBefore);
+    }
+
+    /**
+     * 列出最后修改时间早于指定时间的直传对象（已完成的直传对象已转为 blob，不在此目录）
+     */
+    public List<Path> listDirectUploads(Instant modifiedBefore) throws IOException {
+        return listModifiedBefore(directUploadDir(), modifiedBefore);
+    }
+
+    private static List<Path> listModifiedBefore(Path dir, Instant modifiedBefore) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)
+                        && Files.getLastModifiedTime(path).toInstant().isBefore(modifiedBefore)) {
+                    stale.add(path);
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * 暂存文件对应的 uploadId，非分片暂存文件返回 null
+     */
+    public static String stagingUploadId(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(STAGING_SUFFIX) ? name.substring(0, name.length() - STAGING_SUFFIX.length()) : null;
+    }
+
+    /**
+     * 计算文件指定区间的 SHA-256
+     */
+    public String digest(Path path, long offset, long length) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    break;
+                }
+                position += n;
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 计算文件 SHA-256
+     */
+    public String digest(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path root() {
+        return Paths.get(System.getProperty("user.dir"), uploadDir).toAbsolutePath().normalize();
+    }
+
+    private Path stagingDir() {
+        return root().resolve(".staging");
+    }
+
+    private Path directUploadDir() {
+        return root().resolve(DIRECT_UPLOAD_PREFIX).normalize();
+    }
+
+    private Path stagingPath(String uploadId) {
+        return stagingDir().resolve(uploadId + STAGING_SUFFIX);
+    }
+
+    /**
+     * 删除已保存的文件（用于失败回滚）
+     * 内容寻址的 blob 可能已被并发上传复用，不能用此方法删除，交由 BlobStoreService 回收
+     */
+    public void delete(String objectKey) {
+        try {
+            Files.deleteIfExists(resolve(objectKey));
+        } catch (IOException e) {
+            log.warn("删除文件失败 - objectKey: {}, 错误: {}", objectKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 把数据流写入文件，超过 maxBytes 时抛出 ContentTooLargeException
+     * 每次最多多读 1 字节，用于判断数据是否超限
+     */
+    private long transfer(InputStream in, FileChannel channel, long maxBytes) throws IOException {
+        ReadableByteChannel src = Channels.newChannel(in);
+        long position = 0;
+        long n;
+        while ((n = channel.transferFrom(src, position, Math.min(TRANSFER_CHUNK, maxBytes - position) + 1)) > 0) {
+            position += n;
+            if (position > maxBytes) {
+                throw new ContentTooLargeException(maxBytes);
+            }
+        }
+        return position;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.zsx.cstfilemanage.infrastructure.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zsx.cstfilemanage.config.OcsProperties;
+import com.zsx.cstfilemanage.domain.storage.DownloadToken;
+import com.zsx.cstfilemanage.domain.storage.OcsClient;
+import com.zsx.cstfilemanage.domain.storage.UploadToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于本地磁盘的对象存储
+ * 签发带 HMAC-SHA256 签名、有过期时间的上传/下载 URL，
+ * 由独立端口上的轻量 HTTP 服务处理，大文件传输不占用 Web 容器的请求线程。
+ * 签名内容：METHOD \n objectKey \n expires，上传 URL 追加 \n size，
+ * 写入字节数超过签名中声明的大小时中止上传
+ */
+@Slf4j
+public class LocalOcsClient implements OcsClient, SmartLifecycle {
+
+    private static final String CONTEXT_PATH = "/ocs/";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final OcsProperties properties;
+    private final LocalFileStore fileStore;
+    private final byte[] signingKey;
+
+    private volatile HttpServer server;
+    private ExecutorService executor;
+
+    public LocalOcsClient(OcsProperties properties, LocalFileStore fileStore) {
+        this.properties = properties;
+        this.fileStore = fileStore;
+        this.signingKey = resolveSigningKey(properties.getSecret());
+    }
+
+    @Override
+    public UploadToken generateUploadToken(String objectKey, long size, int expireSeconds) {
+        if (server == null) {
+            return null;
+        }
+        long expireAt = System.currentTimeMillis() + expireSeconds * 1000L;
+        return new UploadToken(presign("PUT", objectKey, expireAt, size), expireAt);
+    }
+
+    @Override
+    public DownloadToken generateDownloadToken(String objectKey, int expireSeconds) {
+        if (server == null) {
+            return null;
+        }
+        long expireAt = System.currentTimeMillis() + expireSeconds * 1000L;
+        return new DownloadToken(presign("GET", objectKey, expireAt, null), expireAt);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("本地对象存储未启用，上传将使用分片方式");
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(properties.getThreads(), r -> {
+            Thread thread = new Thread(r, "ocs-transfer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress(properties.getHost(), properties.getPort()), 0);
+            httpServer.createContext(CONTEXT_PATH, this::handle);
+            httpServer.setExecutor(pool);
+            httpServer.start();
+            this.executor = pool;
+            this.server = httpServer;
+            log.info("本地对象存储已启动 - 监听: {}:{}, 外部地址: {}",
+                    properties.getHost(), properties.getPort(), properties.getPublicUrl());
+        } catch (IOException e) {
+            pool.shutdownNow();
+            // 端口不可用时不影响应用启动，上传退化为分片方式
+            log.error("本地对象存储启动失败 - 端口: {}, 错误: {}", properties.getPort(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        HttpServer httpServer = this.server;
+        if (httpServer != null) {
+            this.server = null;
+            httpServer.stop(1);
+            executor.shutdown();
+            log.info("本地对象存储已停止");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String objectKey = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            String signMethod = "HEAD".equals(method) ? "GET" : method;
+            // 上传 URL 必须带签名覆盖的 size
+            Long maxSize = "PUT".equals(method) ? parseSize(query.get("size")) : null;
+            if (("PUT".equals(method) && maxSize == null)
+                    || !verify(signMethod, objectKey, query.get("expires"), maxSize, query.get("signature"))) {
+                log.warn("对象存储请求签名无效或已过期 - method: {}, objectKey: {}", method, objectKey);
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+
+            switch (method) {
+                case "PUT" -> handlePut(exchange, objectKey, maxSize);
+                case "GET", "HEAD" -> handleGet(exchange, objectKey, "HEAD".equals(method));
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("对象存储请求路径非法 - uri: {}, 错误: {}", exchange.getRequestURI(), e.getMessage());
+            exchange.sendResponseHeaders(400, -1);
+        } catch (IOException e) {
+            log.error("对象存储请求处理失败 - uri: {}, 错误: {}", exchange.getRequestURI(), e.getMessage(), e);
+            throw e;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handlePut(HttpExchange exchange, String objectKey, long maxSize) throws IOException {
+        Long contentLength = parseSize(exchange.getRequestHeaders().getFirst("Content-Length"));
+        if (contentLength != null && contentLength > maxSize) {
+            log.warn("对象存储直传超出声明大小 - objectKey: {}, Content-Length: {}, 声明: {}", objectKey, contentLength, maxSize);
+            exchange.sendResponseHeaders(413, -1);
+            return;
+        }
+        long size;
+        try (InputStream in = exchange.getRequestBody()) {
+            size = fileStore.put(objectKey, in, maxSize);
+        } catch (FileAlreadyExistsException e) {
+            log.warn("对象存储直传拒绝覆盖已存在的对象 - objectKey: {}", objectKey);
+            exchange.sendResponseHeaders(409, -1);
+            return;
+        } catch (ContentTooLargeException e) {
+            log.warn("对象存储直传超出声明大小 - objectKey: {}, 声明: {}", objectKey, maxSize);
+            exchange.sendResponseHeaders(413, -1);
+            return;
+        }
+        log.info("对象存储直传完成 - objectKey: {}, 大小: {} bytes", objectKey, size);
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void handleGet(HttpExchange exchange, String objectKey, boolean headOnly) throws IOException {
+        Path path = fileStore.resolve(objectKey);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String contentType = Files.probeContentType(path);
+            exchange.getResponseHeaders().set("Content-Type",
+                    contentType != null ? contentType : "application/octet-stream");
+            if (headOnly) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream out = exchange.getResponseBody()) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    private String presign(String method, String objectKey, long expireAt, Long size) {
+        long expires = expireAt / 1000;
+        return trimTrailingSlash(properties.getPublicUrl()) + CONTEXT_PATH + encodePath(objectKey)
+                + "?expires=" + expires
+                + (size != null ? "&size=" + size : "")
+                + "&signature=" + sign(method, objectKey, expires, size);
+    }
+
+    private boolean verify(String method, String objectKey, String expires, Long size, String signature) {
+        if (expires == null || signature == null) {
+            return false;
+        }
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(expires);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        byte[] expected = sign(method, objectKey, expiresAt, size).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String method, String objectKey, long expires, Long size) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(signingKey, HMAC_ALGORITHM));
+            String payload = method + "\n" + objectKey + "\n" + expires + (size != null ? "\n" + size : "");
+            byte[] raw = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Long parseSize(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            long size = Long.parseLong(value.trim());
+            return size >= 0 ? size : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] resolveSigningKey(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("未配置 ocs.local.secret，使用随机签名密钥（重启后已签发的 URL 失效）");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private static String encodePath(String objectKey) {
+        StringBuilder sb = new StringBuilder();
+        for (String segment : objectKey.split("/")) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20"));
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int idx = pair.indexOf('=');
+            if (idx > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String trimTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,22 @@
+package com.zsx.cstfilemanage.infrastructure.text;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * 文本提取器
+ */
+public interface TextExtractor {
+
+    /**
+     * 支持的扩展名（小写，不含点）
+     */
+    Set<String> extensions();
+
+    /**
+     * 提取纯文本，按行写出
+     */
+    void extract(Path source, Writer out) throws IOException;
+}
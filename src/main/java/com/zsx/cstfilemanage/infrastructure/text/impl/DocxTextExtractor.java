@@ -0,0 +1,58 @@
+package com.zsx.cstfilemanage.infrastructure.text.impl;
+
+import com.zsx.cstfilemanage.infrastructure.text.TextExtractor;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Word（docx）文本提取：段落一行，表格每行单元格以制表符分隔
+ */
+@Component
+public class DocxTextExtractor implements TextExtractor {
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("docx");
+    }
+
+    @Override
+    public void extract(Path source, Writer out) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             XWPFDocument document = new XWPFDocument(in)) {
+            for (IBodyElement element : document.getBodyElements()) {
+                if (element instanceof XWPFParagraph paragraph) {
+                    out.write(paragraph.getText());
+                    out.write('\n');
+                } else if (element instanceof XWPFTable table) {
+                    writeTable(table, out);
+                }
+            }
+        }
+    }
+
+    private void writeTable(XWPFTable table, Writer out) throws IOException {
+        for (XWPFTableRow row : table.getRows()) {
+            boolean first = true;
+            for (XWPFTableCell cell : row.getTableCells()) {
+                if (!first) {
+                    out.write('\t');
+                }
+                out.write(cell.getText().replace('\n', ' '));
+                first = false;
+            }
+            out.write('\n');
+        }
+    }
+}
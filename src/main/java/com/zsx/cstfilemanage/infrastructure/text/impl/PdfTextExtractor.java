@@ -0,0 +1,33 @@
+package com.zsx.cstfilemanage.infrastructure.text.impl;
+
+import com.zsx.cstfilemanage.infrastructure.text.TextExtractor;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * PDF 文本提取
+ */
+@Component
+public class PdfTextExtractor implements TextExtractor {
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("pdf");
+    }
+
+    @Override
+    public void extract(Path source, Writer out) throws IOException {
+        try (PDDocument document = Loader.loadPDF(source.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setLineSeparator("\n");
+            stripper.writeText(document, out);
+        }
+    }
+}
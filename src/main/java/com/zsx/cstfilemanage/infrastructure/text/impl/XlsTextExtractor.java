@@ -0,0 +1,49 @@
+package com.zsx.cstfilemanage.infrastructure.text.impl;
+
+import com.zsx.cstfilemanage.infrastructure.text.TextExtractor;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Excel（xls）文本提取：每行单元格以制表符分隔
+ */
+@Component
+public class XlsTextExtractor implements TextExtractor {
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("xls");
+    }
+
+    @Override
+    public void extract(Path source, Writer out) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(source.toFile(), true);
+             HSSFWorkbook workbook = new HSSFWorkbook(fs.getRoot(), true)) {
+            DataFormatter formatter = new DataFormatter();
+            for (Sheet sheet : workbook) {
+                out.write("# " + sheet.getSheetName() + "\n");
+                for (Row row : sheet) {
+                    boolean first = true;
+                    for (Cell cell : row) {
+                        if (!first) {
+                            out.write('\t');
+                        }
+                        out.write(formatter.formatCellValue(cell).replace('\n', ' '));
+                        first = false;
+                    }
+                    out.write('\n');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.zsx.cstfilemanage.infrastructure.text.impl;
+
+import com.zsx.cstfilemanage.infrastructure.text.TextExtractor;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Excel（xlsx）文本提取
+ * 使用 SAX 流式读取工作表，不把整个工作簿加载到内存；每行单元格以制表符分隔
+ */
+@Component
+public class XlsxTextExtractor implements TextExtractor {
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("xlsx");
+    }
+
+    @Override
+    public void extract(Path source, Writer out) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(source.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (sheets instanceof XSSFReader.SheetIterator sheetIterator) {
+                        out.write("# " + sheetIterator.getSheetName() + "\n");
+                    }
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            styles, null, strings, new RowWriter(out), formatter, false));
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析 xlsx 失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按行写出单元格
+     */
+    private static class RowWriter implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Writer out;
+        private boolean firstCell;
+
+        RowWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            firstCell = true;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            write("\n");
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (!firstCell) {
+                write("\t");
+            }
+            write(formattedValue == null ? "" : formattedValue.replace('\n', ' '));
+            firstCell = false;
+        }
+
+        private void write(String text) {
+            try {
+                out.write(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
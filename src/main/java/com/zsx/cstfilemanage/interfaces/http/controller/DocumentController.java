@@ -3,14 +3,18 @@ package com.zsx.cstfilemanage.interfaces.http.controller;
 import com.zsx.cstfilemanage.application.service.DocumentService;
 import com.zsx.cstfilemanage.common.response.ApiResponse;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.domain.storage.DownloadToken;
+import com.zsx.cstfilemanage.interfaces.http.request.DocumentFromUploadRequest;
 import com.zsx.cstfilemanage.interfaces.http.request.DocumentUploadRequest;
 import com.zsx.cstfilemanage.interfaces.http.response.DocumentResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -41,13 +45,14 @@ public class DocumentController {
             @RequestParam(value = "productModel", required = false) String productModel,
             @RequestParam("version") String version,
             @RequestParam("compileDate") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime compileDate,
-            @RequestParam(value = "description", required = false) String description) {
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "checksum", required = false) String checksum) {
         log.debug("=== 上传文档接口调用开始 ===");
         log.info("上传文档请求 - 文件编号: {}, 文件名称: {}, 版本: {}, 文件大小: {} bytes, 文件类型: {}", 
                 fileNumber, fileName, version, file.getSize(), file.getContentType());
         try {
             Document document = documentService.uploadDocument(
-                    file, fileNumber, fileName, productModel, version, compileDate, description);
+                    file, fileNumber, fileName, productModel, version, compileDate, description, checksum);
             log.info("上传文档成功 - 文档ID: {}, 文件编号: {}, 文件名称: {}", 
                     document.getId(), document.getFileNumber(), document.getFileName());
             log.debug("=== 上传文档接口调用结束 ===");
@@ -59,6 +64,54 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 流式上传文档
+     * 请求体为文件原始字节（application/octet-stream），元数据通过查询参数传递；
+     * 携带 checksum（SHA-256）且内容已存在时无需发送文件内容
+     */
+    @PostMapping(value = "/upload/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ApiResponse<DocumentResponse> uploadDocumentStream(
+            HttpServletRequest request,
+            @RequestParam("originalName") String originalName,
+            @RequestParam("fileNumber") String fileNumber,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "productModel", required = false) String productModel,
+            @RequestParam("version") String version,
+            @RequestParam("compileDate") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime compileDate,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "checksum", required = false) String checksum) {
+        log.debug("=== 流式上传文档接口调用开始 ===");
+        log.info("流式上传文档请求 - 文件编号: {}, 文件名称: {}, 版本: {}, 原始文件名: {}, 请求体大小: {} bytes",
+                fileNumber, fileName, version, originalName, request.getContentLengthLong());
+        try {
+            Document document = documentService.uploadDocumentStream(
+                    request.getInputStream(), request.getContentLengthLong(), originalName, contentType,
+                    fileNumber, fileName, productModel, version, compileDate, description, checksum);
+            log.info("流式上传文档成功 - 文档ID: {}, 文件编号: {}, 文件名称: {}",
+                    document.getId(), document.getFileNumber(), document.getFileName());
+            log.debug("=== 流式上传文档接口调用结束 ===");
+            return ApiResponse.success(DocumentResponse.from(document));
+        } catch (Exception e) {
+            log.error("流式上传文档失败 - 文件编号: {}, 文件名称: {}, 错误信息: {}",
+                    fileNumber, fileName, e.getMessage(), e);
+            return ApiResponse.error(500, "上传失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 由已完成的上传会话创建文档（分片上传、直传、秒传完成后调用）
+     */
+    @PostMapping("/from-upload")
+    public ApiResponse<DocumentResponse> createFromUpload(@Valid @RequestBody DocumentFromUploadRequest request) {
+        Document document = documentService.createDocumentFromUpload(request.getUploadId(),
+                request.getFileNumber(), request.getFileName(), request.getProductModel(),
+                request.getVersion(), request.getCompileDate(), request.getDescription());
+        log.info("由上传会话创建文档成功 - 文档ID: {}, uploadId: {}, 文件编号: {}",
+                document.getId(), request.getUploadId(), document.getFileNumber());
+        return ApiResponse.success(DocumentResponse.from(document));
+    }
+
     /**
      * 查询文档详情
      */
@@ -74,5 +127,12 @@ public class DocumentController {
             throw e;
         }
     }
-}
 
+    /**
+     * 获取文档下载地址（带签名、限时有效）
+     */
+    @GetMapping("/{id}/download-url")
+    public ApiResponse<DownloadToken> getDownloadUrl(@PathVariable Long id) {
+        return ApiResponse.success(documentService.getDownloadToken(id));
+    }
+}
@@ -1,20 +1,21 @@
 package com.zsx.cstfilemanage.interfaces.http.controller;
 
+import com.zsx.cstfilemanage.application.service.DocumentIndexService;
 import com.zsx.cstfilemanage.application.service.DocumentSearchService;
 import com.zsx.cstfilemanage.common.response.ApiResponse;
-import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
+import com.zsx.cstfilemanage.infrastructure.search.DocumentQuery;
+import com.zsx.cstfilemanage.infrastructure.security.RequiresPermission;
 import com.zsx.cstfilemanage.interfaces.http.request.DocumentSearchRequest;
+import com.zsx.cstfilemanage.interfaces.http.response.CursorPageResponse;
 import com.zsx.cstfilemanage.interfaces.http.response.DocumentResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.FacetedSearchResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.stream.Collectors;
-
 /**
  * 文档搜索控制器
  */
@@ -24,13 +25,17 @@ import java.util.stream.Collectors;
 public class DocumentSearchController {
 
     private final DocumentSearchService documentSearchService;
+    private final DocumentIndexService documentIndexService;
 
-    public DocumentSearchController(DocumentSearchService documentSearchService) {
+    public DocumentSearchController(DocumentSearchService documentSearchService,
+                                    DocumentIndexService documentIndexService) {
         this.documentSearchService = documentSearchService;
+        this.documentIndexService = documentIndexService;
     }
 
     /**
      * 搜索文档（POST）
+     * 走全文索引：keyword 匹配文件编号、文件名、描述及文件内容，按相关度排序并返回高亮片段
      */
     @PostMapping
     public ApiResponse<Page<DocumentResponse>> searchDocuments(
@@ -43,20 +48,72 @@ public class DocumentSearchController {
                 request.getSize()
         );
 
-        Page<Document> documents = documentSearchService.searchDocuments(
+        Page<DocumentSearchService.DocumentHit> hits = documentSearchService.fullTextSearch(toQuery(request), pageable);
+
+        Page<DocumentResponse> responses = hits.map(DocumentSearchController::toResponse);
+
+        log.info("搜索文档成功 - 总数: {}", hits.getTotalElements());
+        return ApiResponse.success(responses);
+    }
+
+    /**
+     * 分面检索（POST）
+     * 条件同 /search，额外返回全部命中文档按状态、文件类型、产品型号、编制人的数量统计
+     */
+    @PostMapping("/faceted")
+    public ApiResponse<FacetedSearchResponse> facetedSearch(@RequestBody DocumentSearchRequest request) {
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+        DocumentSearchService.FacetedHits result = documentSearchService.facetedSearch(toQuery(request), pageable);
+        return ApiResponse.success(new FacetedSearchResponse(
+                result.getHits().map(DocumentSearchController::toResponse), result.getFacets()));
+    }
+
+    /**
+     * 按条件浏览文档（游标分页）
+     * 按创建时间倒序翻页，深翻页不随页码变慢；不走全文索引，忽略 keyword
+     */
+    @PostMapping("/cursor")
+    public ApiResponse<CursorPageResponse<DocumentResponse>> seekDocuments(
+            @RequestBody DocumentSearchRequest request) {
+        CursorPageResponse<Document> page = documentSearchService.seekDocuments(
                 request.getFileNumber(),
                 request.getFileName(),
                 request.getProductModel(),
                 request.getStatus(),
                 request.getCompilerId(),
-                pageable
+                request.getCursor(),
+                request.getSize(),
+                Boolean.TRUE.equals(request.getWithTotal())
         );
+        return ApiResponse.success(page.map(DocumentResponse::from));
+    }
 
-        Page<DocumentResponse> responses = documents.map(DocumentResponse::from);
-
-        log.info("搜索文档成功 - 总数: {}", documents.getTotalElements());
-        return ApiResponse.success(responses);
+    /**
+     * 全量重建全文索引（后台执行，完成前检索回退到数据库）
+     */
+    @PostMapping("/index/rebuild")
+    @RequiresPermission("document:modify")
+    public ApiResponse<Boolean> rebuildIndex() {
+        boolean started = documentIndexService.rebuildAsync();
+        log.info("全文索引重建请求 - 已开始: {}", started);
+        return ApiResponse.success(started);
     }
-}
 
+    private static DocumentQuery toQuery(DocumentSearchRequest request) {
+        return new DocumentQuery(
+                request.getKeyword(),
+                request.getFileNumber(),
+                request.getFileName(),
+                request.getProductModel(),
+                request.getStatus(),
+                request.getCompilerId()
+        );
+    }
 
+    private static DocumentResponse toResponse(DocumentSearchService.DocumentHit hit) {
+        DocumentResponse response = DocumentResponse.from(hit.getDocument());
+        response.setScore(hit.getScore());
+        response.setHighlights(hit.getHighlights());
+        return response;
+    }
+}
@@ -1,14 +1,26 @@
 package com.zsx.cstfilemanage.interfaces.http.controller;
 
 import com.zsx.cstfilemanage.application.service.FilePreviewService;
+import com.zsx.cstfilemanage.application.service.ThumbnailService;
+import com.zsx.cstfilemanage.common.exception.BizException;
+import com.zsx.cstfilemanage.common.exception.ErrorCode;
 import com.zsx.cstfilemanage.common.response.ApiResponse;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import com.zsx.cstfilemanage.domain.cenum.ThumbnailSize;
+import com.zsx.cstfilemanage.domain.storage.PageRender;
+import com.zsx.cstfilemanage.interfaces.http.response.PdfInfoResponse;
+import com.zsx.cstfilemanage.interfaces.http.support.RangeFileResponder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 文件预览控制器
@@ -18,22 +30,22 @@ import java.io.IOException;
 public class FilePreviewController {
 
     private final FilePreviewService previewService;
+    private final ThumbnailService thumbnailService;
 
-    public FilePreviewController(FilePreviewService previewService) {
+    public FilePreviewController(FilePreviewService previewService, ThumbnailService thumbnailService) {
         this.previewService = previewService;
+        this.thumbnailService = thumbnailService;
     }
 
     /**
      * 预览文件
+     * 支持 Range 分段读取（PDF.js 按需加载页面）及 ETag / Last-Modified 条件请求
      */
     @GetMapping("/{documentId}")
-    public ResponseEntity<Resource> previewFile(@PathVariable Long documentId) throws IOException {
-        Resource resource = previewService.getPreviewResource(documentId);
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                .body(resource);
+    public void previewFile(@PathVariable Long documentId,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        RangeFileResponder.serve(request, response, previewService.getPreviewFile(documentId));
     }
 
     /**
@@ -48,16 +60,79 @@ public class FilePreviewController {
                 .body(imageBytes);
     }
 
+    /**
+     * PDF 页数及各页尺寸
+     */
+    @GetMapping("/pdf/{documentId}/info")
+    public ApiResponse<PdfInfoResponse> getPdfInfo(@PathVariable Long documentId) throws IOException {
+        return ApiResponse.success(previewService.getPdfInfo(documentId));
+    }
+
+    /**
+     * 渲染 PDF 指定页
+     * width 优先于 dpi；stage=preview 先返回低分辨率图，同时在后台渲染完整分辨率，
+     * 客户端随后以 stage=full 请求即可命中缓存
+     */
+    @GetMapping("/pdf/{documentId}/pages/{page}")
+    public ResponseEntity<byte[]> renderPdfPage(@PathVariable Long documentId,
+                                                @PathVariable int page,
+                                                @RequestParam(value = "width", required = false) Integer width,
+                                                @RequestParam(value = "dpi", required = false) Integer dpi,
+                                                @RequestParam(value = "stage", defaultValue = FilePreviewService.STAGE_FULL) String stage,
+                                                WebRequest webRequest) throws IOException {
+        PageRender render = previewService.planPdfPage(documentId, page, width, dpi, stage);
+        if (webRequest.checkNotModified(render.getEtag())) {
+            return null;
+        }
+        byte[] imageBytes = previewService.renderPage(render);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(render.getContentType()))
+                .eTag(render.getEtag())
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                .header("X-Render-Stage", render.getStage())
+                .body(imageBytes);
+    }
+
     /**
      * 图片预览
      */
     @GetMapping("/image/{documentId}")
-    public ResponseEntity<Resource> previewImage(@PathVariable Long documentId) throws IOException {
-        Resource resource = previewService.getImagePreview(documentId);
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(resource);
+    public void previewImage(@PathVariable Long documentId,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        RangeFileResponder.serve(request, response, previewService.getImagePreviewFile(documentId));
+    }
+
+    /**
+     * 缩略图（size：list / grid / detail）
+     */
+    @GetMapping("/thumbnail/{documentId}")
+    public void thumbnail(@PathVariable Long documentId,
+                          @RequestParam(value = "size", defaultValue = "grid") String size,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        RangeFileResponder.serve(request, response, thumbnailService.getThumbnailFile(documentId, parseThumbnailSize(size)));
     }
-}
 
+    /**
+     * 请求参数错误返回 400，其余业务异常仍按 500 返回
+     */
+    @ExceptionHandler(BizException.class)
+    public ResponseEntity<ApiResponse<Void>> handleBizException(BizException e) {
+        HttpStatus status = e.getErrorCode() == ErrorCode.BAD_REQUEST
+                ? HttpStatus.BAD_REQUEST
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiResponse.error(e.getErrorCode().getCode(), e.getMessage()));
+    }
+
+    private static ThumbnailSize parseThumbnailSize(String size) {
+        try {
+            return ThumbnailSize.valueOf(size.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BizException(ErrorCode.BAD_REQUEST, "缩略图规格不正确: " + size + "，可选 list / grid / detail");
+        }
+    }
+}
@@ -1,20 +1,28 @@
 package com.zsx.cstfilemanage.interfaces.http.controller;
 
+import com.zsx.cstfilemanage.application.service.LogExportJobService;
 import com.zsx.cstfilemanage.application.service.LogExportService;
 import com.zsx.cstfilemanage.application.service.OperationLogService;
 import com.zsx.cstfilemanage.common.response.ApiResponse;
+import com.zsx.cstfilemanage.domain.cenum.ExportFormat;
 import com.zsx.cstfilemanage.domain.cenum.OperationType;
 import com.zsx.cstfilemanage.domain.model.entity.OperationLog;
+import com.zsx.cstfilemanage.domain.storage.StoredFile;
+import com.zsx.cstfilemanage.interfaces.http.response.CursorPageResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.ExportJobResponse;
+import com.zsx.cstfilemanage.interfaces.http.support.RangeFileResponder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -27,11 +35,14 @@ public class OperationLogController {
 
     private final OperationLogService operationLogService;
     private final LogExportService logExportService;
+    private final LogExportJobService logExportJobService;
 
     public OperationLogController(OperationLogService operationLogService,
-                                 LogExportService logExportService) {
+                                 LogExportService logExportService,
+                                 LogExportJobService logExportJobService) {
         this.operationLogService = operationLogService;
         this.logExportService = logExportService;
+        this.logExportJobService = logExportJobService;
     }
 
     /**
@@ -49,22 +60,78 @@ public class OperationLogController {
     }
 
     /**
-     * 导出日志为Excel
+     * 查询日志（游标分页）
+     * 按创建时间倒序，cursor 为上一页返回的 nextCursor，withTotal=true 时返回总数
+     */
+    @GetMapping("/cursor")
+    public ApiResponse<CursorPageResponse<OperationLog>> seekLogs(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) OperationType operationType,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ApiResponse.success(operationLogService.seekLogs(
+                userId, operationType, startTime, endTime, cursor, size, withTotal));
+    }
+
+    /**
+     * 导出日志（同步，默认Excel）
+     * 边查询边写出，不在内存中生成完整文件；数据量大时使用导出任务
      */
     @GetMapping("/export")
-    public ResponseEntity<byte[]> exportLogs(
+    public void exportLogs(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) OperationType operationType,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @RequestParam(defaultValue = "XLSX") ExportFormat format,
+            HttpServletResponse response) throws IOException {
+        String filename = "操作日志_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + "." + format.getExtension();
+
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(filename, StandardCharsets.UTF_8).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        logExportService.exportLogs(userId, operationType, startTime, endTime, format,
+                response.getOutputStream(), rows -> {
+                });
+    }
+
+    /**
+     * 提交异步导出任务
+     */
+    @PostMapping("/export-jobs")
+    public ApiResponse<ExportJobResponse> submitExportJob(
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) OperationType operationType,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
-            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime) throws IOException {
-        byte[] excelBytes = logExportService.exportLogsToExcel(userId, operationType, startTime, endTime);
-        
-        String filename = "操作日志_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".xlsx";
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(excelBytes);
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @RequestParam(defaultValue = "XLSX") ExportFormat format) {
+        LogExportJobService.ExportJob job = logExportJobService.submit(userId, operationType, startTime, endTime, format);
+        return ApiResponse.success(ExportJobResponse.from(job));
+    }
+
+    /**
+     * 查询导出任务进度
+     */
+    @GetMapping("/export-jobs/{jobId}")
+    public ApiResponse<ExportJobResponse> getExportJob(@PathVariable String jobId) {
+        return ApiResponse.success(ExportJobResponse.from(logExportJobService.getJob(jobId)));
+    }
+
+    /**
+     * 下载导出文件（支持断点续传）
+     */
+    @GetMapping("/export-jobs/{jobId}/file")
+    public void downloadExport(@PathVariable String jobId,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        LogExportJobService.ExportJob job = logExportJobService.getJob(jobId);
+        StoredFile file = logExportJobService.getFile(jobId);
+        RangeFileResponder.download(request, response, file, job.getFormat().getContentType());
     }
 }
 
@@ -0,0 +1,29 @@
+package com.zsx.cstfilemanage.interfaces.http.controller;
+
+import com.zsx.cstfilemanage.application.service.UploadCompleteAppService;
+import com.zsx.cstfilemanage.common.response.ApiResponse;
+import com.zsx.cstfilemanage.interfaces.http.request.UploadCompleteRequest;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadCompleteResponse;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/files/upload")
+public class UploadCompleteController {
+
+    private final UploadCompleteAppService uploadCompleteAppService;
+
+    public UploadCompleteController(UploadCompleteAppService uploadCompleteAppService) {
+        this.uploadCompleteAppService = uploadCompleteAppService;
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ApiResponse<UploadCompleteResponse> complete(@PathVariable String uploadId,
+                                                       @RequestBody(required = false) UploadCompleteRequest request) {
+        String proof = request != null ? request.getProof() : null;
+        return ApiResponse.success(uploadCompleteAppService.completeUpload(uploadId, proof));
+    }
+}
@@ -0,0 +1,44 @@
+package com.zsx.cstfilemanage.interfaces.http.controller;
+
+import com.zsx.cstfilemanage.application.service.UploadPartAppService;
+import com.zsx.cstfilemanage.common.response.ApiResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadPartResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.UploadStatusResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * 分片上传控制器
+ */
+@RestController
+@RequestMapping("/api/v1/files/upload")
+public class UploadPartController {
+
+    private final UploadPartAppService uploadPartAppService;
+
+    public UploadPartController(UploadPartAppService uploadPartAppService) {
+        this.uploadPartAppService = uploadPartAppService;
+    }
+
+    /**
+     * 上传分片（请求体为分片原始字节，分片序号从1开始）
+     */
+    @PutMapping(value = "/{uploadId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ApiResponse<UploadPartResponse> uploadPart(@PathVariable String uploadId,
+                                                      @PathVariable Integer partNumber,
+                                                      HttpServletRequest request) throws IOException {
+        UploadPartResponse response = uploadPartAppService.uploadPart(uploadId, partNumber, request.getInputStream());
+        return ApiResponse.success(response);
+    }
+
+    /**
+     * 查询上传进度（断点续传时获取缺失分片）
+     */
+    @GetMapping("/{uploadId}/parts")
+    public ApiResponse<UploadStatusResponse> getUploadStatus(@PathVariable String uploadId) {
+        return ApiResponse.success(uploadPartAppService.getUploadStatus(uploadId));
+    }
+}
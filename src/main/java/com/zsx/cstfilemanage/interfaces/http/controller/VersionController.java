@@ -1,17 +1,32 @@
 package com.zsx.cstfilemanage.interfaces.http.controller;
 
 import com.zsx.cstfilemanage.application.service.VersionService;
+import com.zsx.cstfilemanage.application.service.VisualCompareService;
 import com.zsx.cstfilemanage.common.response.ApiResponse;
+import com.zsx.cstfilemanage.domain.model.entity.ComparisonDelta;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
 import com.zsx.cstfilemanage.interfaces.http.request.CreateVersionRequest;
+import com.zsx.cstfilemanage.interfaces.http.response.ComparisonDeltaResponse;
 import com.zsx.cstfilemanage.interfaces.http.response.DocumentResponse;
+import com.zsx.cstfilemanage.interfaces.http.response.VisualCompareResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.difflib.patch.DeltaType;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -21,10 +36,19 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/versions")
 public class VersionController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final VersionService versionService;
+    private final VisualCompareService visualCompareService;
+    private final ObjectMapper objectMapper;
 
-    public VersionController(VersionService versionService) {
+    public VersionController(VersionService versionService,
+                             VisualCompareService visualCompareService,
+                             ObjectMapper objectMapper) {
         this.versionService = versionService;
+        this.visualCompareService = visualCompareService;
+        // 逐条写出时不能由 Jackson 关闭响应流
+        this.objectMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     /**
@@ -67,6 +91,7 @@ public class VersionController {
 
     /**
      * 版本对比
+     * 返回对比摘要及 comparisonId，差异明细分页查询；同一对版本只计算一次
      */
     @GetMapping("/compare")
     public ApiResponse<VersionService.VersionComparisonResult> compareVersions(
@@ -75,5 +100,54 @@ public class VersionController {
         VersionService.VersionComparisonResult result = versionService.compareVersions(version1Id, version2Id);
         return ApiResponse.success(result);
     }
+
+    /**
+     * 分页查询版本对比差异
+     * fromLine / toLine 按原文行号（从 0 开始）过滤与该区间有交集的差异，type 按差异类型过滤
+     */
+    @GetMapping("/compare/{comparisonId}/deltas")
+    public ApiResponse<Page<ComparisonDeltaResponse>> getComparisonDeltas(
+            @PathVariable Long comparisonId,
+            @RequestParam(required = false) Integer fromLine,
+            @RequestParam(required = false) Integer toLine,
+            @RequestParam(required = false) DeltaType type,
+            @PageableDefault(size = 50, sort = "seq") Pageable pageable) {
+        Page<ComparisonDelta> deltas = versionService.getComparisonDeltas(comparisonId, fromLine, toLine, type, pageable);
+        return ApiResponse.success(deltas.map(ComparisonDeltaResponse::from));
+    }
+
+    /**
+     * 图形比对（PDF 逐页 / DXF 整图）
+     * 返回各页状态及变化区域外接矩形（按 dpi 渲染的像素坐标）
+     */
+    @GetMapping("/compare/visual")
+    public ApiResponse<VisualCompareResponse> compareVisual(
+            @RequestParam Long version1Id,
+            @RequestParam Long version2Id,
+            @RequestParam(required = false) Integer dpi) throws IOException {
+        return ApiResponse.success(visualCompareService.compare(version1Id, version2Id, dpi));
+    }
+
+    /**
+     * 流式版本对比
+     * 以 NDJSON 逐行输出差异（每行一个 JSON 对象），最后一行为 {"total": 差异数量}；
+     * 大文档无需等待全部对比完成，也不会在服务端拼接完整报告
+     */
+    @GetMapping(value = "/compare/stream", produces = NDJSON)
+    public void streamCompareVersions(@RequestParam Long version1Id,
+                                      @RequestParam Long version2Id,
+                                      HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        OutputStream out = response.getOutputStream();
+        int total = versionService.streamCompareVersions(version1Id, version2Id, delta -> {
+            objectMapper.writeValue(out, delta);
+            out.write('\n');
+        });
+        objectMapper.writeValue(out, Map.of("total", total));
+        out.write('\n');
+        out.flush();
+    }
 }
 
@@ -0,0 +1,35 @@
+package com.zsx.cstfilemanage.interfaces.http.request;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 由已完成的上传会话创建文档请求
+ */
+@Data
+public class DocumentFromUploadRequest {
+
+    @NotBlank(message = "上传ID不能为空")
+    private String uploadId;
+
+    @NotBlank(message = "文件编号不能为空")
+    private String fileNumber;
+
+    @NotBlank(message = "文件名称不能为空")
+    private String fileName;
+
+    private String productModel;
+
+    @NotBlank(message = "版本号不能为空")
+    private String version;
+
+    @NotNull(message = "编制日期不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime compileDate;
+
+    private String description;
+}
@@ -6,6 +6,10 @@ import lombok.Data;
 @Data
 public class DocumentSearchRequest {
 
+    /**
+     * 全文关键字（文件编号、文件名、描述及文件内容）
+     */
+    private String keyword;
     private String fileNumber;
     private String fileName;
     private String productModel;
@@ -15,4 +19,8 @@ public class DocumentSearchRequest {
     // 分页参数
     private Integer page = 0;
     private Integer size = 20;
+
+    // 游标分页参数（/search/cursor），cursor 为上一页返回的 nextCursor
+    private String cursor;
+    private Boolean withTotal = false;
 }
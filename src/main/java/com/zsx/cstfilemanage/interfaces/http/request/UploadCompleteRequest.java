@@ -0,0 +1,15 @@
+package com.zsx.cstfilemanage.interfaces.http.request;
+
+import lombok.Data;
+
+/**
+ * 完成上传请求
+ */
+@Data
+public class UploadCompleteRequest {
+
+    /**
+     * 秒传持有证明：文件 [proofOffset, proofOffset + proofLength) 区间的 SHA-256（十六进制），非秒传时不传
+     */
+    private String proof;
+}
@@ -21,4 +21,10 @@ public class UploadInitRequest {
 
     // 可选：用于秒传 / 去重
     private String checksum;
+
+    // 可选：上传模式 DIRECT / CHUNKED，默认优先直传
+    private String uploadMode;
+
+    // 可选：分片大小（字节），仅 CHUNKED 模式使用
+    private Long chunkSize;
 }
@@ -0,0 +1,45 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.github.difflib.patch.DeltaType;
+import com.zsx.cstfilemanage.common.util.JsonUtil;
+import com.zsx.cstfilemanage.domain.model.entity.ComparisonDelta;
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 版本对比差异响应
+ */
+@Data
+public class ComparisonDeltaResponse {
+
+    private Integer seq;
+    private DeltaType type;
+    private Integer sourcePosition;
+    private Integer sourceSize;
+    private Integer targetPosition;
+    private Integer targetSize;
+    private List<String> sourceLines;
+    private List<String> targetLines;
+    private Boolean truncated;
+
+    public static ComparisonDeltaResponse from(ComparisonDelta delta) {
+        ComparisonDeltaResponse response = new ComparisonDeltaResponse();
+        response.setSeq(delta.getSeq());
+        response.setType(delta.getType());
+        response.setSourcePosition(delta.getSourcePosition());
+        response.setSourceSize(delta.getSourceSize());
+        response.setTargetPosition(delta.getTargetPosition());
+        response.setTargetSize(delta.getTargetSize());
+        response.setSourceLines(lines(delta.getSourceLines()));
+        response.setTargetLines(lines(delta.getTargetLines()));
+        response.setTruncated(delta.getTruncated());
+        return response;
+    }
+
+    private static List<String> lines(String json) {
+        String[] lines = JsonUtil.fromJson(json, String[].class);
+        return lines == null ? List.of() : Arrays.asList(lines);
+    }
+}
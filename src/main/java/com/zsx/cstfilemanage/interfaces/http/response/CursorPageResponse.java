@@ -0,0 +1,41 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.zsx.cstfilemanage.common.util.PageCursor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页响应
+ * nextCursor 为空表示没有下一页；total 仅在请求时计算
+ */
+@Data
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+
+    /**
+     * 由多取一条的查询结果构造：rows 最多 size + 1 条，多出的一条只用于判断是否还有下一页
+     */
+    public static <T> CursorPageResponse<T> of(List<T> rows, int size,
+                                               Function<? super T, PageCursor> cursorOf, Long total) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPageResponse<>(content, size, hasNext, nextCursor, total);
+    }
+
+    public <R> CursorPageResponse<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new CursorPageResponse<>(mapped, size, hasNext, nextCursor, total);
+    }
+}
@@ -1,11 +1,13 @@
 package com.zsx.cstfilemanage.interfaces.http.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.zsx.cstfilemanage.domain.cenum.DocumentStatus;
 import com.zsx.cstfilemanage.domain.cenum.FileType;
 import com.zsx.cstfilemanage.domain.model.entity.Document;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 文档响应
@@ -25,7 +27,6 @@ public class DocumentResponse {
     private String description;
     private FileType fileType;
     private Long fileSize;
-    private String filePath;
     private String thumbnailPath;
     private String contentType;
     private DocumentStatus status;
@@ -33,6 +34,18 @@ public class DocumentResponse {
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
+    /**
+     * 全文检索相关度得分（仅检索结果）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
+    /**
+     * 全文检索高亮片段：字段名 -> 片段（仅检索结果）
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, String> highlights;
+
     public static DocumentResponse from(Document document) {
         DocumentResponse response = new DocumentResponse();
         response.setId(document.getId());
@@ -47,7 +60,6 @@ public class DocumentResponse {
         response.setDescription(document.getDescription());
         response.setFileType(document.getFileType());
         response.setFileSize(document.getFileSize());
-        response.setFilePath(document.getFilePath());
         response.setThumbnailPath(document.getThumbnailPath());
         response.setContentType(document.getContentType());
         response.setStatus(document.getStatus());
@@ -0,0 +1,54 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.zsx.cstfilemanage.application.service.LogExportJobService;
+import com.zsx.cstfilemanage.domain.cenum.ExportFormat;
+import com.zsx.cstfilemanage.domain.cenum.ExportJobStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 导出任务响应
+ */
+@Data
+public class ExportJobResponse {
+
+    private String jobId;
+    private ExportFormat format;
+    private ExportJobStatus status;
+    private long rowsWritten;
+    private Long estimatedRows;
+    /**
+     * 进度百分比（0~100），预估总行数未知时为空
+     */
+    private Integer progress;
+    private String fileName;
+    private Long fileSize;
+    private String errorMessage;
+    private LocalDateTime createTime;
+    private LocalDateTime startTime;
+    private LocalDateTime completeTime;
+
+    public static ExportJobResponse from(LogExportJobService.ExportJob job) {
+        ExportJobResponse response = new ExportJobResponse();
+        response.setJobId(job.getJobId());
+        response.setFormat(job.getFormat());
+        response.setStatus(job.getStatus());
+        response.setRowsWritten(job.getRowsWritten());
+        response.setEstimatedRows(job.getEstimatedRows());
+        if (job.getStatus() == ExportJobStatus.COMPLETED) {
+            response.setProgress(100);
+        } else if (job.getEstimatedRows() != null) {
+            // 导出期间新增的日志可能使已写行数超过预估值
+            long estimated = Math.max(1, job.getEstimatedRows());
+            response.setProgress((int) Math.min(99, job.getRowsWritten() * 100 / estimated));
+        }
+        response.setFileName(job.getFileName());
+        response.setFileSize(job.getFileSize());
+        response.setErrorMessage(job.getErrorMessage());
+        response.setCreateTime(job.getCreateTime());
+        response.setStartTime(job.getStartTime());
+        response.setCompleteTime(job.getCompleteTime());
+        return response;
+    }
+}
@@ -0,0 +1,23 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.zsx.cstfilemanage.infrastructure.search.FacetValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面检索响应：当前页结果 + 各维度数量统计
+ */
+@Data
+@AllArgsConstructor
+public class FacetedSearchResponse {
+
+    private Page<DocumentResponse> page;
+    /**
+     * 维度（status、fileType、productModel、compilerId）-> 按数量倒序的取值
+     */
+    private Map<String, List<FacetValue>> facets;
+}
@@ -0,0 +1,25 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * PDF 页面信息响应（页数与各页尺寸，单位：point，1/72 英寸）
+ */
+@Data
+@AllArgsConstructor
+public class PdfInfoResponse {
+
+    private Long documentId;
+    private int pageCount;
+    private List<PageSize> pages;
+
+    @Data
+    @AllArgsConstructor
+    public static class PageSize {
+        private float width;
+        private float height;
+    }
+}
@@ -0,0 +1,17 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 上传完成响应
+ */
+@Data
+@AllArgsConstructor
+public class UploadCompleteResponse {
+
+    private String uploadId;
+    private String objectKey;
+    private Long fileSize;
+    private String sha256;
+}
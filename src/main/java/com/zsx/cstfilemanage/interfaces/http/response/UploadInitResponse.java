@@ -12,4 +12,10 @@ public class UploadInitResponse {
     private String objectKey;
     private Long expireAt;
     private String uploadMode;
+    private Long chunkSize;
+    private Integer totalParts;
+
+    // 秒传持有证明：完成上传时提交文件 [proofOffset, proofOffset + proofLength) 区间的 SHA-256
+    private Long proofOffset;
+    private Long proofLength;
 }
@@ -0,0 +1,17 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 分片上传响应
+ */
+@Data
+@AllArgsConstructor
+public class UploadPartResponse {
+
+    private String uploadId;
+    private Integer partNumber;
+    private Long receivedParts;
+    private Integer totalParts;
+}
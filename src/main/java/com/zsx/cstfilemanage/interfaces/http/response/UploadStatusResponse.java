@@ -0,0 +1,22 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.zsx.cstfilemanage.domain.cenum.UploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 上传进度响应（用于断点续传）
+ */
+@Data
+@AllArgsConstructor
+public class UploadStatusResponse {
+
+    private String uploadId;
+    private UploadStatus status;
+    private Long fileSize;
+    private Long chunkSize;
+    private Integer totalParts;
+    private List<Integer> missingParts;
+}
@@ -0,0 +1,51 @@
+package com.zsx.cstfilemanage.interfaces.http.response;
+
+import com.zsx.cstfilemanage.domain.cenum.PageDiffStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 图形比对响应
+ * 区域坐标为按 dpi 渲染后的像素坐标，原点在页面左上角；
+ * 前端以相同 dpi 请求页面预览图即可直接叠加
+ */
+@Data
+@AllArgsConstructor
+public class VisualCompareResponse {
+
+    private Long version1Id;
+    private Long version2Id;
+    private int dpi;
+    private int pageCount1;
+    private int pageCount2;
+    private int changedPages;
+    private List<PageDiff> pages;
+
+    @Data
+    @AllArgsConstructor
+    public static class PageDiff {
+        /**
+         * 页码（从 1 开始）
+         */
+        private int page;
+        private PageDiffStatus status;
+        private int width;
+        private int height;
+        /**
+         * 变化像素占比
+         */
+        private double changedRatio;
+        private List<Region> regions;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Region {
+        private int x;
+        private int y;
+        private int width;
+        private int height;
+    }
+}
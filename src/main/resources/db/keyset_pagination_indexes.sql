@@ -0,0 +1,20 @@
+-- 游标分页索引（MySQL 8）
+-- 游标分页按 (create_time, id) 倒序定位，复合索引让每一页都是一次索引范围扫描
+-- 索引名与实体 @Index 保持一致；在线 DDL，不锁表，大表建议在低峰期执行
+
+ALTER TABLE documents
+    ADD INDEX idx_create_time_id (create_time, id),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 原单列索引 idx_create_time 是新索引的前缀，建好新索引后删除
+ALTER TABLE operation_logs
+    ADD INDEX idx_create_time_id (create_time, id),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE operation_logs
+    DROP INDEX idx_create_time,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 查看索引
+-- SHOW INDEX FROM documents WHERE Key_name = 'idx_create_time_id';
+-- SHOW INDEX FROM operation_logs WHERE Key_name LIKE 'idx_create_time%';
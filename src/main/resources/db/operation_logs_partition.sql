@@ -0,0 +1,30 @@
+-- 操作日志表按月分区（MySQL 8）
+-- 分区列必须包含在主键中，主键改为 (id, create_time)；id 仍为自增，保持唯一
+-- 每个分区 pYYYYMM 存放该月数据，pmax 兜底；之后的分区由 OperationLogRetentionService 定时从 pmax 拆分预建
+-- 执行前请按实际数据的最早月份补齐分区列表，大表建议在低峰期执行（会重建整张表）
+
+ALTER TABLE operation_logs
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, create_time);
+
+ALTER TABLE operation_logs
+    PARTITION BY RANGE COLUMNS (create_time) (
+        PARTITION p202501 VALUES LESS THAN ('2025-02-01 00:00:00'),
+        PARTITION p202502 VALUES LESS THAN ('2025-03-01 00:00:00'),
+        PARTITION p202503 VALUES LESS THAN ('2025-04-01 00:00:00'),
+        PARTITION p202504 VALUES LESS THAN ('2025-05-01 00:00:00'),
+        PARTITION p202505 VALUES LESS THAN ('2025-06-01 00:00:00'),
+        PARTITION p202506 VALUES LESS THAN ('2025-07-01 00:00:00'),
+        PARTITION p202507 VALUES LESS THAN ('2025-08-01 00:00:00'),
+        PARTITION p202508 VALUES LESS THAN ('2025-09-01 00:00:00'),
+        PARTITION p202509 VALUES LESS THAN ('2025-10-01 00:00:00'),
+        PARTITION p202510 VALUES LESS THAN ('2025-11-01 00:00:00'),
+        PARTITION p202511 VALUES LESS THAN ('2025-12-01 00:00:00'),
+        PARTITION p202512 VALUES LESS THAN ('2026-01-01 00:00:00'),
+        PARTITION pmax VALUES LESS THAN (MAXVALUE)
+    );
+
+-- 查看分区情况
+-- SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS
+-- FROM information_schema.PARTITIONS
+-- WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'operation_logs';